@@ -6,8 +6,11 @@ module uk.ac.ed.eci.libczi.wrapper {
     // accessible to any other module that 'requires' this one.
     exports uk.ac.ed.eci.libCZI;
     exports uk.ac.ed.eci.libCZI.bitmaps;
+    exports uk.ac.ed.eci.libCZI.deepzoom;
     exports uk.ac.ed.eci.libCZI.document;
     exports uk.ac.ed.eci.libCZI.metadata;
+    // uk.ac.ed.eci.libCZI.internal holds helpers shared between the packages above
+    // and is deliberately not exported.
 
     // Required for JSON processing with Jackson.
     // 'transitive' is used because some exported classes are annotated for Jackson,
@@ -18,6 +21,16 @@ module uk.ac.ed.eci.libczi.wrapper {
     requires transitive com.fasterxml.jackson.annotation;
     requires transitive com.fasterxml.jackson.core;
 
+    // BufferedImage and ImageIO, used to encode deep-zoom tiles.
+    requires java.desktop;
+
+    // HttpClient, used by HttpRangeReader to read files with range requests.
+    requires java.net.http;
+
+    // Optional: used by PixelConverter when present at runtime (--add-modules jdk.incubator.vector),
+    // otherwise the scalar conversion kernels are used.
+    requires static jdk.incubator.vector;
+
 
     // The 'opens' directive allows the Jackson databind library to use reflection
     // on the classes within the uk.ac.ed.eci.libCZI package at runtime.
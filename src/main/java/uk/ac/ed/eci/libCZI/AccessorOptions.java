@@ -62,13 +62,25 @@ public class AccessorOptions implements IInterop {
             cString = arena.allocate(MemoryLayout.sequenceLayout(additionalParameters.length(), JAVA_BYTE));
         }
         
+        copyTo(segment, cString);
+        return segment;
+    }
+
+    /**
+     * Writes these options into an existing segment laid out as {@link #layout()}.
+     * The additional parameters string is not copied; the caller supplies the pointer
+     * to use, usually {@link MemorySegment#NULL}.
+     *
+     * @param segment The destination, at least {@code layout().byteSize()} bytes long.
+     * @param additionalParametersString Pointer written to the {@code additional_parameters} field.
+     */
+    public void copyTo(MemorySegment segment, MemorySegment additionalParametersString) {
         segment.set(JAVA_FLOAT, 0, backGroundColorR);
         segment.set(JAVA_FLOAT, 4, backGroundColorG);
         segment.set(JAVA_FLOAT, 8, backGroundColorB);
         segment.set(JAVA_BOOLEAN, 12, sortByM); 
         segment.set(JAVA_BOOLEAN, 13, useVisibilityCheckOptimization);
-        segment.set(ADDRESS, 16, cString);
-        return segment;
+        segment.set(ADDRESS, 16, additionalParametersString);
     }
 
     public float backGroundColorR() {
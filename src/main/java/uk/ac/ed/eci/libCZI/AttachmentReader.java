@@ -1,9 +1,7 @@
 package uk.ac.ed.eci.libCZI;
 
 import java.lang.foreign.Arena;
-import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.MemorySegment;
-import java.lang.invoke.MethodHandle;
 
 import static java.lang.foreign.ValueLayout.*;
 
@@ -45,10 +43,8 @@ public class AttachmentReader implements AutoCloseable {
         if (attachmentHandle == null || attachmentHandle.address() == 0) {
             return;
         }
-        FunctionDescriptor descriptor = FunctionDescriptor.ofVoid(ADDRESS);
-        MethodHandle releaseAttachment = LibCziFFM.getMethodHandle("libCZI_ReleaseAttachment", descriptor);
         try {
-            releaseAttachment.invokeExact(attachmentHandle);
+            LibCziFunctions.RELEASE_ATTACHMENT.invokeExact(attachmentHandle);
         } catch (Throwable e) {
             throw new RuntimeException("Failed to call native function libCZI_ReleaseAttachment", e);
         }
@@ -59,14 +55,20 @@ public class AttachmentReader implements AutoCloseable {
     }
 
     public MemorySegment getAttachmentRawData() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS);
-        MethodHandle getRawData = LibCziFFM.getMethodHandle("libCZI_AttachmentGetRawData", descriptor);
+        return getAttachmentRawData(LibCziFFM.GLOBAL_ARENA);
+    }
+
+    /**
+     * Reads the attachment data into memory allocated from {@code arena}, so that it is
+     * freed along with the arena rather than kept for the life of the application.
+     */
+    public MemorySegment getAttachmentRawData(Arena dataArena) {
 
         long size;
         // First, call the native function with a NULL buffer to get the required size.
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment pSize = arena.allocate(JAVA_LONG);
-            int errorCode = (int) getRawData.invokeExact(attachmentHandle, pSize, MemorySegment.NULL);
+            int errorCode = (int) LibCziFunctions.ATTACHMENT_GET_RAW_DATA.invokeExact(attachmentHandle, pSize, MemorySegment.NULL);
             if (errorCode != 0) {
                 throw new AttachmentReaderException("Failed to get attachment raw data buffer size. Error code: " + errorCode);
             }
@@ -78,8 +80,8 @@ public class AttachmentReader implements AutoCloseable {
             if (size == 0) {
                 return MemorySegment.NULL; // Or an empty segment if preferred
             }
-            MemorySegment data = LibCziFFM.GLOBAL_ARENA.allocate(size);
-            errorCode = (int) getRawData.invokeExact(attachmentHandle, pSize, data);
+            MemorySegment data = dataArena.allocate(size);
+            errorCode = (int) LibCziFunctions.ATTACHMENT_GET_RAW_DATA.invokeExact(attachmentHandle, pSize, data);
             if (errorCode != 0) {
                 throw new AttachmentReaderException("Failed to get attachment raw data. Error code: " + errorCode);
             }
@@ -93,11 +95,9 @@ public class AttachmentReader implements AutoCloseable {
     }
     
     private MemorySegment getAttachmentHandle(){
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS);
-        MethodHandle readAttachment = LibCziFFM.getMethodHandle("libCZI_ReaderReadAttachment", descriptor);
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment pAttachment = arena.allocate(ADDRESS);
-            int errorCode = (int) readAttachment.invokeExact(readerHandle, index, pAttachment);
+            int errorCode = (int) LibCziFunctions.READER_READ_ATTACHMENT.invokeExact(readerHandle, index, pAttachment);
             if (errorCode != 0) {
                 throw new AttachmentReaderException("Failed to read attachment. Error code: " + errorCode);
             }
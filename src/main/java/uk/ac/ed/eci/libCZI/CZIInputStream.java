@@ -1,9 +1,11 @@
 package uk.ac.ed.eci.libCZI;
 
-import java.lang.foreign.FunctionDescriptor;
+import java.io.IOException;
 import java.lang.foreign.MemorySegment;
-import java.lang.invoke.MethodHandle;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import static java.lang.foreign.ValueLayout.*;
 
@@ -60,12 +62,10 @@ public class CZIInputStream implements AutoCloseable {
     }
 
     private void connectBridge() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        MethodHandle inputStreamFromExternal = LibCziFFM.getMethodHandle("libCZI_CreateInputStreamFromExternal", descriptor);
         try {
             MemorySegment externalStreamStruct = bridge.createExternalInputStreamStruct(0, 0);
             MemorySegment pStream = classArena.allocate(ADDRESS);
-            int errorCode = (int) inputStreamFromExternal.invokeExact(externalStreamStruct, pStream);
+            int errorCode = (int) LibCziFunctions.CREATE_INPUT_STREAM_FROM_EXTERNAL.invokeExact(externalStreamStruct, pStream);
             if (errorCode != 0) { // Non-zero indicates an error
                 throw new CziStreamException("Failed to create CZI input stream from external stream. Error code: " + errorCode);
             }
@@ -91,12 +91,10 @@ public class CZIInputStream implements AutoCloseable {
      * @author Paul Mitchell
      */
     public static CZIInputStream createInputStreamFromFileUTF8(String string) {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        MethodHandle createInputStream = LibCziFFM.getMethodHandle("libCZI_CreateInputStreamFromFileUTF8", descriptor);
         try (Arena tempArena = Arena.ofConfined()) {
             MemorySegment filenameSegment = tempArena.allocateFrom(string);
             MemorySegment pStream = LibCziFFM.GLOBAL_ARENA.allocate(ADDRESS);
-            int errorCode = (int) createInputStream.invokeExact(filenameSegment, pStream);
+            int errorCode = (int) LibCziFunctions.CREATE_INPUT_STREAM_FROM_FILE_UTF8.invokeExact(filenameSegment, pStream);
             if (errorCode != 0) { // Non-zero indicates an error
                 throw new CziStreamException("Failed to create CZI input stream from file. Error code: " + errorCode);
             }
@@ -110,11 +108,72 @@ public class CZIInputStream implements AutoCloseable {
         }
     }
 
+    /**
+     * Opens a stream that reads from a Java channel. A {@link FileChannel} is read with
+     * positional reads, so concurrent reads by libCZI need no lock.
+     */
     public static CZIInputStream createInputStreamFromJavaStream(SeekableByteChannel stream) {
         InputStreamBridge bridge = new InputStreamBridge(stream);
         return new CZIInputStream(null, bridge);
     }
 
+    /**
+     * Opens a stream that reads from a {@link RangeReader}, which is closed when libCZI
+     * releases the stream.
+     */
+    public static CZIInputStream createInputStreamFromRangeReader(RangeReader rangeReader) {
+        return new CZIInputStream(null, new InputStreamBridge(rangeReader));
+    }
+
+    /**
+     * Opens a file by mapping the whole of it into memory once. libCZI's reads are then
+     * served by copying from the mapping, without a system call per read.
+     * <p>
+     * The mapping is released when the stream is closed. Files larger than the address
+     * space available for mappings cannot be opened this way.
+     * </p>
+     *
+     * @throws CziStreamException if the file cannot be mapped.
+     */
+    public static CZIInputStream createInputStreamFromMappedFile(Path path) {
+        Arena mappingArena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MemorySegment mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), mappingArena);
+            return new CZIInputStream(null, new MemorySegmentBridge(mapping, mappingArena));
+        } catch (IOException e) {
+            mappingArena.close();
+            throw new CziStreamException("Failed to map file " + path, e);
+        } catch (RuntimeException e) {
+            mappingArena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a stream over a CZI file that is already in memory. Reads are copied straight
+     * out of the segment, with bounds checks, and no file or channel is involved.
+     * <p>
+     * The segment stays owned by the caller and must remain valid until the stream is
+     * closed. It must not come from a confined arena, as libCZI may read from other threads.
+     * </p>
+     *
+     * @throws IllegalArgumentException if the segment is confined to a thread.
+     */
+    public static CZIInputStream fromMemory(MemorySegment data) {
+        if (LibCziFFM.isConfined(data)) {
+            throw new IllegalArgumentException("libCZI may read the segment from other threads, so it must not be confined to a thread");
+        }
+        return new CZIInputStream(null, new MemorySegmentBridge(data, null));
+    }
+
+    /**
+     * Opens a stream over a CZI file held in a byte array, which is used in place and
+     * must not be changed until the stream is closed.
+     */
+    public static CZIInputStream fromBytes(byte[] data) {
+        return fromMemory(MemorySegment.ofArray(data));
+    }
+
     public Integer errorCode() {
         return streamResult.errorCode();
     }
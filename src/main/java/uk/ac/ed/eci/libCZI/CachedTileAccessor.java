@@ -0,0 +1,69 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.lang.foreign.MemorySegment;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+
+/**
+ * A {@link SingleChannelTileAccessor} fronted by a {@link TileCache}. Tiles are looked up
+ * in the cache first and only rendered by libCZI on a miss, after which they are cached.
+ * <p>
+ * The cache may be shared with accessors for other files; {@code fileIdentity} keeps
+ * their tiles apart.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class CachedTileAccessor implements AutoCloseable {
+    private final SingleChannelTileAccessor accessor;
+    private final TileCache cache;
+    private final Object fileIdentity;
+
+    /**
+     * @param fileIdentity identifies the file {@code reader} was opened on, for example its
+     *                     absolute path.
+     */
+    public CachedTileAccessor(CziStreamReader reader, TileCache cache, Object fileIdentity) {
+        this.accessor = new SingleChannelTileAccessor(reader);
+        this.cache = cache;
+        this.fileIdentity = fileIdentity;
+    }
+
+    public TileCache cache() {
+        return cache;
+    }
+
+    public BitmapInfo getTileInto(IntRect rawRoi, float zoom, MemorySegment destination, long destinationStride) {
+        return getTileInto(rawRoi, zoom, 0, destination, destinationStride);
+    }
+
+    /**
+     * Copies a tile into {@code destination}, from the cache if possible.
+     *
+     * @see SingleChannelTileAccessor#getTileInto(IntRect, float, int, MemorySegment, long)
+     */
+    public BitmapInfo getTileInto(IntRect rawRoi, float zoom, int channel, MemorySegment destination, long destinationStride) {
+        return getTileInto(rawRoi, zoom, Coordinate.createC0(channel), destination, destinationStride);
+    }
+
+    public BitmapInfo getTileInto(IntRect rawRoi, float zoom, Coordinate plane, MemorySegment destination, long destinationStride) {
+        TileKey key = new TileKey(fileIdentity, plane, rawRoi, zoom);
+        BitmapInfo cached = cache.get(key, destination, destinationStride);
+        if (cached != null) {
+            return cached;
+        }
+        Bitmap bitmap = accessor.getBitmapRaw(rawRoi, zoom, plane, 1, 1, 1);
+        try {
+            cache.put(key, bitmap);
+            return bitmap.copyTo(destination, destinationStride);
+        } finally {
+            bitmap.release();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        accessor.close();
+    }
+}
@@ -0,0 +1,391 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link RangeReader} that reads another in fixed-size, aligned blocks and keeps
+ * them in native memory, with a byte budget and least-recently-used eviction.
+ * <p>
+ * On a network file system every small read libCZI makes through the bridge is a round
+ * trip; with this cache underneath, reads are served from whole blocks instead. When
+ * reads move forward through consecutive blocks, the next few blocks are fetched in the
+ * background before they are asked for. {@link #prefetch} warms a byte range explicitly.
+ * </p>
+ * <p>
+ * A block is fetched only once however many threads ask for it at the same time.
+ * Fetches run without the cache lock held; block memory, obtained from libCZI's
+ * allocator as in {@link TileCache}, is only read or freed while it is locked.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class CachingRangeReader implements RangeReader {
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+    public static final int DEFAULT_READ_AHEAD_BLOCKS = 4;
+    // Consecutive block reads needed before read-ahead starts.
+    private static final int SEQUENTIAL_THRESHOLD = 2;
+
+    private final RangeReader source;
+    private final long byteBudget;
+    private final int blockSize;
+    private final int readAheadBlocks;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Long, MemorySegment> blocks = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, CompletableFuture<Void>> loading = new HashMap<>();
+    private final ExecutorService readAheadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder readAheads = new LongAdder();
+    private final LongAdder bytesFetched = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private long bytesCached;
+    private long nextSequentialBlock = -1;
+    private int sequentialRun;
+    private boolean closed;
+    private volatile long size = -1;
+
+    /**
+     * Block hit and miss counts, the number of blocks read ahead, bytes read from the
+     * source against bytes returned to callers, and the current size of the cache.
+     */
+    public record Stats(long hits, long misses, long readAheadBlocks, long bytesFetched, long bytesServed, long bytesCached, int blocks) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    public CachingRangeReader(RangeReader source, long byteBudget) {
+        this(source, byteBudget, DEFAULT_BLOCK_SIZE, DEFAULT_READ_AHEAD_BLOCKS);
+    }
+
+    /**
+     * @param source the reader to cache, which is closed with this one.
+     * @param byteBudget the maximum number of bytes of blocks to hold.
+     * @param blockSize the size and alignment of the blocks read from the source.
+     * @param readAheadBlocks the number of blocks fetched ahead of a sequential read, or
+     *                        {@code 0} for none.
+     */
+    public CachingRangeReader(RangeReader source, long byteBudget, int blockSize, int readAheadBlocks) {
+        if (blockSize <= 0 || byteBudget < blockSize || readAheadBlocks < 0) {
+            throw new IllegalArgumentException("Block size must be positive, the byte budget must hold at least one block "
+                    + "and the read-ahead must not be negative");
+        }
+        this.source = source;
+        this.byteBudget = byteBudget;
+        this.blockSize = blockSize;
+        this.readAheadBlocks = readAheadBlocks;
+    }
+
+    public int blockSize() {
+        return blockSize;
+    }
+
+    @Override
+    public long size() throws IOException {
+        long known = size;
+        if (known < 0) {
+            known = source.size();
+            size = known;
+        }
+        return known;
+    }
+
+    @Override
+    public long read(long offset, long length, MemorySegment destination) throws IOException {
+        long end = Math.min(offset + length, size());
+        if (offset >= end) {
+            return 0;
+        }
+        long firstBlock = offset / blockSize;
+        long lastBlock = (end - 1) / blockSize;
+        readAheadIfSequential(firstBlock, lastBlock);
+        long done = 0;
+        for (long block = firstBlock; block <= lastBlock; block++) {
+            long blockStart = block * blockSize;
+            long from = Math.max(offset, blockStart);
+            long to = Math.min(end, blockStart + blockSize);
+            long copied = copyFromBlock(block, from - blockStart, destination.asSlice(done, to - from));
+            done += copied;
+            if (copied < to - from) {
+                break;
+            }
+        }
+        bytesServed.add(done);
+        return done;
+    }
+
+    /**
+     * Fetches the blocks covering a byte range in the background. The blocks that are
+     * not already cached are fetched with one {@link RangeReader#readAll} call, so a
+     * source that merges adjacent ranges makes one request for them.
+     *
+     * @return completes when every block of the range has been cached, or completes
+     *         exceptionally if one could not be read. Later reads and prefetches may
+     *         evict the blocks again.
+     * @throws IllegalArgumentException if the blocks covering the range do not fit in
+     *                                  the byte budget, as they could not all be held.
+     */
+    public CompletableFuture<Void> prefetch(long offset, long length) {
+        long size;
+        try {
+            size = size();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long end = Math.min(offset + length, size);
+        if (offset >= end) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long firstBlock = offset / blockSize;
+        long lastBlock = (end - 1) / blockSize;
+        long blockBytes = Math.min((lastBlock + 1) * blockSize, size) - firstBlock * blockSize;
+        if (blockBytes > byteBudget) {
+            throw new IllegalArgumentException("Prefetching " + blockBytes + " bytes of blocks exceeds the budget of " + byteBudget);
+        }
+        List<CompletableFuture<Void>> fetches = fetchAsync(firstBlock, lastBlock, false);
+        return CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new));
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(hits.sum(), misses.sum(), readAheads.sum(), bytesFetched.sum(), bytesServed.sum(), bytesCached, blocks.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every cached block and frees its memory. Counters are not reset.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            for (MemorySegment block : blocks.values()) {
+                LibCziFFM.free(block);
+            }
+            blocks.clear();
+            bytesCached = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        readAheadExecutor.shutdownNow();
+        clear();
+        source.close();
+    }
+
+    // Copies from a block, fetching it on this thread or waiting for another thread's
+    // fetch if it is not cached. Returns less than requested only at the end of the source.
+    private long copyFromBlock(long block, long from, MemorySegment target) throws IOException {
+        boolean counted = false;
+        while (true) {
+            CompletableFuture<Void> pending;
+            boolean owner = false;
+            lock.lock();
+            try {
+                MemorySegment cached = blocks.get(block);
+                if (cached != null) {
+                    if (!counted) {
+                        hits.increment();
+                    }
+                    long count = Math.max(0, Math.min(target.byteSize(), cached.byteSize() - from));
+                    MemorySegment.copy(cached, from, target, 0, count);
+                    return count;
+                }
+                pending = loading.get(block);
+                if (pending == null) {
+                    pending = new CompletableFuture<>();
+                    loading.put(block, pending);
+                    owner = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!counted) {
+                misses.increment();
+                counted = true;
+            }
+            if (owner) {
+                fetch(new long[] { block }, List.of(pending));
+            } else {
+                await(pending);
+            }
+        }
+    }
+
+    // Claims the blocks of [firstBlock, lastBlock] that are neither cached nor being
+    // fetched and fetches them in the background. Returns a future for every block
+    // that is not cached.
+    private List<CompletableFuture<Void>> fetchAsync(long firstBlock, long lastBlock, boolean readAhead) {
+        List<CompletableFuture<Void>> fetches = new ArrayList<>();
+        List<Long> claimed = new ArrayList<>();
+        List<CompletableFuture<Void>> claimedFetches = new ArrayList<>();
+        lock.lock();
+        try {
+            for (long block = firstBlock; block <= lastBlock; block++) {
+                if (blocks.containsKey(block)) {
+                    continue;
+                }
+                CompletableFuture<Void> pending = loading.get(block);
+                if (pending == null) {
+                    pending = new CompletableFuture<>();
+                    loading.put(block, pending);
+                    claimed.add(block);
+                    claimedFetches.add(pending);
+                }
+                fetches.add(pending);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (claimed.isEmpty()) {
+            return fetches;
+        }
+        if (readAhead) {
+            readAheads.add(claimed.size());
+        }
+        long[] claimedBlocks = claimed.stream().mapToLong(Long::longValue).toArray();
+        try {
+            readAheadExecutor.execute(() -> {
+                try {
+                    fetch(claimedBlocks, claimedFetches);
+                } catch (IOException e) {
+                    // Reported through the futures.
+                }
+            });
+        } catch (RuntimeException e) {
+            // Closed: abandon the fetches so that readers do not wait for them.
+            abandon(claimedBlocks, new MemorySegment[claimedBlocks.length], 0, claimedFetches, e);
+        }
+        return fetches;
+    }
+
+    // Reads claimed blocks from the source and caches them, completing their futures.
+    private void fetch(long[] claimed, List<CompletableFuture<Void>> pending) throws IOException {
+        MemorySegment[] memory = new MemorySegment[claimed.length];
+        int installed = 0;
+        try {
+            long size = size();
+            List<Range> ranges = new ArrayList<>(claimed.length);
+            for (int i = 0; i < claimed.length; i++) {
+                long start = claimed[i] * blockSize;
+                long length = Math.min(blockSize, size - start);
+                memory[i] = LibCziFFM.allocate(Math.max(1, length));
+                ranges.add(new Range(start, length, memory[i].asSlice(0, length)));
+            }
+            source.readAll(ranges);
+            for (; installed < claimed.length; installed++) {
+                MemorySegment stored = ranges.get(installed).destination();
+                bytesFetched.add(stored.byteSize());
+                lock.lock();
+                try {
+                    if (closed) {
+                        throw new IOException("The reader has been closed");
+                    }
+                    loading.remove(claimed[installed]);
+                    evictUntilFree(stored.byteSize());
+                    blocks.put(claimed[installed], stored);
+                    bytesCached += stored.byteSize();
+                } finally {
+                    lock.unlock();
+                }
+                pending.get(installed).complete(null);
+            }
+        } catch (IOException | RuntimeException e) {
+            abandon(claimed, memory, installed, pending, e);
+            throw e;
+        }
+    }
+
+    private void abandon(long[] claimed, MemorySegment[] memory, int from, List<CompletableFuture<Void>> pending, Throwable cause) {
+        lock.lock();
+        try {
+            for (int i = from; i < claimed.length; i++) {
+                LibCziFFM.free(memory[i]);
+                loading.remove(claimed[i]);
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (int i = from; i < claimed.length; i++) {
+            pending.get(i).completeExceptionally(cause);
+        }
+    }
+
+    private void evictUntilFree(long required) {
+        Iterator<MemorySegment> eldest = blocks.values().iterator();
+        while (bytesCached + required > byteBudget && eldest.hasNext()) {
+            MemorySegment block = eldest.next();
+            eldest.remove();
+            bytesCached -= block.byteSize();
+            LibCziFFM.free(block);
+        }
+    }
+
+    private void readAheadIfSequential(long firstBlock, long lastBlock) {
+        if (readAheadBlocks == 0) {
+            return;
+        }
+        boolean sequential;
+        lock.lock();
+        try {
+            boolean continues = firstBlock == nextSequentialBlock || firstBlock == nextSequentialBlock - 1;
+            sequentialRun = continues ? sequentialRun + 1 : 0;
+            nextSequentialBlock = lastBlock + 1;
+            sequential = sequentialRun >= SEQUENTIAL_THRESHOLD;
+        } finally {
+            lock.unlock();
+        }
+        if (!sequential) {
+            return;
+        }
+        long blockCount;
+        try {
+            blockCount = (size() + blockSize - 1) / blockSize;
+        } catch (IOException e) {
+            return;
+        }
+        long lastReadAhead = Math.min(lastBlock + readAheadBlocks, blockCount - 1);
+        if (lastReadAhead > lastBlock) {
+            fetchAsync(lastBlock + 1, lastReadAhead, true);
+        }
+    }
+
+    private static void await(CompletableFuture<Void> pending) throws IOException {
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException("Failed to fetch a block", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package uk.ac.ed.eci.libCZI;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+import uk.ac.ed.eci.libCZI.document.DisplaySettings;
+
+/**
+ * Renders several channels of a CZI document into one {@code Bgr24} composite using the
+ * libCZI multi-channel compositor and the document's display settings (tint, black and
+ * white point, and gradation curve).
+ * <p>
+ * The per-channel tiles are fetched concurrently on the given executor and then
+ * composited with a single native call. The composition parameters are worked out once,
+ * when the accessor is created.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class CompositeTileAccessor implements AutoCloseable {
+    private final SingleChannelTileAccessor channelAccessor;
+    private final Executor executor;
+    private final int[] channels;
+    private final Arena classArena;
+    private final MemorySegment channelInfos;
+
+    /**
+     * Creates an accessor that composites the given channels, fetching them on the common
+     * fork-join pool.
+     *
+     * @param displaySettings the display settings of the document, from
+     *                        {@link uk.ac.ed.eci.libCZI.document.DocumentInfo#displaySettings()}.
+     * @param channels the channel indices to composite.
+     */
+    public CompositeTileAccessor(CziStreamReader reader, DisplaySettings displaySettings, int... channels) {
+        this(reader, displaySettings, ForkJoinPool.commonPool(), channels);
+    }
+
+    public CompositeTileAccessor(CziStreamReader reader, DisplaySettings displaySettings, Executor executor, int... channels) {
+        if (channels.length == 0) {
+            throw new IllegalArgumentException("At least one channel is required");
+        }
+        this.channels = channels.clone();
+        this.executor = executor;
+        this.classArena = Arena.ofConfined();
+        this.channelInfos = classArena.allocate(CompositionChannelInfo.layout(), channels.length);
+        fillOutChannelInfos(reader, displaySettings);
+        try {
+            this.channelAccessor = new SingleChannelTileAccessor(reader);
+        } catch (RuntimeException e) {
+            releaseChannelInfos(channels.length);
+            classArena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the composition parameters libCZI derived for the {@code index}th channel
+     *         passed to the constructor.
+     */
+    public CompositionChannelInfo channelInfo(int index) {
+        return CompositionChannelInfo.createFromMemorySegment(channelInfoSlice(index));
+    }
+
+    /**
+     * Gets the composite of all channels for a region of interest.
+     *
+     * @param rawRoi the region in raw sub-block coordinates.
+     * @param zoom the zoom factor, as for {@link SingleChannelTileAccessor#getBitmapRaw(IntRect, float)}.
+     * @return a {@code Bgr24} bitmap, which the caller must release.
+     */
+    public Bitmap getCompositeBitmap(IntRect rawRoi, float zoom) {
+        List<CompletableFuture<Bitmap>> pending = new ArrayList<>(channels.length);
+        for (int channel : channels) {
+            pending.add(CompletableFuture.supplyAsync(() -> channelAccessor.getBitmapRaw(rawRoi, zoom, channel, 0, 0, 0), executor));
+        }
+        List<Bitmap> channelBitmaps = new ArrayList<>(channels.length);
+        try {
+            RuntimeException failure = null;
+            for (CompletableFuture<Bitmap> future : pending) {
+                try {
+                    channelBitmaps.add(future.join());
+                } catch (CompletionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return compose(channelBitmaps);
+        } finally {
+            for (Bitmap bitmap : channelBitmaps) {
+                bitmap.release();
+            }
+        }
+    }
+
+    private Bitmap compose(List<Bitmap> channelBitmaps) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment pSourceBitmaps = arena.allocate(ADDRESS, channelBitmaps.size());
+            for (int i = 0; i < channelBitmaps.size(); i++) {
+                pSourceBitmaps.setAtIndex(ADDRESS, i, channelBitmaps.get(i).handle());
+            }
+            MemorySegment pBitmap = arena.allocate(ADDRESS);
+            int errorCode = (int) LibCziFunctions.COMPOSITOR_DO_MULTI_CHANNEL_COMPOSITION.invokeExact(
+                    channelBitmaps.size(), pSourceBitmaps, channelInfos, pBitmap);
+            if (errorCode != 0) {
+                throw new CziBitmapException("Failed to composite channels. Error code: " + errorCode);
+            }
+            return new Bitmap(pBitmap.get(ADDRESS, 0).asReadOnly());
+        } catch (Throwable e) {
+            if (e instanceof CziBitmapException) {
+                throw (CziBitmapException) e;
+            }
+            throw new RuntimeException("Failed to call native function libCZI_CompositorDoMultiChannelComposition", e);
+        }
+    }
+
+    // Fills out the composition info of every channel. On any failure the infos filled so
+    // far are released and the arena is closed, as the constructor will not complete.
+    private void fillOutChannelInfos(CziStreamReader reader, DisplaySettings displaySettings) {
+        int filled = 0;
+        try {
+            for (; filled < channels.length; filled++) {
+                boolean sixteenBitLookUpTable = hasSixteenBitPixels(reader, channels[filled]);
+                int errorCode = (int) LibCziFunctions.COMPOSITOR_FILL_OUT_COMPOSITION_CHANNEL_INFO_INTEROP.invokeExact(
+                        displaySettings.handle(), channels[filled], sixteenBitLookUpTable, channelInfoSlice(filled));
+                if (errorCode != 0) {
+                    throw new CziReaderException("Failed to get composition info for channel " + channels[filled] + ". Error code: " + errorCode);
+                }
+            }
+        } catch (Throwable e) {
+            try {
+                releaseChannelInfos(filled);
+            } catch (RuntimeException releaseFailure) {
+                e.addSuppressed(releaseFailure);
+            } finally {
+                classArena.close();
+            }
+            if (e instanceof CziReaderException) {
+                throw (CziReaderException) e;
+            }
+            throw new RuntimeException("Failed to call native function libCZI_CompositorFillOutCompositionChannelInfoInterop", e);
+        }
+    }
+
+    // A look-up table must have an entry for every value a pixel of the channel can take,
+    // so 16-bit channels need a 16-bit table. The pixel type is taken from the first
+    // sub-block of the channel.
+    private static boolean hasSixteenBitPixels(CziStreamReader reader, int channel) throws Throwable {
+        int count = reader.simpleReaderStatistics().subBlockCount();
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment pInfo = arena.allocate(SubBlockInfo.layout());
+            for (int i = 0; i < count; i++) {
+                int errorCode = (int) LibCziFunctions.READER_TRY_GET_SUB_BLOCK_INFO_FOR_INDEX.invokeExact(reader.readerHandle(), i, pInfo);
+                if (errorCode != 0) {
+                    throw new CziReaderException("Failed to get info for sub-block " + i + ". Error code: " + errorCode);
+                }
+                SubBlockInfo info = SubBlockInfo.createFromMemorySegment(pInfo);
+                if (!info.coordinate().has(Dimension.C) || info.coordinate().get(Dimension.C) == channel) {
+                    return info.pixelType() == PixelType.Gray16 || info.pixelType() == PixelType.Bgr48;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void releaseChannelInfos(int count) {
+        for (int i = 0; i < count; i++) {
+            try {
+                int errorCode = (int) LibCziFunctions.COMPOSITOR_RELEASE_COMPOSITION_CHANNEL_INFO_INTEROP.invokeExact(channelInfoSlice(i));
+                if (errorCode != 0) {
+                    throw new CziReaderException("Failed to release composition info. Error code: " + errorCode);
+                }
+            } catch (Throwable e) {
+                if (e instanceof CziReaderException) {
+                    throw (CziReaderException) e;
+                }
+                throw new RuntimeException("Failed to call native function libCZI_CompositorReleaseCompositionChannelInfoInterop", e);
+            }
+        }
+    }
+
+    private MemorySegment channelInfoSlice(int index) {
+        long size = CompositionChannelInfo.layout().byteSize();
+        return channelInfos.asSlice(index * size, size);
+    }
+
+    @Override
+    public void close() throws Exception {
+        channelAccessor.close();
+        releaseChannelInfos(channels.length);
+        classArena.close();
+    }
+}
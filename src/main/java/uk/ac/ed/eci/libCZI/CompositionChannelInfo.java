@@ -0,0 +1,73 @@
+package uk.ac.ed.eci.libCZI;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_FLOAT;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+
+/**
+ * How one channel contributes to a multi-channel composite.
+ * This record corresponds to the `CompositionChannelInfoInterop` structure in the libCZI C API.
+ * libCZI fills it out from a channel's display settings; a gamma or spline gradation
+ * curve is expressed as a look-up table, in which case the black and white points are
+ * ignored by the compositor. The table itself stays in native memory and is not part
+ * of this record.
+ * <p>
+ * The structure is packed to four bytes, so the table pointer follows the element count
+ * directly and the structure is 28 bytes long on 64-bit platforms.
+ * </p>
+ *
+ * @param weight The weight of the channel in the composite.
+ * @param enableTinting Whether the channel is tinted with the tinting colour.
+ * @param tintingColorR The red component of the tinting colour, from 0 to 255.
+ * @param tintingColorG The green component of the tinting colour, from 0 to 255.
+ * @param tintingColorB The blue component of the tinting colour, from 0 to 255.
+ * @param blackPoint The black point, between 0 and 1.
+ * @param whitePoint The white point, between 0 and 1.
+ * @param lookUpTableElementCount The number of entries in the look-up table, 0 if there is none.
+ * @author Paul Mitchell
+ */
+public record CompositionChannelInfo(
+        float weight,
+        boolean enableTinting,
+        int tintingColorR,
+        int tintingColorG,
+        int tintingColorB,
+        float blackPoint,
+        float whitePoint,
+        int lookUpTableElementCount) {
+
+    private static final MemoryLayout LAYOUT = MemoryLayout.structLayout(
+            JAVA_FLOAT.withName("weight"),
+            JAVA_BYTE.withName("enableTinting"),
+            JAVA_BYTE.withName("tintingColorR"),
+            JAVA_BYTE.withName("tintingColorG"),
+            JAVA_BYTE.withName("tintingColorB"),
+            JAVA_FLOAT.withName("blackPoint"),
+            JAVA_FLOAT.withName("whitePoint"),
+            JAVA_INT.withName("lookUpTableElementCount"),
+            ADDRESS.withName("ptrLookUpTable").withByteAlignment(4));
+
+    public static MemoryLayout layout() {
+        return LAYOUT;
+    }
+
+    public static CompositionChannelInfo createFromMemorySegment(MemorySegment segment) {
+        return new CompositionChannelInfo(
+                segment.get(JAVA_FLOAT, offset("weight")),
+                segment.get(JAVA_BYTE, offset("enableTinting")) != 0,
+                Byte.toUnsignedInt(segment.get(JAVA_BYTE, offset("tintingColorR"))),
+                Byte.toUnsignedInt(segment.get(JAVA_BYTE, offset("tintingColorG"))),
+                Byte.toUnsignedInt(segment.get(JAVA_BYTE, offset("tintingColorB"))),
+                segment.get(JAVA_FLOAT, offset("blackPoint")),
+                segment.get(JAVA_FLOAT, offset("whitePoint")),
+                segment.get(JAVA_INT, offset("lookUpTableElementCount")));
+    }
+
+    private static long offset(String name) {
+        return LAYOUT.byteOffset(MemoryLayout.PathElement.groupElement(name));
+    }
+}
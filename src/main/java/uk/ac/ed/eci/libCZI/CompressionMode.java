@@ -0,0 +1,39 @@
+package uk.ac.ed.eci.libCZI;
+
+/**
+ * The compression schemes a sub-block can be stored with.
+ * This enum corresponds to the `CompressionMode` enum in libCZI.
+ *
+ * @see <a href="https://zeiss.github.io/libczi/lib/namespacelib_c_z_i.html">CompressionMode</a>
+ * @author Paul Mitchell
+ */
+public enum CompressionMode {
+    Invalid(-1),
+    UnCompressed(0),
+    Jpg(1),
+    JpgXr(4),
+    Zstd0(5),
+    Zstd1(6);
+
+    private final int value;
+
+    CompressionMode(int value) {
+        this.value = value;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * @return the mode for a raw value, or {@link #Invalid} if libCZI does not know it.
+     */
+    public static CompressionMode fromRawValue(int value) {
+        for (CompressionMode mode : CompressionMode.values()) {
+            if (mode.value == value) {
+                return mode;
+            }
+        }
+        return Invalid;
+    }
+}
@@ -5,6 +5,9 @@ import static java.lang.foreign.ValueLayout.JAVA_INT;
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
 /**
  * This structure gives the coordinates (of a sub-block) for 
  * a set of dimension. The bit at position i in dimensions_valid 
@@ -19,6 +22,9 @@ import java.lang.foreign.MemorySegment;
  * This would mean that the dimension ‘Z’ is valid, 
  * and the coordinate for ‘Z’ is 0, and the dimension ‘C’ is valid, 
  * and the coordinate for ‘C’ is 2.
+ * <p>
+ * Coordinates for any combination of dimensions are made with {@link #builder()}.
+ * </p>
  * 
  * @author Paul Mitchell
  */
@@ -55,6 +61,12 @@ public class Coordinate {
         return MemoryLayout.structLayout(JAVA_INT, MemoryLayout.sequenceLayout(LibCziFFM.K_MAX_DIMENSION_COUNT, JAVA_INT));
     }
 
+    public static Coordinate createFromMemorySegment(MemorySegment segment) {
+        int dimensionsValid = segment.get(JAVA_INT, 0);
+        int[] value = segment.asSlice(4, (long) LibCziFFM.K_MAX_DIMENSION_COUNT * 4).toArray(JAVA_INT);
+        return new Coordinate(dimensionsValid, value);
+    }
+
     public static Coordinate createC0(int channel) {
         int[] value = new int[LibCziFFM.K_MAX_DIMENSION_COUNT];
         for (int i = 0; i < LibCziFFM.K_MAX_DIMENSION_COUNT; i++) {
@@ -64,12 +76,155 @@ public class Coordinate {
         return new Coordinate(2, value);
     }
 
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return a builder starting from the dimensions of this coordinate.
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        for (Dimension dimension : Dimension.values()) {
+            if (has(dimension)) {
+                builder.set(dimension, get(dimension));
+            }
+        }
+        return builder;
+    }
+
+    public boolean has(Dimension dimension) {
+        return (dimensionsValid & dimension.bit()) != 0;
+    }
+
+    /**
+     * @throws IllegalArgumentException if this coordinate does not include {@code dimension}.
+     */
+    public int get(Dimension dimension) {
+        if (!has(dimension)) {
+            throw new IllegalArgumentException("Coordinate has no " + dimension + " dimension");
+        }
+        return value[dimension.packedIndex(dimensionsValid)];
+    }
+
+    /**
+     * @return a copy of this coordinate with {@code dimension} set to {@code index}.
+     */
+    public Coordinate with(Dimension dimension, int index) {
+        return toBuilder().set(dimension, index).build();
+    }
+
+    /**
+     * Builds a {@link Coordinate} from any combination of dimensions. Dimensions that
+     * are not set are left out of the coordinate, and so are not constrained.
+     */
+    public static class Builder {
+        private final Map<Dimension, Integer> values = new EnumMap<>(Dimension.class);
+
+        private Builder() {
+        }
+
+        public Builder set(Dimension dimension, int index) {
+            values.put(dimension, index);
+            return this;
+        }
+
+        public Builder clear(Dimension dimension) {
+            values.remove(dimension);
+            return this;
+        }
+
+        public Builder z(int index) {
+            return set(Dimension.Z, index);
+        }
+
+        public Builder c(int index) {
+            return set(Dimension.C, index);
+        }
+
+        public Builder t(int index) {
+            return set(Dimension.T, index);
+        }
+
+        public Builder r(int index) {
+            return set(Dimension.R, index);
+        }
+
+        public Builder s(int index) {
+            return set(Dimension.S, index);
+        }
+
+        public Builder i(int index) {
+            return set(Dimension.I, index);
+        }
+
+        public Builder h(int index) {
+            return set(Dimension.H, index);
+        }
+
+        public Builder v(int index) {
+            return set(Dimension.V, index);
+        }
+
+        public Builder b(int index) {
+            return set(Dimension.B, index);
+        }
+
+        public Coordinate build() {
+            int dimensionsValid = 0;
+            int[] value = new int[LibCziFFM.K_MAX_DIMENSION_COUNT];
+            int next = 0;
+            // EnumMap iterates in declaration order, which is libCZI's dimension order.
+            for (Map.Entry<Dimension, Integer> entry : values.entrySet()) {
+                dimensionsValid |= entry.getKey().bit();
+                value[next++] = entry.getValue();
+            }
+            return new Coordinate(dimensionsValid, value);
+        }
+    }
+
     public MemorySegment toMemorySegment(Arena arena) {
         MemorySegment segment = arena.allocate(layout());
+        copyTo(segment);
+        return segment;
+    }
+
+    /**
+     * Writes this coordinate into an existing segment laid out as {@link #layout()}.
+     *
+     * @param segment The destination, at least {@code layout().byteSize()} bytes long.
+     */
+    public void copyTo(MemorySegment segment) {
         segment.set(JAVA_INT, 0, dimensionsValid);
         for (int i = 0; i < LibCziFFM.K_MAX_DIMENSION_COUNT; i++) {
             segment.set(JAVA_INT, 4 + i * 4, value[i]);
         }
-        return segment;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Coordinate other)) {
+            return false;
+        }
+        return dimensionsValid == other.dimensionsValid && Arrays.equals(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * dimensionsValid + Arrays.hashCode(value);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Dimension dimension : Dimension.values()) {
+            if (has(dimension)) {
+                builder.append(dimension).append(get(dimension));
+            }
+        }
+        return builder.toString();
     }
 }
@@ -0,0 +1,116 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the sub-block directory segment of a CZI file directly, for the information
+ * libCZI's C API does not expose, in particular where each sub-block segment starts.
+ * <p>
+ * The layout follows the ZISRAW file format: a {@code ZISRAWFILE} segment at offset 0
+ * whose header gives the position of the {@code ZISRAWDIRECTORY} segment, which holds one
+ * {@code DV} entry per sub-block, in the same order as libCZI's sub-block indices. All
+ * values are little-endian.
+ * </p>
+ */
+final class CziFileDirectory {
+    static final int SEGMENT_HEADER_SIZE = 32;
+    private static final int SEGMENT_ID_SIZE = 16;
+    private static final int ALLOCATED_SIZE_OFFSET = 16;
+    private static final int USED_SIZE_OFFSET = 24;
+    private static final int DIRECTORY_POSITION_OFFSET = SEGMENT_HEADER_SIZE + 52;
+    private static final int DIRECTORY_HEADER_SIZE = 128;
+    private static final int ENTRY_FIXED_SIZE = 32;
+    private static final int DIMENSION_ENTRY_SIZE = 20;
+
+    /**
+     * Where each sub-block segment starts, and the X/Y placement recorded for it.
+     */
+    record Entries(long[] filePositions, int[] x, int[] y, int[] w, int[] h) {
+        int size() {
+            return filePositions.length;
+        }
+    }
+
+    private CziFileDirectory() {
+    }
+
+    static Entries read(SeekableByteChannel channel) throws IOException {
+        ByteBuffer fileHeader = readAt(channel, 0, DIRECTORY_POSITION_OFFSET + Long.BYTES);
+        checkSegmentId(fileHeader, "ZISRAWFILE");
+        long directoryPosition = fileHeader.getLong(DIRECTORY_POSITION_OFFSET);
+        if (directoryPosition <= 0) {
+            throw new IOException("File has no sub-block directory");
+        }
+
+        ByteBuffer directoryHeader = readAt(channel, directoryPosition, SEGMENT_HEADER_SIZE + DIRECTORY_HEADER_SIZE);
+        checkSegmentId(directoryHeader, "ZISRAWDIRECTORY");
+        int entryCount = directoryHeader.getInt(SEGMENT_HEADER_SIZE);
+        ByteBuffer entries = readAt(channel, directoryPosition + SEGMENT_HEADER_SIZE + DIRECTORY_HEADER_SIZE,
+                Math.toIntExact(segmentLength(directoryHeader) - SEGMENT_HEADER_SIZE - DIRECTORY_HEADER_SIZE));
+
+        long[] filePositions = new long[entryCount];
+        int[] x = new int[entryCount];
+        int[] y = new int[entryCount];
+        int[] w = new int[entryCount];
+        int[] h = new int[entryCount];
+        int offset = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (entries.get(offset) != 'D' || entries.get(offset + 1) != 'V') {
+                throw new IOException("Unsupported directory entry schema at entry " + i);
+            }
+            filePositions[i] = entries.getLong(offset + 6);
+            int dimensionCount = entries.getInt(offset + 28);
+            for (int d = 0; d < dimensionCount; d++) {
+                int dimension = offset + ENTRY_FIXED_SIZE + d * DIMENSION_ENTRY_SIZE;
+                byte name = entries.get(dimension);
+                if (name == 'X') {
+                    x[i] = entries.getInt(dimension + 4);
+                    w[i] = entries.getInt(dimension + 8);
+                } else if (name == 'Y') {
+                    y[i] = entries.getInt(dimension + 4);
+                    h[i] = entries.getInt(dimension + 8);
+                }
+            }
+            offset += ENTRY_FIXED_SIZE + dimensionCount * DIMENSION_ENTRY_SIZE;
+        }
+        return new Entries(filePositions, x, y, w, h);
+    }
+
+    /**
+     * The length of a segment, header included, from the {@link #SEGMENT_HEADER_SIZE}
+     * bytes at the start of {@code header}, which must be little-endian.
+     */
+    static long segmentLength(ByteBuffer header) {
+        long usedSize = header.getLong(USED_SIZE_OFFSET);
+        if (usedSize <= 0) {
+            // Older writers leave the used size at zero, meaning the whole allocation.
+            usedSize = header.getLong(ALLOCATED_SIZE_OFFSET);
+        }
+        return SEGMENT_HEADER_SIZE + usedSize;
+    }
+
+    private static void checkSegmentId(ByteBuffer segment, String expected) throws IOException {
+        byte[] id = new byte[SEGMENT_ID_SIZE];
+        segment.get(0, id);
+        String actual = new String(id, StandardCharsets.US_ASCII).trim().replace("\0", "");
+        if (!actual.equals(expected)) {
+            throw new IOException("Expected a " + expected + " segment but found '" + actual + "'");
+        }
+    }
+
+    private static ByteBuffer readAt(SeekableByteChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        channel.position(position);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of file at " + channel.position());
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -19,11 +19,9 @@
  */
 package uk.ac.ed.eci.libCZI;
 
-import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
-import java.lang.invoke.MethodHandle;
 
 import uk.ac.ed.eci.libCZI.metadata.Metadata;
 
@@ -42,12 +40,9 @@ public class CziStreamReader implements AutoCloseable {
     }
 
     public SubBlockStatistics simpleReaderStatistics() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-
-        MethodHandle getStats = LibCziFFM.getMethodHandle("libCZI_ReaderGetStatisticsSimple", descriptor);
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment simpleStatsStruct = arena.allocate(SubBlockStatistics.layout());
-            int errorCode = (int) getStats.invokeExact(readerHandle, simpleStatsStruct);
+            int errorCode = (int) LibCziFunctions.READER_GET_STATISTICS_SIMPLE.invokeExact(readerHandle, simpleStatsStruct);
             if (errorCode != 0) {
                 throw new CziReaderException("Failed to get simple reader statistics. Error code: " + errorCode);
             }
@@ -61,11 +56,10 @@ public class CziStreamReader implements AutoCloseable {
     }
 
     public int attachmentCount() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        MethodHandle getAttachmentCount = LibCziFFM.getMethodHandle("libCZI_ReaderGetAttachmentCount", descriptor);
-        try (Arena arena = Arena.ofConfined()) {
-            MemorySegment pCount = arena.allocate(JAVA_INT);
-            int errorCode = (int) getAttachmentCount.invokeExact(readerHandle, pCount);
+        try {
+            // Critical with heap access, so the count can be written straight into a Java array.
+            MemorySegment pCount = MemorySegment.ofArray(new int[1]);
+            int errorCode = (int) LibCziFunctions.READER_GET_ATTACHMENT_COUNT.invokeExact(readerHandle, pCount);
             if (errorCode != 0) {
                 throw new CziReaderException("Failed to get attachment count. Error code: " + errorCode);
             }
@@ -76,11 +70,9 @@ public class CziStreamReader implements AutoCloseable {
     }
 
     public ScenePyramidStatistics pyramidStatistics() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        MethodHandle getPyramidStatistics = LibCziFFM.getMethodHandle("libCZI_ReaderGetPyramidStatistics", descriptor);
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment pSegment = arena.allocate(ValueLayout.ADDRESS);
-            int errorCode = (int) getPyramidStatistics.invokeExact(readerHandle, pSegment);
+            int errorCode = (int) LibCziFunctions.READER_GET_PYRAMID_STATISTICS.invokeExact(readerHandle, pSegment);
             if (errorCode != 0) {
                 throw new CziReaderException("Failed to get pyramid statistics. Error code: " + errorCode);
             }
@@ -145,12 +137,10 @@ public class CziStreamReader implements AutoCloseable {
         MemoryLayout readerOpenInfoLayout = MemoryLayout.structLayout(
                 ADDRESS.withName("stream_object"));
 
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        MethodHandle openReader = LibCziFFM.getMethodHandle("libCZI_ReaderOpen", descriptor);
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment openInfoStruct = arena.allocate(readerOpenInfoLayout);
             openInfoStruct.set(ADDRESS, 0, inputStream.stream());
-            int errorCode = (int) openReader.invokeExact(readerHandle, openInfoStruct);
+            int errorCode = (int) LibCziFunctions.READER_OPEN.invokeExact(readerHandle, openInfoStruct);
             if (errorCode != 0) {
                 throw new CziReaderException("Failed to open CZI stream with reader. Error code: " + errorCode);
             }
@@ -163,11 +153,9 @@ public class CziStreamReader implements AutoCloseable {
     }
 
     private MemorySegment createReader() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS);
-        MethodHandle createReader = LibCziFFM.getMethodHandle("libCZI_CreateReader", descriptor);
         try  {
             MemorySegment pReader = classArena.allocate(ADDRESS);
-            int errorCode = (int) createReader.invokeExact(pReader);
+            int errorCode = (int) LibCziFunctions.CREATE_READER.invokeExact(pReader);
             if (errorCode != 0) {
                 throw new CziReaderException("Failed to create CZI reader. Error code: " + errorCode);
             } else {
@@ -180,12 +168,9 @@ public class CziStreamReader implements AutoCloseable {
     }
 
     private AttachmentInfo getAttachmentInfo(int index) {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS);
-        MethodHandle getAttachmentInfo = LibCziFFM.getMethodHandle("libCZI_ReaderGetAttachmentInfoFromDirectory",
-                descriptor);
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment attachmentInfoStruct = arena.allocate(AttachmentInfo.layout());
-            int errorCode = (int) getAttachmentInfo.invokeExact(readerHandle, index, attachmentInfoStruct);
+            int errorCode = (int) LibCziFunctions.READER_GET_ATTACHMENT_INFO_FROM_DIRECTORY.invokeExact(readerHandle, index, attachmentInfoStruct);
             if (errorCode != 0) {
                 throw new CziReaderException("Failed to get attachment info. Error code: " + errorCode);
             }
@@ -196,10 +181,8 @@ public class CziStreamReader implements AutoCloseable {
     }
 
     private void releaseReader() {
-        FunctionDescriptor descriptor = FunctionDescriptor.ofVoid(ADDRESS);
-        MethodHandle release = LibCziFFM.getMethodHandle("libCZI_ReleaseReader", descriptor);
         try {
-            release.invokeExact(readerHandle);
+            LibCziFunctions.RELEASE_READER.invokeExact(readerHandle);
         } catch (Throwable e) {
             throw new RuntimeException("Failed to call native function libCZI_ReleaseReader", e);
         } finally {
@@ -12,9 +12,9 @@ import static java.lang.foreign.ValueLayout.*;
  * It provides information about the valid dimensions, and the start and size
  * for each dimension.
  *
- * @param dimensionsValid The number of valid dimensions.
- * @param start An array containing the start index for each dimension.
- * @param size An array containing the size for each dimension.
+ * @param dimensionsValid A bit mask of the valid dimensions, as for {@link Coordinate#dimensionsValid()}.
+ * @param start An array containing the start index for each valid dimension, in dimension order.
+ * @param size An array containing the size for each valid dimension, in dimension order.
  * @see <a href="https://zeiss.github.io/libczi/api/struct_dim_bounds_interop.html">DimBoundsInterop</a>
  * @author Paul Mitchell
  */
@@ -36,4 +36,29 @@ public record DimBounds(int dimensionsValid, int[] start, int[] size) {
 
             return new DimBounds(dimensionsValid, start, size);        
     }
+
+    public boolean has(Dimension dimension) {
+        return (dimensionsValid & dimension.bit()) != 0;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bounds do not include {@code dimension}.
+     */
+    public int start(Dimension dimension) {
+        return start[packedIndex(dimension)];
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bounds do not include {@code dimension}.
+     */
+    public int size(Dimension dimension) {
+        return size[packedIndex(dimension)];
+    }
+
+    private int packedIndex(Dimension dimension) {
+        if (!has(dimension)) {
+            throw new IllegalArgumentException("Bounds have no " + dimension + " dimension");
+        }
+        return dimension.packedIndex(dimensionsValid);
+    }
 }
@@ -0,0 +1,49 @@
+package uk.ac.ed.eci.libCZI;
+
+/**
+ * The dimensions a plane or sub-block coordinate can have, numbered as libCZI's
+ * {@code DimensionIndex}. The mosaic index M is not a plane dimension; the accessors
+ * compose all M tiles of a plane.
+ *
+ * @see Coordinate
+ * @author Paul Mitchell
+ */
+public enum Dimension {
+    Z(1),
+    C(2),
+    T(3),
+    R(4),
+    S(5),
+    I(6),
+    H(7),
+    V(8),
+    B(9);
+
+    private final int index;
+
+    Dimension(int index) {
+        this.index = index;
+    }
+
+    /**
+     * @return libCZI's index for this dimension, from {@code 1} for Z to {@code 9} for B.
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * @return the bit for this dimension in a {@code dimensions_valid} mask.
+     */
+    public int bit() {
+        return 1 << (index - 1);
+    }
+
+    /**
+     * @return the position of this dimension's value in the packed array of a
+     *         coordinate or bounds with the given {@code dimensions_valid} mask.
+     */
+    int packedIndex(int dimensionsValid) {
+        return Integer.bitCount(dimensionsValid & (bit() - 1));
+    }
+}
@@ -0,0 +1,48 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a {@link FileChannel} with {@link FileChannel#read(ByteBuffer, long)}, the
+ * equivalent of {@code pread}, so concurrent reads share no position.
+ */
+class FileChannelRangeReader implements RangeReader {
+    // ByteBuffers are int indexed, so large reads are done in chunks.
+    static final int MAX_CHUNK = 1 << 30;
+
+    private final FileChannel channel;
+
+    FileChannelRangeReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public long read(long offset, long length, MemorySegment destination) throws IOException {
+        long total = 0;
+        while (total < length) {
+            int chunk = (int) Math.min(length - total, MAX_CHUNK);
+            ByteBuffer buffer = destination.asSlice(total, chunk).asByteBuffer();
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, offset + total + buffer.position());
+                if (read < 0) {
+                    return total + buffer.position();
+                }
+            }
+            total += chunk;
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
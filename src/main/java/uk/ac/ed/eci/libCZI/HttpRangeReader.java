@@ -0,0 +1,306 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.foreign.MemorySegment;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a file from an HTTP server, or an S3-compatible object store, with HTTP range
+ * requests.
+ * <p>
+ * All requests go through one {@link HttpClient}, which keeps connections open and
+ * reuses them. Reads larger than the split size are split into sub-ranges that are
+ * requested in parallel, with at most a fixed number of requests in flight.
+ * {@link #readAll} also merges ranges that are adjacent, or separated by no more than
+ * the coalescing gap, into a single request.
+ * </p>
+ * <p>
+ * Authentication, such as pre-signed URLs, is left to the URI and the client. Wrap
+ * the reader in a {@link CachingRangeReader} before handing it to
+ * {@link CZIInputStream#createInputStreamFromRangeReader(RangeReader)}, so that
+ * libCZI's many small reads do not each become a request.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class HttpRangeReader implements RangeReader {
+    public static final long DEFAULT_SPLIT_SIZE = 8L * 1024 * 1024;
+    public static final long DEFAULT_COALESCE_GAP = 64 * 1024;
+    public static final int DEFAULT_MAX_PARALLEL_REQUESTS = 8;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    // "bytes first-last/complete-length", or "bytes */complete-length" when unsatisfiable.
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(?:(\\d+)-(\\d+)|\\*)/(\\d+|\\*)");
+
+    private final HttpClient client;
+    private final boolean ownsClient;
+    private final URI uri;
+    private final long splitSize;
+    private final long coalesceGap;
+    private final Semaphore requestPermits;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder bytesRequested = new LongAdder();
+    private volatile long size = -1;
+
+    // A contiguous range of the file fetched for one or more reads.
+    private record Span(long offset, long end, List<Range> reads) {
+    }
+
+    // One request for part of a span.
+    private record Part(Span span, long offset, long end, CompletableFuture<HttpResponse<byte[]>> response) {
+    }
+
+    public HttpRangeReader(URI uri) {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build(), true, uri, DEFAULT_SPLIT_SIZE, DEFAULT_COALESCE_GAP, DEFAULT_MAX_PARALLEL_REQUESTS);
+    }
+
+    /**
+     * @param client the client to send requests with, which is not closed with the reader.
+     * @param splitSize the largest range fetched by one request.
+     * @param coalesceGap the largest gap between two ranges given to {@link #readAll} for
+     *                    them to be fetched by one request.
+     * @param maxParallelRequests the most requests in flight at once.
+     */
+    public HttpRangeReader(HttpClient client, URI uri, long splitSize, long coalesceGap, int maxParallelRequests) {
+        this(client, false, uri, splitSize, coalesceGap, maxParallelRequests);
+    }
+
+    private HttpRangeReader(HttpClient client, boolean ownsClient, URI uri, long splitSize, long coalesceGap, int maxParallelRequests) {
+        if (splitSize <= 0 || splitSize > Integer.MAX_VALUE - 8 || coalesceGap < 0 || maxParallelRequests <= 0) {
+            throw new IllegalArgumentException("Split size must be positive and fit in an array, the coalescing gap must not "
+                    + "be negative and at least one request must be allowed");
+        }
+        this.client = client;
+        this.ownsClient = ownsClient;
+        this.uri = uri;
+        this.splitSize = splitSize;
+        this.coalesceGap = coalesceGap;
+        this.requestPermits = new Semaphore(maxParallelRequests);
+    }
+
+    /**
+     * @return the number of range requests sent so far, not counting the request for the size.
+     */
+    public long requestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * @return the number of bytes requested so far, including the gaps between merged ranges.
+     */
+    public long bytesRequested() {
+        return bytesRequested.sum();
+    }
+
+    /**
+     * Gets the size of the file with a GET for its first byte, rather than a HEAD, as an S3
+     * URL pre-signed for GET rejects HEAD requests.
+     */
+    @Override
+    public long size() throws IOException {
+        long known = size;
+        if (known < 0) {
+            HttpRequest request = HttpRequest.newBuilder(uri).header("Range", "bytes=0-0").GET().build();
+            HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                known = switch (response.statusCode()) {
+                    case 206, 416 -> {
+                        // Reading the byte or two of body lets the connection be reused.
+                        body.readAllBytes();
+                        yield contentRange(response)[2];
+                    }
+                    // The server ignored the range. Closing the body unread stops it sending the whole file.
+                    case 200 -> response.headers().firstValueAsLong("Content-Length")
+                            .orElseThrow(() -> new IOException("GET " + uri + " returned no Content-Length"));
+                    default -> throw new IOException("GET " + uri + " returned status " + response.statusCode());
+                };
+            }
+            if (known < 0) {
+                throw new IOException("GET " + uri + " did not give the size of the file");
+            }
+            size = known;
+        }
+        return known;
+    }
+
+    @Override
+    public long read(long offset, long length, MemorySegment destination) throws IOException {
+        long end = Math.min(offset + length, size());
+        if (offset >= end) {
+            return 0;
+        }
+        fetch(List.of(new Span(offset, end, List.of(new Range(offset, end - offset, destination)))));
+        return end - offset;
+    }
+
+    @Override
+    public void readAll(List<Range> ranges) throws IOException {
+        long size = size();
+        List<Range> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(Range::offset));
+        List<Span> spans = new ArrayList<>();
+        long spanOffset = 0;
+        long spanEnd = -1;
+        List<Range> spanReads = null;
+        for (Range range : sorted) {
+            if (range.offset() < 0 || range.end() > size) {
+                throw new EOFException("Range at " + range.offset() + " extends past the end of " + uri);
+            }
+            if (range.length() == 0) {
+                continue;
+            }
+            if (spanReads != null && range.offset() <= spanEnd + coalesceGap) {
+                spanEnd = Math.max(spanEnd, range.end());
+                spanReads.add(range);
+                continue;
+            }
+            if (spanReads != null) {
+                spans.add(new Span(spanOffset, spanEnd, spanReads));
+            }
+            spanOffset = range.offset();
+            spanEnd = range.end();
+            spanReads = new ArrayList<>();
+            spanReads.add(range);
+        }
+        if (spanReads != null) {
+            spans.add(new Span(spanOffset, spanEnd, spanReads));
+        }
+        fetch(spans);
+    }
+
+    @Override
+    public void close() {
+        if (ownsClient) {
+            client.close();
+        }
+    }
+
+    // Requests every span, split into parts of at most splitSize, and copies each part
+    // into the reads it overlaps. The copies are made on the calling thread, as the
+    // destinations may be confined to it.
+    private void fetch(List<Span> spans) throws IOException {
+        List<Part> parts = new ArrayList<>();
+        IOException failure = null;
+        try {
+            for (Span span : spans) {
+                for (long partOffset = span.offset(); partOffset < span.end(); partOffset += splitSize) {
+                    parts.add(fetchPart(span, partOffset, Math.min(span.end(), partOffset + splitSize)));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new InterruptedIOException("Interrupted while waiting to send a request to " + uri);
+        }
+        // Wait for every request that was sent, even after a failure, so that none is left holding a permit.
+        for (Part part : parts) {
+            try {
+                HttpResponse<byte[]> response = part.response().join();
+                if (failure == null) {
+                    scatter(part.span(), part.offset(), part.end(), response);
+                }
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException cause ? cause : new IOException("Range request to " + uri + " failed", e.getCause());
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private Part fetchPart(Span span, long partOffset, long partEnd) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Range", "bytes=" + partOffset + "-" + (partEnd - 1))
+                .GET()
+                .build();
+        requestPermits.acquire();
+        requests.increment();
+        bytesRequested.add(partEnd - partOffset);
+        CompletableFuture<HttpResponse<byte[]>> response;
+        try {
+            response = client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (RuntimeException e) {
+            requestPermits.release();
+            throw e;
+        }
+        return new Part(span, partOffset, partEnd, response.whenComplete((r, e) -> requestPermits.release()));
+    }
+
+    private void scatter(Span span, long partOffset, long partEnd, HttpResponse<byte[]> response) throws IOException {
+        byte[] body = response.body();
+        long bodyOffset;
+        if (response.statusCode() == 206) {
+            bodyOffset = contentRange(response)[0];
+            if (bodyOffset != partOffset) {
+                throw new IOException("Range request for bytes " + partOffset + "-" + (partEnd - 1) + " of " + uri
+                        + " returned bytes from " + bodyOffset);
+            }
+        } else if (response.statusCode() == 200 && partOffset == 0 && partEnd == size) {
+            // The server ignored the range and sent the whole file, which is what was asked for.
+            bodyOffset = 0;
+        } else {
+            throw new IOException("Range request for bytes " + partOffset + "-" + (partEnd - 1)
+                    + " of " + uri + " returned status " + response.statusCode());
+        }
+        if (bodyOffset + body.length < partEnd) {
+            throw new IOException("Range request for bytes " + partOffset + "-" + (partEnd - 1)
+                    + " of " + uri + " returned only " + body.length + " bytes");
+        }
+        MemorySegment source = MemorySegment.ofArray(body);
+        for (Range read : span.reads()) {
+            long from = Math.max(read.offset(), partOffset);
+            long to = Math.min(read.end(), partEnd);
+            if (from < to) {
+                MemorySegment.copy(source, from - bodyOffset, read.destination(), from - read.offset(), to - from);
+            }
+        }
+    }
+
+    // Parses the Content-Range header into {first, last, complete length}, with -1 for
+    // any part that is not given.
+    private long[] contentRange(HttpResponse<?> response) throws IOException {
+        String header = response.headers().firstValue("Content-Range")
+                .orElseThrow(() -> new IOException("Response from " + uri + " has no Content-Range"));
+        Matcher matcher = CONTENT_RANGE.matcher(header.trim());
+        if (!matcher.matches()) {
+            throw new IOException("Response from " + uri + " has a malformed Content-Range: " + header);
+        }
+        return new long[] {
+                matcher.group(1) == null ? -1 : Long.parseLong(matcher.group(1)),
+                matcher.group(2) == null ? -1 : Long.parseLong(matcher.group(2)),
+                matcher.group(3).equals("*") ? -1 : Long.parseLong(matcher.group(3)) };
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return client.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + uri);
+        }
+    }
+}
@@ -9,43 +9,63 @@ import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
-import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 
+/**
+ * Connects libCZI's external input stream callbacks to a {@link RangeReader}.
+ * <p>
+ * Every read carries its own offset and the bridge keeps no position of its own, so
+ * one bridge can serve reads that libCZI issues from several threads at once, at any
+ * offset in files of any size.
+ * </p>
+ */
 public class InputStreamBridge implements AutoCloseable {
-    private final SeekableByteChannel channel;
+    private final RangeReader rangeReader;
     private final Arena externalStreamArena;
 
 
     public InputStreamBridge(SeekableByteChannel channel) {
-        this.channel = channel;
+        this(channel == null ? null : RangeReader.of(channel));
+    }
+
+    public InputStreamBridge(RangeReader rangeReader) {
+        this.rangeReader = rangeReader;
         this.externalStreamArena = Arena.ofConfined();
     }
 
+    /**
+     * For bridges that override {@link #readFunctionImplementation} and
+     * {@link #closeFunctionImplementation} and do not read from a range reader.
+     */
+    protected InputStreamBridge() {
+        this((RangeReader) null);
+    }
+
     public int readFunctionImplementation(long opaque_handle1, long opaque_handle2, long offset, 
                                             MemorySegment pv, long size, MemorySegment ptrBytesRead, 
                                             MemorySegment error_info) {
-        
-        
+        if (offset < 0 || size < 0) {
+            return -1;
+        }
         try {
-            MemorySegment correctlySizedSegment = pv.reinterpret(size);
-            channel.position((int) offset);
-            ByteBuffer bufferToRead = correctlySizedSegment.asByteBuffer().slice(0, (int) size);            
-            int bytesRead = channel.read(bufferToRead);
-            if (bytesRead == -1) {
-                bytesRead = 0;
-            }
-            ptrBytesRead.set(ValueLayout.JAVA_LONG, 0, (long) bytesRead);
+            long bytesRead = rangeReader.read(offset, size, pv.reinterpret(size));
+            ptrBytesRead.set(ValueLayout.JAVA_LONG, 0, bytesRead);
             return 0;
         } catch (IOException e) {
             return -1;
-        } catch (IndexOutOfBoundsException e) {
+        } catch (RuntimeException e) {
+            // An exception must not escape an upcall.
             return -1;
         }
     }
 
-    public void closeFunctionImplementation(long opaque_handle1, long opaque_handle2) throws IOException {
-        channel.close();
+    public void closeFunctionImplementation(long opaque_handle1, long opaque_handle2) {
+        try {
+            rangeReader.close();
+        } catch (Exception e) {
+            // An exception must not escape an upcall, and libCZI has no way to report a
+            // failed close, so there is nothing more to do with it.
+        }
     }
 
     public MemorySegment createExternalInputStreamStruct(long opaque_handle1, long opaque_handle2) {
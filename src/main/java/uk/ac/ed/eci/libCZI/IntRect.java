@@ -37,11 +37,20 @@ public record IntRect(int x, int y, int w, int h) {
     }
     public MemorySegment toMemorySegment(Arena arena) {
         MemorySegment segment = arena.allocate(layout());
+        copyTo(segment);
+        return segment;
+    }
+
+    /**
+     * Writes this rectangle into an existing segment laid out as {@link #layout()}.
+     * This allows a caller to reuse the same native struct for many calls.
+     *
+     * @param segment The destination, at least {@code layout().byteSize()} bytes long.
+     */
+    public void copyTo(MemorySegment segment) {
         segment.set(JAVA_INT, 0, x);
         segment.set(JAVA_INT, 4, y);
         segment.set(JAVA_INT, 8, w);
         segment.set(JAVA_INT, 12, h);
-
-        return segment;
     }
 }
@@ -23,6 +23,8 @@ public class LibCziFFM {
     public static final SymbolLookup SYMBOL_LOOKUP = getSymbolLookup();
     public static final int K_MAX_DIMENSION_COUNT = 9;
     public static final int K_MIN_DIMENSION_COUNT = 1;
+    // Never started; a segment this thread can access is not confined to any thread.
+    private static final Thread ANY_OTHER_THREAD = Thread.ofVirtual().unstarted(() -> { });
 
     private static SymbolLookup getSymbolLookup() {
         String libName = "libCZIAPI";
@@ -34,13 +36,26 @@ public class LibCziFFM {
         }
     }
 
-    public static MethodHandle getMethodHandle(final String methodName, FunctionDescriptor descriptor) {
+    /**
+     * Looks up and links a downcall handle for the named libCZI function.
+     * <p>
+     * This performs a symbol lookup and creates a new downcall stub every time it is
+     * called, so it should not be used on hot paths. Use the pre-linked handles in
+     * {@link LibCziFunctions} instead.
+     * </p>
+     *
+     * @param methodName The name of the exported libCZI function.
+     * @param descriptor The signature of the function.
+     * @param options Linker options, for example {@link Linker.Option#critical(boolean)}.
+     */
+    public static MethodHandle getMethodHandle(final String methodName, FunctionDescriptor descriptor, Linker.Option... options) {
         return Linker
                 .nativeLinker()
                 .downcallHandle(
                         SYMBOL_LOOKUP.find(methodName).orElseThrow(
                                 () -> new UnsatisfiedLinkError("Could not find symbol: " + methodName)),
-                        descriptor);
+                        descriptor,
+                        options);
     }
 
 
@@ -80,11 +95,9 @@ public class LibCziFFM {
     }
 
     public static MemorySegment allocate(long size) {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, JAVA_LONG, ADDRESS);
-        MethodHandle allocate = getMethodHandle("libCZI_AllocateMemory", descriptor);
         MemorySegment pointer = GLOBAL_ARENA.allocate(ADDRESS);
         try {
-            int errorCode = (int) allocate.invokeExact(size, pointer);
+            int errorCode = (int) LibCziFunctions.ALLOCATE_MEMORY.invokeExact(size, pointer);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to allocate memory. Error code: " + errorCode);
             }
@@ -94,25 +107,30 @@ public class LibCziFFM {
         }
     }
 
+    /**
+     * @return whether {@code segment} can only be accessed by one thread, as a segment
+     *         from a confined arena can. Such a segment cannot be handed to work that
+     *         libCZI or a thread pool may run on another thread.
+     */
+    static boolean isConfined(MemorySegment segment) {
+        return !segment.isAccessibleBy(ANY_OTHER_THREAD);
+    }
+
     public static void free(MemorySegment segment) {
         if (segment == null || segment.address() == 0) {
             return;
         }
-        FunctionDescriptor descriptor = FunctionDescriptor.ofVoid(ADDRESS);
-        MethodHandle free = getMethodHandle("libCZI_Free", descriptor);
         try {
-            free.invokeExact(segment);
+            LibCziFunctions.FREE.invokeExact(segment);
         } catch (Throwable e) {
             throw new RuntimeException("Failed to call native function libCZI_Free", e);
         }
     }
 
     public static LibraryVersion getLibraryVersion() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS);
-        MethodHandle getLibraryVersion = getMethodHandle("libCZI_GetLibCZIVersionInfo", descriptor);
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment pVersion = arena.allocate(LibraryVersion.LAYOUT);
-            int errorCode = (int) getLibraryVersion.invokeExact(pVersion);
+            int errorCode = (int) LibCziFunctions.GET_LIBCZI_VERSION_INFO.invokeExact(pVersion);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to get library version. Error code: " + errorCode);
             }
@@ -123,11 +141,9 @@ public class LibCziFFM {
     }
 
     public static BuildInformation getLibraryBuildInformation() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS);
-        MethodHandle getLibraryVersion = getMethodHandle("libCZI_GetLibCZIBuildInformation", descriptor);
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment pBuild = arena.allocate(BuildInformation.LAYOUT);
-            int errorCode = (int) getLibraryVersion.invokeExact(pBuild);
+            int errorCode = (int) LibCziFunctions.GET_LIBCZI_BUILD_INFORMATION.invokeExact(pBuild);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to get library version. Error code: " + errorCode);
             }
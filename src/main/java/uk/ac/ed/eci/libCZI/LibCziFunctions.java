@@ -0,0 +1,178 @@
+package uk.ac.ed.eci.libCZI;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BOOLEAN;
+import static java.lang.foreign.ValueLayout.JAVA_FLOAT;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.invoke.MethodHandle;
+
+/**
+ * Registry of the downcall handles for every libCZI entry point used by the wrapper.
+ * <p>
+ * Each handle is looked up and linked exactly once, when this class is initialised,
+ * and held in a {@code static final} field so that the JIT can treat it as a constant
+ * and inline the call site. Wrapper classes should always call through these handles
+ * rather than {@link LibCziFFM#getMethodHandle(String, FunctionDescriptor, Linker.Option...)}, which
+ * performs a symbol lookup and creates a new downcall stub on every call.
+ * </p>
+ * <p>
+ * Bindings fall into two groups:
+ * </p>
+ * <ul>
+ * <li><b>Critical</b> - short calls that never block, never do I/O and can never call
+ * back into Java (freeing memory, locking, unlocking or querying a bitmap, reading in-memory
+ * counters). These are linked with {@link Linker.Option#critical(boolean)}, which skips
+ * the Java-to-native thread state transition. Where the only pointer arguments are
+ * small input or output structs, heap access is allowed so callers may pass
+ * heap segments (for example {@code MemorySegment.ofArray(new int[3])}) instead of
+ * allocating native memory.</li>
+ * <li><b>Standard</b> - everything else. In particular any call that may read from the
+ * input stream, such as opening a reader, reading attachments, creating an accessor or
+ * getting a tile, must stay on this path because a stream created with
+ * {@link CZIInputStream#createInputStreamFromJavaStream(java.nio.channels.SeekableByteChannel)}
+ * services reads through an upcall into {@link InputStreamBridge}. Releasing a reader is
+ * also standard, as it may invoke the stream's close callback.</li>
+ * </ul>
+ * <p>
+ * Linking happens lazily on first use. Applications that want to pay the cost up front
+ * (for example, a tile server at startup) can call {@link #linkAll()}.
+ * </p>
+ *
+ * @see LibCziFFM
+ * @author Paul Mitchell
+ */
+public final class LibCziFunctions {
+
+    // Memory management
+    public static final MethodHandle ALLOCATE_MEMORY = link("libCZI_AllocateMemory",
+            FunctionDescriptor.of(JAVA_INT, JAVA_LONG, ADDRESS));
+    public static final MethodHandle FREE = linkCritical("libCZI_Free",
+            FunctionDescriptor.ofVoid(ADDRESS), false);
+
+    // Library information
+    public static final MethodHandle GET_LIBCZI_VERSION_INFO = linkCritical("libCZI_GetLibCZIVersionInfo",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS), true);
+    public static final MethodHandle GET_LIBCZI_BUILD_INFORMATION = link("libCZI_GetLibCZIBuildInformation",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS));
+
+    // Input streams
+    public static final MethodHandle CREATE_INPUT_STREAM_FROM_FILE_UTF8 = link("libCZI_CreateInputStreamFromFileUTF8",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle CREATE_INPUT_STREAM_FROM_EXTERNAL = link("libCZI_CreateInputStreamFromExternal",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+
+    // Reader
+    public static final MethodHandle CREATE_READER = link("libCZI_CreateReader",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    public static final MethodHandle READER_OPEN = link("libCZI_ReaderOpen",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle READER_GET_STATISTICS_SIMPLE = link("libCZI_ReaderGetStatisticsSimple",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle READER_GET_PYRAMID_STATISTICS = link("libCZI_ReaderGetPyramidStatistics",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle READER_GET_ATTACHMENT_COUNT = linkCritical("libCZI_ReaderGetAttachmentCount",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS), true);
+    public static final MethodHandle READER_GET_ATTACHMENT_INFO_FROM_DIRECTORY = link("libCZI_ReaderGetAttachmentInfoFromDirectory",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+    public static final MethodHandle READER_READ_ATTACHMENT = link("libCZI_ReaderReadAttachment",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+    public static final MethodHandle READER_GET_METADATA_SEGMENT = link("libCZI_ReaderGetMetadataSegment",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle READER_TRY_GET_SUB_BLOCK_INFO_FOR_INDEX = link("libCZI_ReaderTryGetSubBlockInfoForIndex",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+    public static final MethodHandle READER_READ_SUB_BLOCK = link("libCZI_ReaderReadSubBlock",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+    public static final MethodHandle RELEASE_READER = link("libCZI_ReleaseReader",
+            FunctionDescriptor.ofVoid(ADDRESS));
+
+    // Attachments
+    public static final MethodHandle ATTACHMENT_GET_RAW_DATA = link("libCZI_AttachmentGetRawData",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    public static final MethodHandle RELEASE_ATTACHMENT = link("libCZI_ReleaseAttachment",
+            FunctionDescriptor.ofVoid(ADDRESS));
+
+    // Sub-blocks
+    public static final MethodHandle SUB_BLOCK_GET_INFO = linkCritical("libCZI_SubBlockGetInfo",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS), true);
+    public static final MethodHandle SUB_BLOCK_CREATE_BITMAP = link("libCZI_SubBlockCreateBitmap",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle SUB_BLOCK_GET_RAW_DATA = link("libCZI_SubBlockGetRawData",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle RELEASE_SUB_BLOCK = link("libCZI_ReleaseSubBlock",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS));
+
+    // Metadata and document information
+    public static final MethodHandle RELEASE_METADATA_SEGMENT = link("libCZI_ReleaseMetadataSegment",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    public static final MethodHandle METADATA_SEGMENT_GET_CZI_DOCUMENT_INFO = link("libCZI_MetadataSegmentGetCziDocumentInfo",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle METADATA_SEGMENT_GET_METADATA_AS_XML = link("libCZI_MetadataSegmentGetMetadataAsXml",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle RELEASE_CZI_DOCUMENT_INFO = link("libCZI_ReleaseCziDocumentInfo",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS));
+    public static final MethodHandle CZI_DOCUMENT_INFO_GET_GENERAL_DOCUMENT_INFO = link("libCZI_CziDocumentInfoGetGeneralDocumentInfo",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle CZI_DOCUMENT_INFO_GET_SCALING_INFO = link("libCZI_CziDocumentInfoGetScalingInfo",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle CZI_DOCUMENT_INFO_GET_AVAILABLE_DIMENSION = link("libCZI_CziDocumentInfoGetAvailableDimension",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+    public static final MethodHandle CZI_DOCUMENT_INFO_GET_DISPLAY_SETTINGS = link("libCZI_CziDocumentInfoGetDisplaySettings",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle CZI_DOCUMENT_INFO_GET_DIMENSION_INFO = link("libCZI_CziDocumentInfoGetDimensionInfo",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+    public static final MethodHandle DISPLAY_SETTINGS_GET_CHANNEL_DISPLAY_SETTINGS = link("libCZI_DisplaySettingsGetChannelDisplaySettings",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+
+    // Single channel tile accessor
+    public static final MethodHandle CREATE_SINGLE_CHANNEL_TILE_ACCESSOR = link("libCZI_CreateSingleChannelTileAccessor",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    public static final MethodHandle SINGLE_CHANNEL_TILE_ACCESSOR_CALC_SIZE = linkCritical("libCZI_SingleChannelTileAccessorCalcSize",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_FLOAT, ADDRESS), true);
+    public static final MethodHandle SINGLE_CHANNEL_TILE_ACCESSOR_GET = link("libCZI_SingleChannelTileAccessorGet",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, JAVA_FLOAT, ADDRESS, ADDRESS));
+    public static final MethodHandle RELEASE_SINGLE_CHANNEL_TILE_ACCESSOR = link("libCZI_ReleaseCreateSingleChannelTileAccessor",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS));
+
+    // Multi-channel compositor
+    public static final MethodHandle COMPOSITOR_FILL_OUT_COMPOSITION_CHANNEL_INFO_INTEROP = link("libCZI_CompositorFillOutCompositionChannelInfoInterop",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_BOOLEAN, ADDRESS));
+    public static final MethodHandle COMPOSITOR_DO_MULTI_CHANNEL_COMPOSITION = link("libCZI_CompositorDoMultiChannelComposition",
+            FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+    public static final MethodHandle COMPOSITOR_RELEASE_COMPOSITION_CHANNEL_INFO_INTEROP = link("libCZI_CompositorReleaseCompositionChannelInfoInterop",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS));
+
+    // Bitmaps
+    public static final MethodHandle BITMAP_GET_INFO = linkCritical("libCZI_BitmapGetInfo",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS), true);
+    public static final MethodHandle BITMAP_LOCK = linkCritical("libCZI_BitmapLock",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS), true);
+    public static final MethodHandle BITMAP_UNLOCK = linkCritical("libCZI_BitmapUnlock",
+            FunctionDescriptor.ofVoid(ADDRESS), false);
+    public static final MethodHandle RELEASE_BITMAP = linkCritical("libCZI_ReleaseBitmap",
+            FunctionDescriptor.ofVoid(ADDRESS), false);
+
+    private LibCziFunctions() {
+    }
+
+    /**
+     * Forces every handle in the registry to be linked now rather than on first use.
+     * Calling this more than once is harmless.
+     *
+     * @throws UnsatisfiedLinkError if the native library or any of its symbols cannot be found.
+     */
+    public static void linkAll() {
+        // Initialising the class links all of the handles above.
+    }
+
+    private static MethodHandle link(String methodName, FunctionDescriptor descriptor) {
+        return LibCziFFM.getMethodHandle(methodName, descriptor);
+    }
+
+    private static MethodHandle linkCritical(String methodName, FunctionDescriptor descriptor, boolean allowHeapAccess) {
+        return LibCziFFM.getMethodHandle(methodName, descriptor, Linker.Option.critical(allowHeapAccess));
+    }
+}
@@ -0,0 +1,62 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * A bridge that serves libCZI's reads by copying straight out of a memory segment,
+ * such as a mapped file, with no channel or {@code ByteBuffer} in between.
+ * <p>
+ * Reads past the end of the segment return the bytes that are left, or none. The
+ * segment must be accessible from any thread, as libCZI may read from several.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+class MemorySegmentBridge extends InputStreamBridge {
+    private final MemorySegment data;
+    private final Arena dataArena;
+
+    /**
+     * @param dataArena the arena of {@code data}, closed with the bridge, or {@code null}
+     *                  if the caller keeps ownership of the segment.
+     */
+    MemorySegmentBridge(MemorySegment data, Arena dataArena) {
+        this.data = data;
+        this.dataArena = dataArena;
+    }
+
+    @Override
+    public int readFunctionImplementation(long opaque_handle1, long opaque_handle2, long offset,
+                                            MemorySegment pv, long size, MemorySegment ptrBytesRead,
+                                            MemorySegment error_info) {
+        if (offset < 0 || size < 0) {
+            return -1;
+        }
+        long count = offset >= data.byteSize() ? 0 : Math.min(size, data.byteSize() - offset);
+        try {
+            if (count > 0) {
+                MemorySegment.copy(data, offset, pv.reinterpret(count), 0, count);
+            }
+            ptrBytesRead.set(ValueLayout.JAVA_LONG, 0, count);
+            return 0;
+        } catch (RuntimeException e) {
+            // The segment's arena has been closed, or it is confined to another thread. An
+            // exception must not escape the upcall, as that would crash the JVM.
+            return -1;
+        }
+    }
+
+    @Override
+    public void closeFunctionImplementation(long opaque_handle1, long opaque_handle2) {
+    }
+
+    @Override
+    public void close() throws Exception {
+        super.close();
+        if (dataArena != null) {
+            dataArena.close();
+        }
+    }
+}
@@ -10,29 +10,38 @@ package uk.ac.ed.eci.libCZI;
  * @author Paul Mitchell
  */
 public enum PixelType {
-    Invalid(0xFF),
-    Gray8(0),
-    Gray16(1),
-    Gray32Float(2),
-    Bgr24(3),
-    Bgr48(4),
-    Bgr96Float(8),
-    Bgra32(9), // Currently not supported in libCZI.
-    Gray64ComplexFloat(10), // Currently not supported in libCZI.
-    Bgr192ComplexFloat(11), // Currently not supported in libCZI.
-    Gray32(12), // Currently not supported in libCZI.
-    Gray64Float(13); // Currently not supported in libCZI.
+    Invalid(0xFF, 0),
+    Gray8(0, 1),
+    Gray16(1, 2),
+    Gray32Float(2, 4),
+    Bgr24(3, 3),
+    Bgr48(4, 6),
+    Bgr96Float(8, 12),
+    Bgra32(9, 4), // Currently not supported in libCZI.
+    Gray64ComplexFloat(10, 8), // Currently not supported in libCZI.
+    Bgr192ComplexFloat(11, 24), // Currently not supported in libCZI.
+    Gray32(12, 4), // Currently not supported in libCZI.
+    Gray64Float(13, 8); // Currently not supported in libCZI.
 
     private final int value;
+    private final int bytesPerPixel;
 
-    PixelType(int value) {
+    PixelType(int value, int bytesPerPixel) {
         this.value = value;
+        this.bytesPerPixel = bytesPerPixel;
     }
 
     public int getValue() {
         return value;
     }
 
+    /**
+     * The number of bytes one pixel of this type occupies in a bitmap row.
+     */
+    public int bytesPerPixel() {
+        return bytesPerPixel;
+    }
+
     public static PixelType fromValue(int value) {
         for (PixelType type : PixelType.values()) {
             if (type.value == value) {
@@ -0,0 +1,18 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.lang.foreign.MemorySegment;
+
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+
+/**
+ * One plane produced by a {@link PlaneIterator}.
+ *
+ * @param coordinate The plane coordinate.
+ * @param info The size and pixel type of the rendered region.
+ * @param pixels The pixels, rows {@code stride} bytes apart. The memory is reused for the
+ *               next plane, so it is only valid until the iterator moves on or is closed.
+ * @param stride The distance in bytes between rows.
+ * @author Paul Mitchell
+ */
+public record Plane(Coordinate coordinate, BitmapInfo info, MemorySegment pixels, long stride) {
+}
@@ -0,0 +1,125 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapLock;
+
+/**
+ * Renders the same region of a series of planes, for example every Z of a given C and T,
+ * one plane at a time.
+ * <p>
+ * Each plane is copied into one native buffer that is reused for the whole iteration, so
+ * walking a stack does not allocate pixel memory per plane. The buffer only grows if a
+ * plane has a larger pixel type than those before it. A {@link Plane} returned by
+ * {@link #next()} is therefore only valid until the following call to {@code next()}.
+ * </p>
+ * <p>
+ * The iterator must be used on the thread that created it, and closed to free the buffer.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class PlaneIterator implements Iterator<Plane>, AutoCloseable {
+    private final SingleChannelTileAccessor accessor;
+    private final IntRect roi;
+    private final float zoom;
+    private final List<Coordinate> coordinates;
+    private final Iterator<Coordinate> remaining;
+    private final Arena arena;
+    private MemorySegment buffer = MemorySegment.NULL;
+
+    /**
+     * @param accessor the accessor to render with.
+     * @param roi the region to render on every plane.
+     * @param zoom the zoom factor.
+     * @param fixed the dimensions that stay the same for every plane, for example C and T.
+     * @param bounds the bounds to iterate over, usually {@link SubBlockStatistics#dimBounds()}.
+     * @param varying the dimensions to iterate over. The first varies slowest.
+     * @throws IllegalArgumentException if {@code bounds} does not include a varying dimension.
+     */
+    public PlaneIterator(SingleChannelTileAccessor accessor, IntRect roi, float zoom, Coordinate fixed, DimBounds bounds,
+            Dimension... varying) {
+        if (varying.length == 0) {
+            throw new IllegalArgumentException("At least one dimension to iterate over is required");
+        }
+        this.accessor = accessor;
+        this.roi = roi;
+        this.zoom = zoom;
+        this.coordinates = coordinates(fixed, bounds, varying);
+        this.remaining = coordinates.iterator();
+        this.arena = Arena.ofConfined();
+    }
+
+    /**
+     * Lists the plane coordinates an iteration covers, in the order it visits them.
+     *
+     * @see #PlaneIterator(SingleChannelTileAccessor, IntRect, float, Coordinate, DimBounds, Dimension...)
+     */
+    public static List<Coordinate> coordinates(Coordinate fixed, DimBounds bounds, Dimension... varying) {
+        List<Coordinate> coordinates = new ArrayList<>();
+        int[] position = new int[varying.length];
+        long count = 1;
+        for (Dimension dimension : varying) {
+            count *= Math.max(0, bounds.size(dimension));
+        }
+        // Steps the position like an odometer, the last varying dimension fastest.
+        for (long i = 0; i < count; i++) {
+            Coordinate.Builder builder = fixed.toBuilder();
+            for (int d = 0; d < varying.length; d++) {
+                builder.set(varying[d], bounds.start(varying[d]) + position[d]);
+            }
+            coordinates.add(builder.build());
+            for (int d = varying.length - 1; d >= 0 && ++position[d] == bounds.size(varying[d]); d--) {
+                position[d] = 0;
+            }
+        }
+        return coordinates;
+    }
+
+    /**
+     * @return the number of planes the iteration covers in total.
+     */
+    public int planeCount() {
+        return coordinates.size();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining.hasNext();
+    }
+
+    @Override
+    public Plane next() {
+        if (!remaining.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Coordinate coordinate = remaining.next();
+
+        Bitmap bitmap = accessor.getBitmapRaw(roi, zoom, coordinate);
+        try (BitmapLock lock = bitmap.lock()) {
+            BitmapInfo info = lock.bitmapInfo();
+            long stride = lock.rowBytes();
+            long required = stride * info.height();
+            if (buffer.byteSize() < required) {
+                buffer = arena.allocate(required, Long.BYTES);
+            }
+            MemorySegment pixels = buffer.asSlice(0, required);
+            lock.copyTo(pixels, stride);
+            return new Plane(coordinate, info, pixels, stride);
+        } finally {
+            bitmap.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
@@ -0,0 +1,337 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapLock;
+
+/**
+ * Decodes a sequence of planes, such as a Z-stack or a time series, ahead of the
+ * consumer, so that decoding the next planes overlaps with processing the current one.
+ * <p>
+ * A background task renders the planes in order into a ring of {@code depth + 1}
+ * off-heap buffers. It runs at most {@code depth} planes ahead of the consumer and waits
+ * when every buffer is full. The planes can be consumed either as a blocking
+ * {@link Iterator}, or through {@link #subscribe(Flow.Subscriber)}, where the
+ * subscriber's demand limits how many planes are delivered. Only one of the two may be
+ * used.
+ * </p>
+ * <p>
+ * A {@link Plane} refers to a buffer in the ring, and is only valid until the next call
+ * to {@link #next()}, or until {@code onNext} returns. The reader must not be used
+ * elsewhere while the streamer is running.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class PlaneStreamer implements Iterator<Plane>, Flow.Publisher<Plane>, AutoCloseable {
+    private static final Item END = new Item(null, null);
+    private static final long POLL_MILLIS = 100;
+
+    private final CziStreamReader reader;
+    private final IntRect roi;
+    private final float zoom;
+    private final List<Coordinate> planes;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final Arena arena = Arena.ofShared();
+    private final BlockingQueue<Slot> free;
+    private final BlockingQueue<Item> ready = new LinkedBlockingQueue<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean cancelled;
+    // Claimed by the first of the iterator or a subscriber to consume the planes.
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private boolean iterating;
+    private volatile boolean closed;
+    private Item pending;
+    private Slot current;
+
+    private record Item(Slot slot, Throwable error) {
+    }
+
+    private static final class Slot {
+        private MemorySegment buffer = MemorySegment.NULL;
+        private Plane plane;
+
+        void render(SingleChannelTileAccessor accessor, IntRect roi, float zoom, Coordinate coordinate, Arena arena) {
+            Bitmap bitmap = accessor.getBitmapRaw(roi, zoom, coordinate);
+            try (BitmapLock lock = bitmap.lock()) {
+                BitmapInfo info = lock.bitmapInfo();
+                long stride = lock.rowBytes();
+                long required = stride * info.height();
+                if (buffer.byteSize() < required) {
+                    buffer = arena.allocate(required, Long.BYTES);
+                }
+                MemorySegment pixels = buffer.asSlice(0, required);
+                lock.copyTo(pixels, stride);
+                plane = new Plane(coordinate, info, pixels, stride);
+            } finally {
+                bitmap.release();
+            }
+        }
+    }
+
+    /**
+     * Creates a streamer with its own threads, which are stopped when it is closed.
+     */
+    public PlaneStreamer(CziStreamReader reader, IntRect roi, float zoom, List<Coordinate> planes, int depth) {
+        this(reader, roi, zoom, planes, depth, null);
+    }
+
+    /**
+     * @param planes the planes to decode, in order, for example from
+     *               {@link PlaneIterator#coordinates(Coordinate, DimBounds, Dimension...)}.
+     * @param depth how many planes to decode ahead of the consumer.
+     * @param executor runs the decoding task and, when subscribed to, the delivery task,
+     *                 so it must be able to run two tasks at once. {@code null} to create
+     *                 threads for this streamer.
+     */
+    public PlaneStreamer(CziStreamReader reader, IntRect roi, float zoom, List<Coordinate> planes, int depth, Executor executor) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("Depth must be positive");
+        }
+        this.reader = reader;
+        this.roi = roi;
+        this.zoom = zoom;
+        this.planes = List.copyOf(planes);
+        this.ownedExecutor = executor == null ? Executors.newCachedThreadPool() : null;
+        this.executor = executor == null ? ownedExecutor : executor;
+        this.free = new ArrayBlockingQueue<>(depth + 1);
+        for (int i = 0; i <= depth; i++) {
+            free.add(new Slot());
+        }
+        this.executor.execute(this::produce);
+    }
+
+    private void produce() {
+        try (SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader)) {
+            for (Coordinate coordinate : planes) {
+                Slot slot = takeFree();
+                if (slot == null) {
+                    // Closed: still end the queue, so a consumer waiting in hasNext returns.
+                    break;
+                }
+                slot.render(accessor, roi, zoom, coordinate, arena);
+                ready.add(new Item(slot, null));
+            }
+            ready.add(END);
+        } catch (Throwable e) {
+            ready.add(new Item(null, e));
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    // Waits for a free buffer, returning null if the streamer is closed in the meantime.
+    private Slot takeFree() throws InterruptedException {
+        while (!cancelled) {
+            Slot slot = free.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (slot != null) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of planes this streamer decodes in total.
+     */
+    public int planeCount() {
+        return planes.size();
+    }
+
+    /**
+     * Waits until the next plane has been decoded, or decoding has finished.
+     *
+     * @throws IllegalStateException if the streamer has been subscribed to.
+     */
+    @Override
+    public boolean hasNext() {
+        claimForIterator();
+        return awaitPending();
+    }
+
+    private boolean awaitPending() {
+        if (pending == null) {
+            if (closed) {
+                return false;
+            }
+            try {
+                pending = ready.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for a plane", e);
+            }
+        }
+        return pending != END;
+    }
+
+    /**
+     * Returns the next plane, handing the buffer of the previous one back to the decoder.
+     *
+     * @throws RuntimeException if decoding the plane failed.
+     * @throws IllegalStateException if the streamer has been subscribed to.
+     */
+    @Override
+    public Plane next() {
+        claimForIterator();
+        return takeNext();
+    }
+
+    private void claimForIterator() {
+        if (!iterating) {
+            if (!claimed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Planes are already being delivered to a subscriber");
+            }
+            iterating = true;
+        }
+    }
+
+    private Plane takeNext() {
+        if (!awaitPending()) {
+            throw new NoSuchElementException();
+        }
+        releaseCurrent();
+        Item item = pending;
+        if (item.error() != null) {
+            // Leave the error in place so every later call fails the same way.
+            throw item.error() instanceof RuntimeException e ? e
+                    : new RuntimeException("Failed to decode plane", item.error());
+        }
+        pending = null;
+        current = item.slot();
+        return current.plane;
+    }
+
+    /**
+     * Delivers the planes to {@code subscriber} on the executor. The streamer closes
+     * itself when the subscriber has received every plane, an error, or cancels.
+     * <p>
+     * Only one consumer is allowed. If the streamer has already been iterated or
+     * subscribed to, the subscriber is sent {@code onSubscribe} and then {@code onError}
+     * with an {@link IllegalStateException}.
+     * </p>
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Plane> subscriber) {
+        if (!claimed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new PlaneSubscription());
+            subscriber.onError(new IllegalStateException("Planes have already been consumed"));
+            return;
+        }
+        PlaneSubscription subscription = new PlaneSubscription();
+        executor.execute(() -> deliver(subscriber, subscription));
+    }
+
+    private void deliver(Flow.Subscriber<? super Plane> subscriber, PlaneSubscription subscription) {
+        try {
+            subscriber.onSubscribe(subscription);
+            while (subscription.awaitDemand()) {
+                if (!awaitPending()) {
+                    subscriber.onComplete();
+                    return;
+                }
+                Plane plane;
+                try {
+                    plane = takeNext();
+                } catch (RuntimeException e) {
+                    subscriber.onError(e);
+                    return;
+                }
+                subscriber.onNext(plane);
+            }
+            if (subscription.error != null) {
+                subscriber.onError(subscription.error);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            subscriber.onError(e);
+        } finally {
+            close();
+        }
+    }
+
+    private static final class PlaneSubscription implements Flow.Subscription {
+        private long demand;
+        private boolean cancelled;
+        private Throwable error;
+
+        @Override
+        public synchronized void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested " + n + " planes, the request must be positive");
+                cancelled = true;
+            } else {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+
+        synchronized boolean awaitDemand() throws InterruptedException {
+            while (demand == 0 && !cancelled) {
+                wait();
+            }
+            if (cancelled) {
+                return false;
+            }
+            demand--;
+            return true;
+        }
+    }
+
+    private void releaseCurrent() {
+        if (current != null) {
+            free.add(current);
+            current = null;
+        }
+    }
+
+    /**
+     * Stops decoding, waits for the plane being decoded to finish, and frees the buffers.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        cancelled = true;
+        releaseCurrent();
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while stopping the plane decoder", e);
+        }
+        pending = null;
+        ready.clear();
+        // The consumer may be waiting in hasNext on another thread, and may not have taken
+        // the end the decoder queued before it was cleared.
+        ready.add(END);
+        arena.close();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+}
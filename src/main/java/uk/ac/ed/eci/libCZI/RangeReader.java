@@ -0,0 +1,76 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.List;
+
+/**
+ * A source of bytes that is read at explicit offsets, with no current position, so
+ * that one reader can serve reads from many threads at once.
+ * <p>
+ * This is what {@link InputStreamBridge} reads from. {@link #of(SeekableByteChannel)}
+ * adapts a local channel; other implementations can read from anywhere that supports
+ * ranged reads, such as {@link HttpRangeReader} for HTTP servers and object stores.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public interface RangeReader extends AutoCloseable {
+
+    /**
+     * @return the total number of bytes that can be read.
+     */
+    long size() throws IOException;
+
+    /**
+     * Reads {@code length} bytes starting at {@code offset} into the start of
+     * {@code destination}. Must be safe to call from several threads at once.
+     *
+     * @return the number of bytes read, which is less than {@code length} only if the
+     *         end of the source was reached.
+     */
+    long read(long offset, long length, MemorySegment destination) throws IOException;
+
+    /**
+     * Reads several ranges, each of which must lie within the source. Remote sources
+     * can merge nearby ranges into one request and run requests in parallel; by
+     * default the ranges are simply read one after another.
+     *
+     * @throws EOFException if a range extends past the end of the source.
+     */
+    default void readAll(List<Range> ranges) throws IOException {
+        for (Range range : ranges) {
+            if (read(range.offset(), range.length(), range.destination()) < range.length()) {
+                throw new EOFException("Range at " + range.offset() + " extends past the end of the source");
+            }
+        }
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * A read of {@code length} bytes at {@code offset} into the start of {@code destination}.
+     */
+    record Range(long offset, long length, MemorySegment destination) {
+        public long end() {
+            return offset + length;
+        }
+    }
+
+    /**
+     * Adapts a channel. A {@link FileChannel} is read with positional reads, which do not
+     * touch its position and need no locking. Any other channel is locked for each
+     * seek and read.
+     */
+    static RangeReader of(SeekableByteChannel channel) {
+        if (channel instanceof FileChannel fileChannel) {
+            return new FileChannelRangeReader(fileChannel);
+        }
+        return new SeekableChannelRangeReader(channel);
+    }
+}
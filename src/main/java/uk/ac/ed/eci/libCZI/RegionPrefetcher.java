@@ -0,0 +1,128 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * Warms a {@link CachingRangeReader} with the sub-blocks a batch of tile reads is going
+ * to need, before libCZI asks for them.
+ * <p>
+ * The sub-blocks intersecting the regions are looked up in a {@link SubBlockDirectory},
+ * which must know where each sub-block segment starts, as it does when created with
+ * {@link SubBlockDirectory#fromReader(CziStreamReader, java.nio.channels.SeekableByteChannel)}
+ * or loaded from a {@link SidecarIndex}. The segment headers are then read concurrently
+ * on virtual threads to find how long each segment is. Finally the byte ranges are
+ * merged where they touch and handed to {@link CachingRangeReader#prefetch}. When the
+ * returned future completes, every segment has been fetched into the cache. Decoding the
+ * regions through a stream over the same cache then reads nothing from the source only
+ * if none of the segments has been evicted since, so their total size must fit in the
+ * cache's budget alongside anything else being read.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class RegionPrefetcher implements AutoCloseable {
+    private final SubBlockDirectory directory;
+    private final CachingRangeReader cache;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param directory the directory of the file {@code cache} reads.
+     */
+    public RegionPrefetcher(SubBlockDirectory directory, CachingRangeReader cache) {
+        this.directory = directory;
+        this.cache = cache;
+    }
+
+    /**
+     * Prefetches the full-resolution sub-blocks of a plane that intersect the regions.
+     */
+    public CompletableFuture<Long> prefetch(List<IntRect> rois, Coordinate plane) {
+        return prefetch(rois, 0, plane);
+    }
+
+    /**
+     * Prefetches the sub-blocks of a plane on one pyramid level that intersect the
+     * regions.
+     *
+     * @param plane the plane to prefetch, or {@code null} for every plane.
+     * @return the number of bytes of sub-block segments prefetched. Completes
+     *         exceptionally with an {@link IllegalArgumentException} if a run of adjacent
+     *         segments is larger than the cache's budget.
+     * @throws IllegalStateException if the directory does not know where the sub-blocks are.
+     */
+    public CompletableFuture<Long> prefetch(List<IntRect> rois, int pyramidLevel, Coordinate plane) {
+        int[] subBlocks = rois.stream()
+                .flatMapToInt(roi -> IntStream.of(directory.intersecting(roi, pyramidLevel, plane)))
+                .distinct()
+                .toArray();
+        long[] positions = new long[subBlocks.length];
+        for (int i = 0; i < subBlocks.length; i++) {
+            positions[i] = directory.filePosition(subBlocks[i]);
+            if (positions[i] < 0) {
+                throw new IllegalStateException("The directory does not hold file positions");
+            }
+        }
+        List<CompletableFuture<long[]>> segments = new ArrayList<>(positions.length);
+        for (long position : positions) {
+            segments.add(CompletableFuture.supplyAsync(() -> segmentRange(position), executor));
+        }
+        return CompletableFuture.allOf(segments.toArray(CompletableFuture[]::new))
+                .thenCompose(v -> {
+                    long[][] ranges = merge(segments.stream().map(CompletableFuture::join).toArray(long[][]::new));
+                    long bytes = 0;
+                    List<CompletableFuture<Void>> fetches = new ArrayList<>(ranges.length);
+                    for (long[] range : ranges) {
+                        fetches.add(cache.prefetch(range[0], range[1] - range[0]));
+                        bytes += range[1] - range[0];
+                    }
+                    long total = bytes;
+                    return CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new)).thenApply(done -> total);
+                });
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // Reads a sub-block segment header and returns the segment's {start, end}.
+    private long[] segmentRange(long position) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment header = arena.allocate(CziFileDirectory.SEGMENT_HEADER_SIZE);
+            if (cache.read(position, CziFileDirectory.SEGMENT_HEADER_SIZE, header) < CziFileDirectory.SEGMENT_HEADER_SIZE) {
+                throw new EOFException("Sub-block segment at " + position + " extends past the end of the file");
+            }
+            long length = CziFileDirectory.segmentLength(header.asByteBuffer().order(ByteOrder.LITTLE_ENDIAN));
+            return new long[] { position, position + length };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Sorts {start, end} ranges and merges those that overlap or touch.
+    private static long[][] merge(long[][] ranges) {
+        Arrays.sort(ranges, (a, b) -> Long.compare(a[0], b[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1]) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range.clone());
+            }
+        }
+        return merged.toArray(long[][]::new);
+    }
+}
@@ -0,0 +1,177 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapLock;
+import uk.ac.ed.eci.libCZI.internal.TileWorkerPool;
+import uk.ac.ed.eci.libCZI.internal.TileWorkerPool.Worker;
+
+/**
+ * Renders a large region by splitting it into tiles and rendering the tiles concurrently,
+ * each with its own stream, reader and {@link SingleChannelTileAccessor}, straight into
+ * one destination buffer.
+ * <p>
+ * A single {@code getBitmapRaw} call for a large region runs on one thread inside libCZI
+ * and needs a native bitmap the size of the whole result. Here each worker only ever
+ * holds one tile, and tiles are copied into place as soon as they are decoded.
+ * </p>
+ * <p>
+ * As the tiles are copied on the worker threads, the destination must be accessible from
+ * any thread: a heap segment, or one allocated from a shared, global or automatic arena.
+ * </p>
+ * <p>
+ * Workers are created up front, one per thread, and are handed out to tile tasks from a
+ * queue, so no reader is ever used by two tiles at once. Tiles are laid out in output
+ * pixels, so together they cover the whole output at any zoom. At zoom 1 the result is
+ * identical to a single {@code getBitmapRaw} call; at other zooms it can differ slightly
+ * where libCZI resamples each tile from a different starting pixel.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class RegionRenderer implements AutoCloseable {
+    public static final int DEFAULT_TILE_SIZE = 1024;
+
+    private final TileWorkerPool workers;
+    private final ExecutorService executor;
+    private final int tileSize;
+
+    /**
+     * Creates a renderer with one worker per available processor.
+     */
+    public RegionRenderer(String path) {
+        this(() -> CZIInputStream.createInputStreamFromFileUTF8(path), Runtime.getRuntime().availableProcessors(), DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * @param streams opens a new stream on the file for each worker.
+     * @param threads the number of workers and threads.
+     * @param tileSize the width and height of a tile in output pixels.
+     */
+    public RegionRenderer(Supplier<CZIInputStream> streams, int threads, int tileSize) {
+        if (threads <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("Thread count and tile size must be positive");
+        }
+        this.tileSize = tileSize;
+        this.workers = new TileWorkerPool(streams, threads);
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * @return the size of the image {@link #render} produces for this region and zoom.
+     */
+    public IntSize outputSize(IntRect roi, float zoom) {
+        Worker worker = workers.borrow();
+        try {
+            return worker.accessor().calcTileSize(roi, zoom);
+        } finally {
+            workers.giveBack(worker);
+        }
+    }
+
+    public BitmapInfo render(IntRect roi, float zoom, MemorySegment destination, long destinationStride) {
+        return render(roi, zoom, 0, destination, destinationStride);
+    }
+
+    /**
+     * Renders a region of one channel into {@code destination}.
+     *
+     * @param destination must hold {@code outputSize(roi, zoom).h()} rows of
+     *                    {@code destinationStride} bytes, and must not be confined to a thread.
+     * @return the size and pixel type of the rendered image.
+     * @throws IllegalArgumentException if {@code destination} is confined to a thread.
+     */
+    public BitmapInfo render(IntRect roi, float zoom, int channel, MemorySegment destination, long destinationStride) {
+        if (LibCziFFM.isConfined(destination)) {
+            throw new IllegalArgumentException("The destination is written from worker threads, so it must not be confined to a thread");
+        }
+        IntSize output = outputSize(roi, zoom);
+        List<CompletableFuture<BitmapInfo>> tiles = new ArrayList<>();
+        // Tiles are laid out in output pixels, so that neighbouring tiles always meet, and
+        // each is then mapped back to the raw pixels it shows.
+        double scaleX = output.w() == 0 ? 0 : (double) roi.w() / output.w();
+        double scaleY = output.h() == 0 ? 0 : (double) roi.h() / output.h();
+        for (int outY = 0; outY < output.h(); outY += tileSize) {
+            for (int outX = 0; outX < output.w(); outX += tileSize) {
+                IntRect outTile = new IntRect(outX, outY, Math.min(tileSize, output.w() - outX), Math.min(tileSize, output.h() - outY));
+                int rawX = roi.x() + (int) Math.round(outTile.x() * scaleX);
+                int rawY = roi.y() + (int) Math.round(outTile.y() * scaleY);
+                int rawEndX = roi.x() + (int) Math.round((outTile.x() + outTile.w()) * scaleX);
+                int rawEndY = roi.y() + (int) Math.round((outTile.y() + outTile.h()) * scaleY);
+                IntRect rawTile = new IntRect(rawX, rawY, Math.max(1, rawEndX - rawX), Math.max(1, rawEndY - rawY));
+                tiles.add(CompletableFuture.supplyAsync(
+                        () -> renderTile(rawTile, outTile, zoom, channel, destination, destinationStride), executor));
+            }
+        }
+        BitmapInfo first = null;
+        RuntimeException failure = null;
+        for (CompletableFuture<BitmapInfo> future : tiles) {
+            try {
+                BitmapInfo info = future.join();
+                if (first == null) {
+                    first = info;
+                }
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return new BitmapInfo(output.w(), output.h(), first == null ? PixelType.Invalid : first.pixelType());
+    }
+
+    // Renders one tile into its output rectangle. After rounding libCZI may return a pixel
+    // more or less than the rectangle; extra pixels are clipped and missing ones are
+    // filled by repeating the last column and row.
+    private BitmapInfo renderTile(IntRect rawTile, IntRect outTile, float zoom, int channel,
+            MemorySegment destination, long destinationStride) {
+        Worker worker = workers.borrow();
+        try {
+            Bitmap bitmap = worker.accessor().getBitmapRaw(rawTile, zoom, channel, 1, 1, 1);
+            try (BitmapLock lock = bitmap.lock()) {
+                BitmapInfo info = lock.bitmapInfo();
+                int pixelBytes = info.pixelType().bytesPerPixel();
+                int columns = Math.min(info.width(), outTile.w());
+                int rows = Math.min(info.height(), outTile.h());
+                if (columns == 0 || rows == 0) {
+                    throw new CziBitmapException("libCZI returned an empty bitmap for " + rawTile);
+                }
+                MemorySegment target = destination.asSlice(outTile.y() * destinationStride + (long) outTile.x() * pixelBytes);
+                lock.copyTo(target, destinationStride, columns, rows);
+                for (int y = 0; y < rows; y++) {
+                    long lastPixel = y * destinationStride + (long) (columns - 1) * pixelBytes;
+                    for (int x = columns; x < outTile.w(); x++) {
+                        MemorySegment.copy(target, lastPixel, target, y * destinationStride + (long) x * pixelBytes, pixelBytes);
+                    }
+                }
+                long rowBytes = (long) outTile.w() * pixelBytes;
+                for (int y = rows; y < outTile.h(); y++) {
+                    MemorySegment.copy(target, (rows - 1) * destinationStride, target, y * destinationStride, rowBytes);
+                }
+                return info;
+            } finally {
+                bitmap.release();
+            }
+        } finally {
+            workers.giveBack(worker);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        executor.shutdown();
+        workers.close();
+    }
+}
@@ -0,0 +1,52 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reads a channel that only has a shared position, holding a lock across each seek
+ * and read so that concurrent reads cannot move each other's position.
+ */
+class SeekableChannelRangeReader implements RangeReader {
+    private final SeekableByteChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    SeekableChannelRangeReader(SeekableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public long read(long offset, long length, MemorySegment destination) throws IOException {
+        long total = 0;
+        lock.lock();
+        try {
+            channel.position(offset);
+            while (total < length) {
+                int chunk = (int) Math.min(length - total, FileChannelRangeReader.MAX_CHUNK);
+                ByteBuffer buffer = destination.asSlice(total, chunk).asByteBuffer();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        return total + buffer.position();
+                    }
+                }
+                total += chunk;
+            }
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
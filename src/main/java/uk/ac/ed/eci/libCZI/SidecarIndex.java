@@ -0,0 +1,242 @@
+package uk.ac.ed.eci.libCZI;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A sub-block directory and statistics saved next to a CZI file, so that reopening the
+ * file does not have to read its directory again.
+ * <p>
+ * The sidecar is a little-endian binary file, {@code <name>.czi.idx}, that is read by
+ * memory-mapping it. It starts with a magic number and a format version, followed by the
+ * key of the CZI file it describes: its size, last modified time and a SHA-256 hash of
+ * its first and last {@value #HASHED_BYTES} bytes. A sidecar whose version or key does
+ * not match is ignored, and {@link #openOrCreate(Path)} replaces it.
+ * </p>
+ * <p>
+ * Sidecars are written to a temporary file that is then moved into place, so a reader
+ * never sees a partly written index.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public final class SidecarIndex {
+    public static final String SUFFIX = ".idx";
+    static final int VERSION = 1;
+    static final int HASHED_BYTES = 1 << 20;
+
+    private static final byte[] MAGIC = "CZIINDEX".getBytes(StandardCharsets.US_ASCII);
+    private static final ValueLayout.OfInt STORED_INT = JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong STORED_LONG = JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final int HASH_SIZE = 32;
+    private static final int DIMENSIONS = LibCziFFM.K_MAX_DIMENSION_COUNT;
+
+    // Header: magic, version, sub-block count, file size, modified time, hash, statistics.
+    private static final long VERSION_OFFSET = 8;
+    private static final long COUNT_OFFSET = 12;
+    private static final long FILE_SIZE_OFFSET = 16;
+    private static final long MODIFIED_OFFSET = 24;
+    private static final long HASH_OFFSET = 32;
+    private static final long STATISTICS_OFFSET = HASH_OFFSET + HASH_SIZE;
+    private static final int STATISTICS_INTS = 3 + 4 + 4 + 1 + 2 * DIMENSIONS;
+    private static final long DIRECTORY_OFFSET = STATISTICS_OFFSET + STATISTICS_INTS * Integer.BYTES;
+
+    private final SubBlockDirectory directory;
+    private final SubBlockStatistics statistics;
+
+    private record Key(long fileSize, long modified, byte[] hash) {
+        boolean matches(Key other) {
+            return fileSize == other.fileSize && modified == other.modified && Arrays.equals(hash, other.hash);
+        }
+    }
+
+    private SidecarIndex(SubBlockDirectory directory, SubBlockStatistics statistics) {
+        this.directory = directory;
+        this.statistics = statistics;
+    }
+
+    public SubBlockDirectory directory() {
+        return directory;
+    }
+
+    public SubBlockStatistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * @return where the sidecar for {@code cziFile} is kept.
+     */
+    public static Path sidecarPath(Path cziFile) {
+        return cziFile.resolveSibling(cziFile.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Loads the sidecar of {@code cziFile}, or builds and saves one if there is none or
+     * it is out of date. The new sidecar is not saved if the file changes while its
+     * directory is being read, as it may describe neither version.
+     */
+    public static SidecarIndex openOrCreate(Path cziFile) throws IOException {
+        SidecarIndex index = load(cziFile);
+        if (index != null) {
+            return index;
+        }
+        // Taken before the directory is read, so a change during the read is noticed.
+        Key key = key(cziFile);
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(cziFile.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                FileChannel file = FileChannel.open(cziFile, StandardOpenOption.READ)) {
+            index = new SidecarIndex(SubBlockDirectory.fromReader(reader, file), reader.simpleReaderStatistics());
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to close " + cziFile, e);
+        }
+        if (key.matches(key(cziFile))) {
+            write(cziFile, key, index.directory, index.statistics);
+        }
+        return index;
+    }
+
+    /**
+     * Loads the sidecar of {@code cziFile}.
+     *
+     * @return the index, or {@code null} if there is no sidecar, or it was written by a
+     *         different format version or for a different version of the file.
+     */
+    public static SidecarIndex load(Path cziFile) throws IOException {
+        Path sidecar = sidecarPath(cziFile);
+        if (!Files.isRegularFile(sidecar) || Files.size(sidecar) < DIRECTORY_OFFSET) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(sidecar, StandardOpenOption.READ);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            if (mapped.asSlice(0, MAGIC.length).mismatch(MemorySegment.ofArray(MAGIC)) != -1
+                    || mapped.get(STORED_INT, VERSION_OFFSET) != VERSION) {
+                return null;
+            }
+            Key stored = new Key(mapped.get(STORED_LONG, FILE_SIZE_OFFSET), mapped.get(STORED_LONG, MODIFIED_OFFSET),
+                    mapped.asSlice(HASH_OFFSET, HASH_SIZE).toArray(JAVA_BYTE));
+            if (!stored.matches(key(cziFile))) {
+                return null;
+            }
+            int count = mapped.get(STORED_INT, COUNT_OFFSET);
+            if (mapped.byteSize() != DIRECTORY_OFFSET + SubBlockDirectory.serializedSize(count)) {
+                return null;
+            }
+            return new SidecarIndex(SubBlockDirectory.readFrom(mapped, DIRECTORY_OFFSET, count), readStatistics(mapped));
+        }
+    }
+
+    /**
+     * Saves a sidecar for {@code cziFile}, replacing any existing one.
+     */
+    public static void write(Path cziFile, SubBlockDirectory directory, SubBlockStatistics statistics) throws IOException {
+        write(cziFile, key(cziFile), directory, statistics);
+    }
+
+    private static void write(Path cziFile, Key key, SubBlockDirectory directory, SubBlockStatistics statistics) throws IOException {
+        Path sidecar = sidecarPath(cziFile);
+        Path temporary = Files.createTempFile(sidecar.toAbsolutePath().getParent(), sidecar.getFileName().toString(), ".tmp");
+        try {
+            long size = DIRECTORY_OFFSET + SubBlockDirectory.serializedSize(directory.size());
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                    Arena arena = Arena.ofConfined()) {
+                MemorySegment mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+                MemorySegment.copy(MemorySegment.ofArray(MAGIC), 0, mapped, 0, MAGIC.length);
+                mapped.set(STORED_INT, VERSION_OFFSET, VERSION);
+                mapped.set(STORED_INT, COUNT_OFFSET, directory.size());
+                mapped.set(STORED_LONG, FILE_SIZE_OFFSET, key.fileSize());
+                mapped.set(STORED_LONG, MODIFIED_OFFSET, key.modified());
+                MemorySegment.copy(MemorySegment.ofArray(key.hash()), 0, mapped, HASH_OFFSET, HASH_SIZE);
+                writeStatistics(mapped, statistics);
+                directory.writeTo(mapped, DIRECTORY_OFFSET);
+                mapped.force();
+            }
+            Files.move(temporary, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static Key key(Path cziFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (FileChannel channel = FileChannel.open(cziFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            hashRange(channel, 0, Math.min(size, HASHED_BYTES), digest);
+            if (size > HASHED_BYTES) {
+                long tail = Math.max(HASHED_BYTES, size - HASHED_BYTES);
+                hashRange(channel, tail, size - tail, digest);
+            }
+            return new Key(size, Files.getLastModifiedTime(cziFile).toMillis(), digest.digest());
+        }
+    }
+
+    private static void hashRange(FileChannel channel, long position, long length, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long end = position + length;
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            digest.update(buffer.flip());
+            position += read;
+        }
+    }
+
+    private static void writeStatistics(MemorySegment segment, SubBlockStatistics statistics) {
+        int[] values = new int[STATISTICS_INTS];
+        int i = 0;
+        values[i++] = statistics.subBlockCount();
+        values[i++] = statistics.minMIndex();
+        values[i++] = statistics.maxMIndex();
+        for (IntRect rect : new IntRect[] { statistics.boundingBox(), statistics.boundingBoxLayer0() }) {
+            values[i++] = rect.x();
+            values[i++] = rect.y();
+            values[i++] = rect.w();
+            values[i++] = rect.h();
+        }
+        DimBounds bounds = statistics.dimBounds();
+        values[i++] = bounds.dimensionsValid();
+        System.arraycopy(bounds.start(), 0, values, i, Math.min(DIMENSIONS, bounds.start().length));
+        System.arraycopy(bounds.size(), 0, values, i + DIMENSIONS, Math.min(DIMENSIONS, bounds.size().length));
+        MemorySegment.copy(values, 0, segment, STORED_INT, STATISTICS_OFFSET, STATISTICS_INTS);
+    }
+
+    private static SubBlockStatistics readStatistics(MemorySegment segment) {
+        int[] values = new int[STATISTICS_INTS];
+        MemorySegment.copy(segment, STORED_INT, STATISTICS_OFFSET, values, 0, STATISTICS_INTS);
+        DimBounds bounds = new DimBounds(values[11],
+                Arrays.copyOfRange(values, 12, 12 + DIMENSIONS),
+                Arrays.copyOfRange(values, 12 + DIMENSIONS, 12 + 2 * DIMENSIONS));
+        return new SubBlockStatistics(values[0], values[1], values[2],
+                new IntRect(values[3], values[4], values[5], values[6]),
+                new IntRect(values[7], values[8], values[9], values[10]),
+                bounds);
+    }
+}
@@ -1,26 +1,45 @@
 package uk.ac.ed.eci.libCZI;
 
 import static java.lang.foreign.ValueLayout.ADDRESS;
-import static java.lang.foreign.ValueLayout.JAVA_FLOAT;
-import static java.lang.foreign.ValueLayout.JAVA_INT;
 
 import java.lang.foreign.Arena;
-import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
-import java.lang.invoke.MethodHandle;
+import java.lang.foreign.SegmentAllocator;
 
 import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
 import uk.ac.ed.eci.libCZI.bitmaps.Roi;
 
 public class SingleChannelTileAccessor implements AutoCloseable {
     private final CziStreamReader reader;
     private final MemorySegment accessorHandle;
     private final Arena classArena;
+
+    // Scratch structs for getBitmapRaw, reused by every call made on the owning thread.
+    private final Thread ownerThread;
+    private final MemorySegment scratchCoordinate;
+    private final MemorySegment scratchRoi;
+    private final MemorySegment scratchOptions;
+    private final MemorySegment scratchBitmap;
+    private int scratchChannel = -1;
+    private float scratchBackgroundR = Float.NaN;
+    private float scratchBackgroundG = Float.NaN;
+    private float scratchBackgroundB = Float.NaN;
+
+    private volatile ZoomPlanner zoomPlanner;
     
     public SingleChannelTileAccessor(CziStreamReader reader) {
         this.reader = reader;
         this.classArena = Arena.ofConfined();
         this.accessorHandle = createAccessor();
+
+        this.ownerThread = Thread.currentThread();
+        SegmentAllocator scratch = SegmentAllocator.slicingAllocator(classArena.allocate(scratchLayout()));
+        this.scratchCoordinate = scratch.allocate(Coordinate.layout());
+        this.scratchRoi = scratch.allocate(IntRect.layout());
+        this.scratchOptions = scratch.allocate(AccessorOptions.layout());
+        this.scratchBitmap = scratch.allocate(ADDRESS);
     }
 
     @Override
@@ -29,13 +48,19 @@ public class SingleChannelTileAccessor implements AutoCloseable {
         this.classArena.close();
     }
 
+    private static MemoryLayout scratchLayout() {
+        return MemoryLayout.structLayout(
+                Coordinate.layout(),
+                IntRect.layout(),
+                AccessorOptions.layout(),
+                ADDRESS);
+    }
+
     private MemorySegment createAccessor() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        MethodHandle createAccessor = LibCziFFM.getMethodHandle("libCZI_CreateSingleChannelTileAccessor", descriptor);
         try {
             MemorySegment pAccessor = classArena.allocate(ADDRESS);
 
-            int errorCode = (int) createAccessor.invokeExact(reader.readerHandle(), pAccessor);
+            int errorCode = (int) LibCziFunctions.CREATE_SINGLE_CHANNEL_TILE_ACCESSOR.invokeExact(reader.readerHandle(), pAccessor);
             if (errorCode != 0) {
                 throw new CziReaderException("Failed to create single channel tile accessor. Error code: " + errorCode);
             }
@@ -48,6 +73,28 @@ public class SingleChannelTileAccessor implements AutoCloseable {
         }
     }
 
+    /**
+     * Turns the fastest-layer mode on or off. While a planner is set, every zoom passed to
+     * {@link #calcTileSize} and the bitmap methods is first snapped with
+     * {@link ZoomPlanner#effectiveZoom(float)} to the zoom of the coarsest pyramid layer
+     * that is at least as fine, so libCZI reads that layer alone. Bitmaps are then sized
+     * for the effective zoom, which may be slightly larger than requested.
+     *
+     * @param planner the planner to use, or {@code null} to read at the requested zoom.
+     */
+    public void setZoomPlanner(ZoomPlanner planner) {
+        this.zoomPlanner = planner;
+    }
+
+    public ZoomPlanner getZoomPlanner() {
+        return zoomPlanner;
+    }
+
+    private float plannedZoom(float zoom) {
+        ZoomPlanner planner = zoomPlanner;
+        return planner == null ? zoom : planner.effectiveZoom(zoom);
+    }
+
     /**
      * Gets the size information of the specified tile accessor based on the region of interest and zoom factor.
      * 
@@ -59,12 +106,12 @@ public class SingleChannelTileAccessor implements AutoCloseable {
         if (zoom < 0 || zoom > 1) {
             throw new IllegalArgumentException("Zoom factor must be between 0 and 1");
         }
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_FLOAT, ADDRESS);
-        MethodHandle calcTileSize = LibCziFFM.getMethodHandle("libCZI_SingleChannelTileAccessorCalcSize", descriptor);
-        try (Arena arena = Arena.ofConfined()) {
-            MemorySegment pSize = arena.allocate(IntSize.layout());
-            MemorySegment pRoi = roi.toMemorySegment(arena);
-            int errorCode = (int) calcTileSize.invokeExact(accessorHandle, pRoi, zoom, pSize);
+        zoom = plannedZoom(zoom);
+        try {
+            // Critical with heap access, so both structs can be passed as Java arrays.
+            MemorySegment pSize = MemorySegment.ofArray(new int[2]);
+            MemorySegment pRoi = MemorySegment.ofArray(new int[] { roi.x(), roi.y(), roi.w(), roi.h() });
+            int errorCode = (int) LibCziFunctions.SINGLE_CHANNEL_TILE_ACCESSOR_CALC_SIZE.invokeExact(accessorHandle, pRoi, zoom, pSize);
             if (errorCode != 0) {
                 throw new CziReaderException("Failed to calculate tile size. Error code: " + errorCode);
             }
@@ -94,15 +141,110 @@ public class SingleChannelTileAccessor implements AutoCloseable {
         return getBitmapRaw(rawRoi, zoom, 0, backgroundColorR, backgoundColorG, backgroundColorB);
     }
 
+    public Bitmap getBitmapRaw(IntRect rawRoi, float zoom) {
+        return getBitmapRaw(rawRoi, zoom, 0, 1, 1, 1);
+    }
+
+    /**
+     * Gets the composed bitmap for a region of interest of the given channel.
+     * <p>
+     * When called from the thread that created the accessor, the native argument structs
+     * are written into scratch memory owned by this accessor, so a steady-state request
+     * performs no allocation other than the returned {@link Bitmap}. Calls from any other
+     * thread fall back to a temporary arena.
+     * </p>
+     */
     public Bitmap getBitmapRaw(IntRect rawRoi, float zoom, int channel, float backgroundColorR, float backgoundColorG, float backgroundColorB) {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, JAVA_FLOAT, ADDRESS, ADDRESS);
-        MethodHandle getBitmap = LibCziFFM.getMethodHandle("libCZI_SingleChannelTileAccessorGet", descriptor);
+        zoom = plannedZoom(zoom);
+        if (Thread.currentThread() == ownerThread) {
+            if (channel != scratchChannel) {
+                Coordinate.createC0(channel).copyTo(scratchCoordinate);
+                scratchChannel = channel;
+            }
+            return getBitmapScratch(rawRoi, zoom, backgroundColorR, backgoundColorG, backgroundColorB);
+        }
+        return getBitmapTemporary(rawRoi, zoom, Coordinate.createC0(channel), backgroundColorR, backgoundColorG, backgroundColorB);
+    }
+
+    public Bitmap getBitmapRaw(IntRect rawRoi, float zoom, Coordinate plane) {
+        return getBitmapRaw(rawRoi, zoom, plane, 1, 1, 1);
+    }
+
+    /**
+     * Gets the composed bitmap for a region of interest of any plane, for example a
+     * given Z, T and scene as well as channel. Dimensions not set in {@code plane} are
+     * not constrained.
+     *
+     * @param plane the plane coordinate, usually made with {@link Coordinate#builder()}.
+     */
+    public Bitmap getBitmapRaw(IntRect rawRoi, float zoom, Coordinate plane, float backgroundColorR, float backgoundColorG, float backgroundColorB) {
+        zoom = plannedZoom(zoom);
+        if (Thread.currentThread() == ownerThread) {
+            plane.copyTo(scratchCoordinate);
+            scratchChannel = -1;
+            return getBitmapScratch(rawRoi, zoom, backgroundColorR, backgoundColorG, backgroundColorB);
+        }
+        return getBitmapTemporary(rawRoi, zoom, plane, backgroundColorR, backgoundColorG, backgroundColorB);
+    }
+
+    private Bitmap getBitmapScratch(IntRect rawRoi, float zoom, float backgroundColorR, float backgoundColorG, float backgroundColorB) {
+        if (backgroundColorR != scratchBackgroundR || backgoundColorG != scratchBackgroundG || backgroundColorB != scratchBackgroundB) {
+            new AccessorOptions(backgroundColorR, backgoundColorG, backgroundColorB, false, true, null)
+                    .copyTo(scratchOptions, MemorySegment.NULL);
+            scratchBackgroundR = backgroundColorR;
+            scratchBackgroundG = backgoundColorG;
+            scratchBackgroundB = backgroundColorB;
+        }
+        rawRoi.copyTo(scratchRoi);
+        return getBitmap(scratchCoordinate, scratchRoi, zoom, scratchOptions, scratchBitmap);
+    }
+
+    private Bitmap getBitmapTemporary(IntRect rawRoi, float zoom, Coordinate plane, float backgroundColorR, float backgoundColorG, float backgroundColorB) {
         try (Arena arena = Arena.ofConfined()) {
-            MemorySegment pCoordinate = Coordinate.createC0(channel).toMemorySegment(arena);
+            MemorySegment pCoordinate = plane.toMemorySegment(arena);
             MemorySegment pRoi = rawRoi.toMemorySegment(arena);
             MemorySegment pOptions = new AccessorOptions(backgroundColorR,backgoundColorG,backgroundColorB, false, true, null).toMemorySegment(arena);
             MemorySegment pBitmap = arena.allocate(ADDRESS);
-            int errorCode = (int) getBitmap.invokeExact(accessorHandle, pCoordinate, pRoi, zoom, pOptions, pBitmap);
+            return getBitmap(pCoordinate, pRoi, zoom, pOptions, pBitmap);
+        }
+    }
+
+    /**
+     * Reads a tile of channel 0 and copies its pixels straight into {@code destination},
+     * releasing the native bitmap afterwards. Together with a pool of destination
+     * buffers this lets a tile pipeline run without allocating pixel memory per tile.
+     *
+     * @param destination the segment to write to, starting at offset {@code 0}; direct
+     *                    byte buffers can be passed via {@link MemorySegment#ofBuffer}.
+     * @param destinationStride the distance in bytes between rows in the destination.
+     * @return the size and pixel type of the tile that was written.
+     * @see Bitmap#copyTo(MemorySegment, long)
+     */
+    public BitmapInfo getTileInto(IntRect rawRoi, float zoom, MemorySegment destination, long destinationStride) {
+        return getTileInto(rawRoi, zoom, 0, destination, destinationStride);
+    }
+
+    public BitmapInfo getTileInto(IntRect rawRoi, float zoom, int channel, MemorySegment destination, long destinationStride) {
+        Bitmap bitmap = getBitmapRaw(rawRoi, zoom, channel, 1, 1, 1);
+        try {
+            return bitmap.copyTo(destination, destinationStride);
+        } finally {
+            bitmap.release();
+        }
+    }
+
+    public BitmapInfo getTileInto(IntRect rawRoi, float zoom, Coordinate plane, MemorySegment destination, long destinationStride) {
+        Bitmap bitmap = getBitmapRaw(rawRoi, zoom, plane, 1, 1, 1);
+        try {
+            return bitmap.copyTo(destination, destinationStride);
+        } finally {
+            bitmap.release();
+        }
+    }
+
+    private Bitmap getBitmap(MemorySegment pCoordinate, MemorySegment pRoi, float zoom, MemorySegment pOptions, MemorySegment pBitmap) {
+        try {
+            int errorCode = (int) LibCziFunctions.SINGLE_CHANNEL_TILE_ACCESSOR_GET.invokeExact(accessorHandle, pCoordinate, pRoi, zoom, pOptions, pBitmap);
             if (errorCode != 0) {
                 throw new CziReaderException("Failed to get bitmap. Error code: " + errorCode);
             }
@@ -117,10 +259,8 @@ public class SingleChannelTileAccessor implements AutoCloseable {
         if (accessorHandle == null || accessorHandle.address() == 0) {
             return; // it has already gone!
         }
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS);
-        MethodHandle free = LibCziFFM.getMethodHandle("libCZI_ReleaseCreateSingleChannelTileAccessor", descriptor);
         try {
-            int errorCode = (int) free.invokeExact(accessorHandle);
+            int errorCode = (int) LibCziFunctions.RELEASE_SINGLE_CHANNEL_TILE_ACCESSOR.invokeExact(accessorHandle);
             if (errorCode != 0) {
                 throw new CziReaderException("Failed to free single channel tile accessor. Error code: " + errorCode);
             }
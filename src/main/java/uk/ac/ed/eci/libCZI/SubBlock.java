@@ -0,0 +1,240 @@
+package uk.ac.ed.eci.libCZI;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+
+/**
+ * One sub-block read from a CZI document, giving access to its payload exactly as
+ * stored in the file, still compressed.
+ * <p>
+ * The payload is copied by libCZI straight into native memory and handed out as a
+ * read-only {@link MemorySegment}, so it can be written to another container, for
+ * example with {@link #writeData(WritableByteChannel)}, without passing through the Java
+ * heap. Nothing is decoded.
+ * </p>
+ * <p>
+ * Instances are created with {@link #read(CziStreamReader, int)} and must be closed to
+ * release the native sub-block. Once {@link #data()} has been called, this must happen
+ * on the thread that called it.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class SubBlock implements AutoCloseable {
+    private static final int RAW_DATA_TYPE_DATA = 0;
+    private static final int RAW_DATA_TYPE_METADATA = 1;
+
+    private final MemorySegment subBlockHandle;
+    private final int index;
+    // Created by the first call to data(), so that a sub-block that is only decoded can be
+    // handed to and closed on another thread.
+    private Arena classArena;
+    private SubBlockInfo info;
+    private MemorySegment data;
+
+    /**
+     * Reads a sub-block.
+     *
+     * @param index the sub-block index, as used by {@link SubBlockDirectory}.
+     */
+    public static SubBlock read(CziStreamReader reader, int index) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment pSubBlock = arena.allocate(ADDRESS);
+            int errorCode = (int) LibCziFunctions.READER_READ_SUB_BLOCK.invokeExact(reader.readerHandle(), index, pSubBlock);
+            if (errorCode != 0) {
+                throw new CziReaderException("Failed to read sub-block " + index + ". Error code: " + errorCode);
+            }
+            return new SubBlock(pSubBlock.get(ADDRESS, 0).asReadOnly(), index);
+        } catch (Throwable e) {
+            if (e instanceof CziReaderException) {
+                throw (CziReaderException) e;
+            }
+            throw new RuntimeException("Failed to call native function libCZI_ReaderReadSubBlock", e);
+        }
+    }
+
+    private SubBlock(MemorySegment subBlockHandle, int index) {
+        this.subBlockHandle = subBlockHandle;
+        this.index = index;
+    }
+
+    MemorySegment handle() {
+        return subBlockHandle;
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public SubBlockInfo info() {
+        if (info == null) {
+            try {
+                // Critical with heap access, so the struct can be written into a Java array.
+                MemorySegment pInfo = MemorySegment.ofArray(new long[(int) ((SubBlockInfo.layout().byteSize() + Long.BYTES - 1) / Long.BYTES)]);
+                int errorCode = (int) LibCziFunctions.SUB_BLOCK_GET_INFO.invokeExact(subBlockHandle, pInfo);
+                if (errorCode != 0) {
+                    throw new CziReaderException("Failed to get sub-block info. Error code: " + errorCode);
+                }
+                info = SubBlockInfo.createFromMemorySegment(pInfo);
+            } catch (Throwable e) {
+                if (e instanceof CziReaderException) {
+                    throw (CziReaderException) e;
+                }
+                throw new RuntimeException("Failed to call native function libCZI_SubBlockGetInfo", e);
+            }
+        }
+        return info;
+    }
+
+    public CompressionMode compressionMode() {
+        return CompressionMode.fromRawValue(info().compressionModeRaw());
+    }
+
+    /**
+     * @return the size of the stored payload in bytes.
+     */
+    public long dataSize() {
+        return rawDataSize(RAW_DATA_TYPE_DATA);
+    }
+
+    /**
+     * The stored, possibly compressed, payload. It is read on the first call and kept
+     * until this sub-block is closed.
+     *
+     * @return a read-only segment that is valid until {@link #close()}.
+     */
+    public MemorySegment data() {
+        if (data == null) {
+            classArena = Arena.ofConfined();
+            data = rawData(RAW_DATA_TYPE_DATA, classArena).asReadOnly();
+        }
+        return data;
+    }
+
+    /**
+     * Reads the payload into memory allocated from {@code arena}, for callers that want
+     * it to outlive this sub-block.
+     */
+    public MemorySegment data(Arena arena) {
+        return rawData(RAW_DATA_TYPE_DATA, arena);
+    }
+
+    /**
+     * @return the sub-block's XML metadata, as stored, in memory allocated from {@code arena}.
+     */
+    public MemorySegment metadata(Arena arena) {
+        return rawData(RAW_DATA_TYPE_METADATA, arena);
+    }
+
+    /**
+     * Decodes the sub-block into a bitmap of its physical size.
+     *
+     * @return the bitmap, which the caller must release. It stays valid after this
+     *         sub-block is closed.
+     */
+    public Bitmap createBitmap() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment pBitmap = arena.allocate(ADDRESS);
+            int errorCode = (int) LibCziFunctions.SUB_BLOCK_CREATE_BITMAP.invokeExact(subBlockHandle, pBitmap);
+            if (errorCode != 0) {
+                throw new CziBitmapException("Failed to decode sub-block " + index + ". Error code: " + errorCode);
+            }
+            return new Bitmap(pBitmap.get(ADDRESS, 0).asReadOnly());
+        } catch (Throwable e) {
+            if (e instanceof CziBitmapException) {
+                throw (CziBitmapException) e;
+            }
+            throw new RuntimeException("Failed to call native function libCZI_SubBlockCreateBitmap", e);
+        }
+    }
+
+    /**
+     * Writes the stored payload to {@code channel}, directly from native memory.
+     *
+     * @return the number of bytes written.
+     */
+    public long writeData(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = data().asByteBuffer();
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        return written;
+    }
+
+    private long rawDataSize(int type) {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment pSize = arena.allocate(JAVA_LONG);
+            int errorCode = (int) LibCziFunctions.SUB_BLOCK_GET_RAW_DATA.invokeExact(subBlockHandle, type, pSize, MemorySegment.NULL);
+            if (errorCode != 0) {
+                throw new CziReaderException("Failed to get sub-block data size. Error code: " + errorCode);
+            }
+            return pSize.get(JAVA_LONG, 0);
+        } catch (Throwable e) {
+            if (e instanceof CziReaderException) {
+                throw (CziReaderException) e;
+            }
+            throw new RuntimeException("Failed to call native function libCZI_SubBlockGetRawData", e);
+        }
+    }
+
+    private MemorySegment rawData(int type, Arena dataArena) {
+        long size = rawDataSize(type);
+        if (size == 0) {
+            return MemorySegment.NULL;
+        }
+        MemorySegment segment = dataArena.allocate(size);
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment pSize = arena.allocate(JAVA_LONG);
+            pSize.set(JAVA_LONG, 0, size);
+            int errorCode = (int) LibCziFunctions.SUB_BLOCK_GET_RAW_DATA.invokeExact(subBlockHandle, type, pSize, segment);
+            if (errorCode != 0) {
+                throw new CziReaderException("Failed to get sub-block data. Error code: " + errorCode);
+            }
+            return segment;
+        } catch (Throwable e) {
+            if (e instanceof CziReaderException) {
+                throw (CziReaderException) e;
+            }
+            throw new RuntimeException("Failed to call native function libCZI_SubBlockGetRawData", e);
+        }
+    }
+
+    /**
+     * Releases the sub-block. The native sub-block is released even if the copy of its
+     * data cannot be freed, for example because {@link #data()} was called on another
+     * thread, in which case that failure is thrown afterwards.
+     */
+    @Override
+    public void close() {
+        try {
+            if (classArena != null) {
+                classArena.close();
+            }
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        try {
+            int errorCode = (int) LibCziFunctions.RELEASE_SUB_BLOCK.invokeExact(subBlockHandle);
+            if (errorCode != 0) {
+                throw new CziReaderException("Failed to release sub-block. Error code: " + errorCode);
+            }
+        } catch (Throwable e) {
+            if (e instanceof CziReaderException) {
+                throw (CziReaderException) e;
+            }
+            throw new RuntimeException("Failed to call native function libCZI_ReleaseSubBlock", e);
+        }
+    }
+}
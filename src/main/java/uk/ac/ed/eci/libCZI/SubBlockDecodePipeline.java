@@ -0,0 +1,317 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+
+/**
+ * Reads and decodes many sub-blocks in parallel, handing the decoded bitmaps to a
+ * consumer on the calling thread.
+ * <p>
+ * The pipeline has three stages. One thread reads the sub-blocks in the order given into
+ * a queue of at most {@code readQueueDepth}; a pool of {@code decodeThreads} threads
+ * decodes them with {@code libCZI_SubBlockCreateBitmap}; and the caller's thread passes
+ * the results to the consumer, either in the order given or as they complete. No more
+ * than {@code readQueueDepth + decodeThreads + resultQueueDepth} sub-blocks are ever in
+ * flight, however slow the consumer, which bounds the memory used.
+ * </p>
+ * <p>
+ * Each run reports the time spent in each stage and the deepest each queue became, for
+ * choosing the thread count and queue depths.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class SubBlockDecodePipeline implements AutoCloseable {
+    private static final Decoded END = new Decoded(-1, -1, null, null, null);
+
+    private final CziStreamReader reader;
+    private final int decodeThreads;
+    private final int readQueueDepth;
+    private final int resultQueueDepth;
+    private final ExecutorService executor;
+
+    /**
+     * The order results are handed to the consumer in.
+     */
+    public enum Order {
+        /** The order the sub-blocks were requested in. */
+        REQUESTED,
+        /** The order decoding finishes in, which keeps the consumer busiest. */
+        COMPLETION
+    }
+
+    /**
+     * Receives each decoded sub-block.
+     */
+    @FunctionalInterface
+    public interface Consumer {
+        /**
+         * @param bitmap the decoded sub-block. It is released when this method returns.
+         */
+        void accept(int index, SubBlockInfo info, Bitmap bitmap);
+    }
+
+    /**
+     * Timings and queue depths of one run. Times are summed over all threads of a stage.
+     */
+    public record Stats(long subBlocks, long readNanos, long decodeNanos, long consumeNanos, long elapsedNanos,
+            int maxReadQueue, int maxResultQueue) {
+        public double subBlocksPerSecond() {
+            return elapsedNanos == 0 ? 0 : subBlocks * 1e9 / elapsedNanos;
+        }
+    }
+
+    private record Decoded(long sequence, int index, SubBlockInfo info, Bitmap bitmap, Throwable error) {
+    }
+
+    private record Read(long sequence, SubBlock subBlock) {
+    }
+
+    public SubBlockDecodePipeline(CziStreamReader reader, int decodeThreads) {
+        this(reader, decodeThreads, 2 * decodeThreads, 2 * decodeThreads);
+    }
+
+    /**
+     * @param decodeThreads the number of threads decoding sub-blocks.
+     * @param readQueueDepth how many read sub-blocks may wait for a decode thread.
+     * @param resultQueueDepth how many decoded sub-blocks may wait for the consumer.
+     */
+    public SubBlockDecodePipeline(CziStreamReader reader, int decodeThreads, int readQueueDepth, int resultQueueDepth) {
+        if (decodeThreads <= 0 || readQueueDepth <= 0 || resultQueueDepth <= 0) {
+            throw new IllegalArgumentException("Thread count and queue depths must be positive");
+        }
+        this.reader = reader;
+        this.decodeThreads = decodeThreads;
+        this.readQueueDepth = readQueueDepth;
+        this.resultQueueDepth = resultQueueDepth;
+        this.executor = Executors.newFixedThreadPool(decodeThreads + 1);
+    }
+
+    /**
+     * Reads and decodes the sub-blocks at {@code indices}, for example from
+     * {@link SubBlockDirectory#intersecting(IntRect, int)}, and passes each to
+     * {@code consumer} on the calling thread.
+     *
+     * @throws RuntimeException the first failure of any stage, once every sub-block in
+     *                          flight has been released. An {@link Error} thrown by the
+     *                          consumer is rethrown as it is, also once everything is released.
+     *                          If the calling thread is interrupted the run stops the same way
+     *                          and returns with the interrupt status set.
+     */
+    public Stats run(int[] indices, Order order, Consumer consumer) {
+        long start = System.nanoTime();
+        BlockingQueue<Read> readQueue = new ArrayBlockingQueue<>(readQueueDepth);
+        BlockingQueue<Decoded> resultQueue = new LinkedBlockingQueue<>();
+        Semaphore inFlight = new Semaphore(readQueueDepth + decodeThreads + resultQueueDepth);
+        LongAdder readNanos = new LongAdder();
+        LongAdder decodeNanos = new LongAdder();
+        AtomicInteger maxReadQueue = new AtomicInteger();
+        AtomicInteger maxResultQueue = new AtomicInteger();
+        Stop stop = new Stop();
+
+        executor.execute(() -> readAll(indices, readQueue, inFlight, readNanos, maxReadQueue, stop));
+        for (int i = 0; i < decodeThreads; i++) {
+            executor.execute(() -> decodeAll(readQueue, resultQueue, decodeNanos, maxResultQueue));
+        }
+
+        long consumeNanos = 0;
+        long consumed = 0;
+        long nextSequence = 0;
+        Map<Long, Decoded> waiting = new HashMap<>();
+        Throwable failure = null;
+        boolean interrupted = false;
+        int finishedDecoders = 0;
+        while (finishedDecoders < decodeThreads) {
+            Decoded decoded;
+            if (interrupted) {
+                decoded = takeUninterruptibly(resultQueue);
+            } else {
+                try {
+                    decoded = resultQueue.take();
+                } catch (InterruptedException e) {
+                    // Stop, but keep draining until every decoder has finished so that no
+                    // bitmap is left behind; the interrupt is restored before rethrowing.
+                    interrupted = true;
+                    if (failure == null) {
+                        failure = new RuntimeException("Interrupted while waiting for a decoded sub-block", e);
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                    stop.stopped = true;
+                    continue;
+                }
+            }
+            if (decoded == END) {
+                finishedDecoders++;
+                continue;
+            }
+            if (decoded.error() != null || failure != null) {
+                if (failure == null) {
+                    failure = decoded.error() instanceof RuntimeException e ? e
+                            : new RuntimeException("Failed to decode sub-block " + decoded.index(), decoded.error());
+                    stop.stopped = true;
+                }
+                release(decoded, inFlight);
+                continue;
+            }
+            if (order == Order.COMPLETION) {
+                long begin = System.nanoTime();
+                try {
+                    consumer.accept(decoded.index(), decoded.info(), decoded.bitmap());
+                    consumed++;
+                } catch (Throwable e) {
+                    // Even an Error must not escape yet: the other stages are still running and
+                    // hold bitmaps, so keep draining and rethrow once they have finished.
+                    failure = e;
+                    stop.stopped = true;
+                } finally {
+                    consumeNanos += System.nanoTime() - begin;
+                    release(decoded, inFlight);
+                }
+                continue;
+            }
+            waiting.put(decoded.sequence(), decoded);
+            for (Decoded next = waiting.remove(nextSequence); next != null && failure == null; next = waiting.remove(nextSequence)) {
+                long begin = System.nanoTime();
+                try {
+                    consumer.accept(next.index(), next.info(), next.bitmap());
+                    consumed++;
+                    nextSequence++;
+                } catch (Throwable e) {
+                    failure = e;
+                    stop.stopped = true;
+                } finally {
+                    consumeNanos += System.nanoTime() - begin;
+                    release(next, inFlight);
+                }
+            }
+        }
+        for (Decoded left : waiting.values()) {
+            release(left, inFlight);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure == null && stop.error != null) {
+            failure = stop.error instanceof RuntimeException e ? e : new RuntimeException("Failed to read sub-blocks", stop.error);
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        if (failure instanceof Error e) {
+            throw e;
+        }
+        if (failure != null) {
+            throw new RuntimeException("Failed to consume sub-blocks", failure);
+        }
+        return new Stats(consumed, readNanos.sum(), decodeNanos.sum(), consumeNanos, System.nanoTime() - start,
+                maxReadQueue.get(), maxResultQueue.get());
+    }
+
+    private static final class Stop {
+        private volatile boolean stopped;
+        private volatile Throwable error;
+    }
+
+    private void readAll(int[] indices, BlockingQueue<Read> readQueue, Semaphore inFlight,
+            LongAdder readNanos, AtomicInteger maxReadQueue, Stop stop) {
+        try {
+            for (int i = 0; i < indices.length && !stop.stopped; i++) {
+                inFlight.acquire();
+                long begin = System.nanoTime();
+                SubBlock subBlock;
+                try {
+                    subBlock = SubBlock.read(reader, indices[i]);
+                } finally {
+                    readNanos.add(System.nanoTime() - begin);
+                }
+                readQueue.put(new Read(i, subBlock));
+                maxReadQueue.accumulateAndGet(readQueue.size(), Math::max);
+            }
+        } catch (Throwable e) {
+            stop.error = e;
+        } finally {
+            // One end marker per decoder; each decoder passes its marker on to the consumer.
+            for (int i = 0; i < decodeThreads; i++) {
+                putUninterruptibly(readQueue, new Read(-1, null));
+            }
+        }
+    }
+
+    private void decodeAll(BlockingQueue<Read> readQueue, BlockingQueue<Decoded> resultQueue, LongAdder decodeNanos,
+            AtomicInteger maxResultQueue) {
+        try {
+            while (true) {
+                Read read = takeUninterruptibly(readQueue);
+                if (read.subBlock() == null) {
+                    return;
+                }
+                long begin = System.nanoTime();
+                Bitmap bitmap = null;
+                Decoded decoded;
+                try (SubBlock subBlock = read.subBlock()) {
+                    bitmap = subBlock.createBitmap();
+                    decoded = new Decoded(read.sequence(), subBlock.index(), subBlock.info(), bitmap, null);
+                } catch (Throwable e) {
+                    if (bitmap != null) {
+                        try {
+                            bitmap.release();
+                        } catch (RuntimeException releaseFailure) {
+                            e.addSuppressed(releaseFailure);
+                        }
+                    }
+                    decoded = new Decoded(read.sequence(), read.subBlock().index(), null, null, e);
+                } finally {
+                    decodeNanos.add(System.nanoTime() - begin);
+                }
+                resultQueue.add(decoded);
+                maxResultQueue.accumulateAndGet(resultQueue.size(), Math::max);
+            }
+        } finally {
+            resultQueue.add(END);
+        }
+    }
+
+    private static void release(Decoded decoded, Semaphore inFlight) {
+        if (decoded.bitmap() != null) {
+            decoded.bitmap().release();
+        }
+        inFlight.release();
+    }
+
+    private static <T> T takeUninterruptibly(BlockingQueue<T> queue) {
+        while (true) {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                // The pipeline is shut down through end markers, not interrupts.
+            }
+        }
+    }
+
+    private static <T> void putUninterruptibly(BlockingQueue<T> queue, T item) {
+        while (true) {
+            try {
+                queue.put(item);
+                return;
+            } catch (InterruptedException e) {
+                // As above.
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
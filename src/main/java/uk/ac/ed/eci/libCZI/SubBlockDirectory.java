@@ -0,0 +1,394 @@
+package uk.ac.ed.eci.libCZI;
+
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * An in-memory copy of the sub-block directory of a CZI document, with a spatial index,
+ * so that the sub-blocks covering a region can be found without calling into libCZI.
+ * <p>
+ * The directory is read once, with {@code libCZI_ReaderTryGetSubBlockInfoForIndex} for
+ * every sub-block, and held in primitive arrays indexed by sub-block index, the same
+ * index libCZI uses to read a sub-block. File positions are not part of libCZI's C API;
+ * they are only available when the directory is built with
+ * {@link #fromReader(CziStreamReader, SeekableByteChannel)}, which also reads the
+ * file's directory segment, and are {@code -1} otherwise.
+ * </p>
+ * <p>
+ * Each pyramid level has its own uniform grid, with cells at least the size of the
+ * largest sub-block on that level. Every sub-block is filed under the cell holding its top-left
+ * corner, so a query looks at the cells overlapping the region, extended up and left by
+ * one cell. A directory is immutable once built and can be shared between threads.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public final class SubBlockDirectory {
+    private static final int DIMENSIONS = LibCziFFM.K_MAX_DIMENSION_COUNT;
+    // Serialised form: ten int columns, the packed coordinates, then the file positions.
+    private static final int INT_COLUMNS = 10;
+    private static final ValueLayout.OfInt STORED_INT = JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong STORED_LONG = JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final int count;
+    private final int[] x;
+    private final int[] y;
+    private final int[] w;
+    private final int[] h;
+    private final int[] physicalW;
+    private final int[] physicalH;
+    private final int[] pyramidLevel;
+    private final int[] dimensionsValid;
+    private final int[] coordinates;
+    private final int[] mIndex;
+    private final int[] pixelType;
+    private final int[] compressionMode;
+    private final long[] filePosition;
+    private final LevelGrid[] grids;
+
+    SubBlockDirectory(int count, int[] x, int[] y, int[] w, int[] h, int[] physicalW, int[] physicalH,
+            int[] dimensionsValid, int[] coordinates, int[] mIndex, int[] pixelType, int[] compressionMode, long[] filePosition) {
+        this.count = count;
+        this.x = x;
+        this.y = y;
+        this.w = w;
+        this.h = h;
+        this.physicalW = physicalW;
+        this.physicalH = physicalH;
+        this.dimensionsValid = dimensionsValid;
+        this.coordinates = coordinates;
+        this.mIndex = mIndex;
+        this.pixelType = pixelType;
+        this.compressionMode = compressionMode;
+        this.filePosition = filePosition;
+        this.pyramidLevel = new int[count];
+        int maxLevel = 0;
+        for (int i = 0; i < count; i++) {
+            pyramidLevel[i] = SubBlockInfo.pyramidLevel(new IntRect(x[i], y[i], w[i], h[i]), new IntSize(physicalW[i], physicalH[i]));
+            maxLevel = Math.max(maxLevel, pyramidLevel[i]);
+        }
+        this.grids = new LevelGrid[count == 0 ? 0 : maxLevel + 1];
+        for (int level = 0; level < grids.length; level++) {
+            grids[level] = new LevelGrid(level);
+        }
+    }
+
+    /**
+     * Reads the directory through libCZI. File positions are not available.
+     */
+    public static SubBlockDirectory fromReader(CziStreamReader reader) {
+        return read(reader, null);
+    }
+
+    /**
+     * Reads the directory through libCZI, and the file position of each sub-block from
+     * the directory segment of the file {@code reader} was opened on.
+     *
+     * @param file a channel on the same file. Its position is changed.
+     * @throws IOException if the file's directory cannot be read, or does not match
+     *                     what libCZI reports.
+     */
+    public static SubBlockDirectory fromReader(CziStreamReader reader, SeekableByteChannel file) throws IOException {
+        CziFileDirectory.Entries entries = CziFileDirectory.read(file);
+        SubBlockDirectory directory = read(reader, entries.filePositions());
+        if (entries.size() != directory.size()) {
+            throw new IOException("File directory has " + entries.size() + " entries but libCZI reports " + directory.size());
+        }
+        for (int i = 0; i < directory.size(); i++) {
+            if (entries.x()[i] != directory.x[i] || entries.y()[i] != directory.y[i]
+                    || entries.w()[i] != directory.w[i] || entries.h()[i] != directory.h[i]) {
+                throw new IOException("File directory entry " + i + " does not match sub-block " + i + " as reported by libCZI");
+            }
+        }
+        return directory;
+    }
+
+    private static SubBlockDirectory read(CziStreamReader reader, long[] filePositions) {
+        int count = reader.simpleReaderStatistics().subBlockCount();
+        int[] x = new int[count];
+        int[] y = new int[count];
+        int[] w = new int[count];
+        int[] h = new int[count];
+        int[] physicalW = new int[count];
+        int[] physicalH = new int[count];
+        int[] dimensionsValid = new int[count];
+        int[] coordinates = new int[count * DIMENSIONS];
+        int[] mIndex = new int[count];
+        int[] pixelType = new int[count];
+        int[] compressionMode = new int[count];
+        long[] positions = new long[count];
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment pInfo = arena.allocate(SubBlockInfo.layout());
+            for (int i = 0; i < count; i++) {
+                SubBlockInfo info = readInfo(reader, i, pInfo);
+                x[i] = info.logicalRect().x();
+                y[i] = info.logicalRect().y();
+                w[i] = info.logicalRect().w();
+                h[i] = info.logicalRect().h();
+                physicalW[i] = info.physicalSize().w();
+                physicalH[i] = info.physicalSize().h();
+                dimensionsValid[i] = info.coordinate().dimensionsValid();
+                System.arraycopy(info.coordinate().value(), 0, coordinates, i * DIMENSIONS, DIMENSIONS);
+                mIndex[i] = info.mIndex();
+                pixelType[i] = info.pixelType().getValue();
+                compressionMode[i] = info.compressionModeRaw();
+                positions[i] = filePositions != null && i < filePositions.length ? filePositions[i] : -1;
+            }
+        }
+        return new SubBlockDirectory(count, x, y, w, h, physicalW, physicalH, dimensionsValid, coordinates, mIndex,
+                pixelType, compressionMode, positions);
+    }
+
+    private static SubBlockInfo readInfo(CziStreamReader reader, int index, MemorySegment pInfo) {
+        try {
+            int errorCode = (int) LibCziFunctions.READER_TRY_GET_SUB_BLOCK_INFO_FOR_INDEX.invokeExact(reader.readerHandle(), index, pInfo);
+            if (errorCode != 0) {
+                throw new CziReaderException("Failed to get info for sub-block " + index + ". Error code: " + errorCode);
+            }
+            return SubBlockInfo.createFromMemorySegment(pInfo);
+        } catch (Throwable e) {
+            if (e instanceof CziReaderException) {
+                throw (CziReaderException) e;
+            }
+            throw new RuntimeException("Failed to call native function libCZI_ReaderTryGetSubBlockInfoForIndex", e);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the number of bytes {@link #writeTo} writes for a directory of {@code count} sub-blocks.
+     */
+    static long serializedSize(int count) {
+        return (long) count * (INT_COLUMNS + DIMENSIONS) * Integer.BYTES + (long) count * Long.BYTES;
+    }
+
+    /**
+     * Writes the directory, little-endian, at {@code offset}. The sub-block count is not
+     * included and must be stored by the caller.
+     */
+    void writeTo(MemorySegment segment, long offset) {
+        for (int[] column : new int[][] { x, y, w, h, physicalW, physicalH, dimensionsValid, mIndex, pixelType, compressionMode }) {
+            MemorySegment.copy(column, 0, segment, STORED_INT, offset, count);
+            offset += (long) count * Integer.BYTES;
+        }
+        MemorySegment.copy(coordinates, 0, segment, STORED_INT, offset, coordinates.length);
+        offset += (long) coordinates.length * Integer.BYTES;
+        MemorySegment.copy(filePosition, 0, segment, STORED_LONG, offset, count);
+    }
+
+    /**
+     * Reads a directory of {@code count} sub-blocks written by {@link #writeTo}.
+     */
+    static SubBlockDirectory readFrom(MemorySegment segment, long offset, int count) {
+        int[][] columns = new int[INT_COLUMNS][];
+        for (int c = 0; c < INT_COLUMNS; c++) {
+            columns[c] = new int[count];
+            MemorySegment.copy(segment, STORED_INT, offset, columns[c], 0, count);
+            offset += (long) count * Integer.BYTES;
+        }
+        int[] coordinates = new int[count * DIMENSIONS];
+        MemorySegment.copy(segment, STORED_INT, offset, coordinates, 0, coordinates.length);
+        offset += (long) coordinates.length * Integer.BYTES;
+        long[] filePosition = new long[count];
+        MemorySegment.copy(segment, STORED_LONG, offset, filePosition, 0, count);
+        return new SubBlockDirectory(count, columns[0], columns[1], columns[2], columns[3], columns[4], columns[5],
+                columns[6], coordinates, columns[7], columns[8], columns[9], filePosition);
+    }
+
+    /**
+     * @return the highest pyramid level of any sub-block, {@code 0} if there is no pyramid.
+     */
+    public int maxPyramidLevel() {
+        return Math.max(0, grids.length - 1);
+    }
+
+    public IntRect logicalRect(int index) {
+        return new IntRect(x[index], y[index], w[index], h[index]);
+    }
+
+    public IntSize physicalSize(int index) {
+        return new IntSize(physicalW[index], physicalH[index]);
+    }
+
+    public int pyramidLevel(int index) {
+        return pyramidLevel[index];
+    }
+
+    public Coordinate coordinate(int index) {
+        return new Coordinate(dimensionsValid[index], Arrays.copyOfRange(coordinates, index * DIMENSIONS, (index + 1) * DIMENSIONS));
+    }
+
+    /**
+     * @return the M-index, or {@link SubBlockInfo#NO_M_INDEX}.
+     */
+    public int mIndex(int index) {
+        return mIndex[index];
+    }
+
+    public PixelType pixelType(int index) {
+        return PixelType.fromValue(pixelType[index]);
+    }
+
+    /**
+     * @see SubBlockInfo#compressionModeRaw()
+     */
+    public int compressionModeRaw(int index) {
+        return compressionMode[index];
+    }
+
+    /**
+     * @return where the sub-block segment starts in the file, or {@code -1} if unknown.
+     */
+    public long filePosition(int index) {
+        return filePosition[index];
+    }
+
+    /**
+     * @return the indices, in ascending order, of the sub-blocks on {@code level} whose
+     *         logical rectangle intersects {@code roi}.
+     */
+    public int[] intersecting(IntRect roi, int level) {
+        return intersecting(roi, level, null);
+    }
+
+    /**
+     * As {@link #intersecting(IntRect, int)}, but only sub-blocks whose coordinate
+     * matches {@code plane} in every dimension {@code plane} sets.
+     */
+    public int[] intersecting(IntRect roi, int level, Coordinate plane) {
+        if (level < 0 || level >= grids.length) {
+            return new int[0];
+        }
+        return grids[level].query(roi, plane);
+    }
+
+    private boolean matches(int index, Coordinate plane) {
+        if (plane == null) {
+            return true;
+        }
+        int valid = dimensionsValid[index];
+        for (Dimension dimension : Dimension.values()) {
+            if (!plane.has(dimension)) {
+                continue;
+            }
+            if ((valid & dimension.bit()) == 0
+                    || coordinates[index * DIMENSIONS + dimension.packedIndex(valid)] != plane.get(dimension)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean intersects(int index, IntRect roi) {
+        return x[index] < (long) roi.x() + roi.w() && roi.x() < (long) x[index] + w[index]
+                && y[index] < (long) roi.y() + roi.h() && roi.y() < (long) y[index] + h[index];
+    }
+
+    // A uniform grid over the sub-blocks of one pyramid level, with cells at least as
+    // large as any of its sub-blocks, stored as a compressed sparse row: the sub-blocks of cell c are members[cellStart[c] .. cellStart[c + 1]).
+    private final class LevelGrid {
+        private final long originX;
+        private final long originY;
+        private final long cellW;
+        private final long cellH;
+        private final int columns;
+        private final int rows;
+        private final int[] cellStart;
+        private final int[] members;
+
+        LevelGrid(int level) {
+            long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE, maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+            long largestW = 1, largestH = 1;
+            int levelCount = 0;
+            for (int i = 0; i < count; i++) {
+                if (pyramidLevel[i] != level) {
+                    continue;
+                }
+                levelCount++;
+                minX = Math.min(minX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxX = Math.max(maxX, x[i]);
+                maxY = Math.max(maxY, y[i]);
+                largestW = Math.max(largestW, w[i]);
+                largestH = Math.max(largestH, h[i]);
+            }
+            if (levelCount == 0) {
+                minX = minY = maxX = maxY = 0;
+            }
+            // Sparse layouts, such as scenes far apart, would leave most cells empty, so
+            // cells are grown until there are at most a few per sub-block.
+            long maxCells = Math.max(1024, 4L * levelCount);
+            while (((maxX - minX) / largestW + 1) * ((maxY - minY) / largestH + 1) > maxCells) {
+                largestW *= 2;
+                largestH *= 2;
+            }
+            this.originX = minX;
+            this.originY = minY;
+            this.cellW = largestW;
+            this.cellH = largestH;
+            this.columns = (int) ((maxX - minX) / cellW) + 1;
+            this.rows = (int) ((maxY - minY) / cellH) + 1;
+            this.cellStart = new int[columns * rows + 1];
+            this.members = new int[levelCount];
+            for (int i = 0; i < count; i++) {
+                if (pyramidLevel[i] == level) {
+                    cellStart[cellOf(i) + 1]++;
+                }
+            }
+            for (int c = 0; c < columns * rows; c++) {
+                cellStart[c + 1] += cellStart[c];
+            }
+            int[] fill = Arrays.copyOf(cellStart, columns * rows);
+            for (int i = 0; i < count; i++) {
+                if (pyramidLevel[i] == level) {
+                    members[fill[cellOf(i)]++] = i;
+                }
+            }
+        }
+
+        private int cellOf(int index) {
+            int column = (int) ((x[index] - originX) / cellW);
+            int row = (int) ((y[index] - originY) / cellH);
+            return row * columns + column;
+        }
+
+        int[] query(IntRect roi, Coordinate plane) {
+            // A sub-block is at most one cell wide, so one starting in the cell to the left
+            // of or above the region can still reach into it.
+            long firstColumn = Math.max(0, Math.floorDiv(roi.x() - originX, cellW) - 1);
+            long firstRow = Math.max(0, Math.floorDiv(roi.y() - originY, cellH) - 1);
+            long lastColumn = Math.min(columns - 1, Math.floorDiv((long) roi.x() + roi.w() - 1 - originX, cellW));
+            long lastRow = Math.min(rows - 1, Math.floorDiv((long) roi.y() + roi.h() - 1 - originY, cellH));
+            int[] found = new int[16];
+            int size = 0;
+            for (long row = firstRow; row <= lastRow; row++) {
+                for (long column = firstColumn; column <= lastColumn; column++) {
+                    int cell = (int) (row * columns + column);
+                    for (int m = cellStart[cell]; m < cellStart[cell + 1]; m++) {
+                        int index = members[m];
+                        if (intersects(index, roi) && matches(index, plane)) {
+                            if (size == found.length) {
+                                found = Arrays.copyOf(found, size * 2);
+                            }
+                            found[size++] = index;
+                        }
+                    }
+                }
+            }
+            int[] result = Arrays.copyOf(found, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
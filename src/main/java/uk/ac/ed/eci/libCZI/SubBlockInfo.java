@@ -0,0 +1,71 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemoryLayout.PathElement;
+import java.lang.foreign.MemorySegment;
+
+import static java.lang.foreign.ValueLayout.*;
+
+/**
+ * Describes one sub-block of a CZI document.
+ * This record corresponds to the `SubBlockInfoInterop` structure in the libCZI C API.
+ *
+ * @param compressionModeRaw The raw compression mode, for example {@code 0} for
+ *                           uncompressed, {@code 1} for JPEG, {@code 4} for JPEG-XR and
+ *                           {@code 5} or {@code 6} for zstd.
+ * @param pixelType The pixel type of the sub-block.
+ * @param coordinate The plane coordinate of the sub-block.
+ * @param logicalRect The rectangle the sub-block covers, in layer 0 pixel coordinates.
+ * @param physicalSize The size of the stored bitmap, smaller than the logical rectangle
+ *                     for pyramid sub-blocks.
+ * @param mIndex The M-index, or {@link #NO_M_INDEX} if the sub-block has none.
+ * @see <a href="https://zeiss.github.io/libczi/api/struct_sub_block_info_interop.html">SubBlockInfoInterop</a>
+ * @author Paul Mitchell
+ */
+public record SubBlockInfo(
+    int compressionModeRaw,
+    PixelType pixelType,
+    Coordinate coordinate,
+    IntRect logicalRect,
+    IntSize physicalSize,
+    int mIndex) {
+
+    public static final int NO_M_INDEX = Integer.MAX_VALUE;
+
+    public static MemoryLayout layout() {
+        return MemoryLayout.structLayout(
+                JAVA_INT.withName("compression_mode_raw"),
+                JAVA_INT.withName("pixel_type"),
+                Coordinate.layout().withName("coordinate"),
+                IntRect.layout().withName("logical_rect"),
+                IntSize.layout().withName("physical_size"),
+                JAVA_INT.withName("m_index"));
+    }
+
+    public static SubBlockInfo createFromMemorySegment(MemorySegment segment) {
+        int compressionModeRaw = segment.get(JAVA_INT, layout().byteOffset(PathElement.groupElement("compression_mode_raw")));
+        PixelType pixelType = PixelType.fromValue(segment.get(JAVA_INT, layout().byteOffset(PathElement.groupElement("pixel_type"))));
+        Coordinate coordinate = Coordinate.createFromMemorySegment(segment.asSlice(layout().byteOffset(PathElement.groupElement("coordinate"))));
+        IntRect logicalRect = IntRect.createFromMemorySegment(segment.asSlice(layout().byteOffset(PathElement.groupElement("logical_rect"))));
+        IntSize physicalSize = IntSize.createFromMemorySegment(segment.asSlice(layout().byteOffset(PathElement.groupElement("physical_size"))));
+        int mIndex = segment.get(JAVA_INT, layout().byteOffset(PathElement.groupElement("m_index")));
+        return new SubBlockInfo(compressionModeRaw, pixelType, coordinate, logicalRect, physicalSize, mIndex);
+    }
+
+    /**
+     * @return the pyramid level, {@code 0} for full resolution sub-blocks and {@code n}
+     *         for sub-blocks minified by a factor of about {@code 2^n}.
+     */
+    public int pyramidLevel() {
+        return pyramidLevel(logicalRect, physicalSize);
+    }
+
+    static int pyramidLevel(IntRect logicalRect, IntSize physicalSize) {
+        int logical = Math.max(logicalRect.w(), logicalRect.h());
+        int physical = Math.max(physicalSize.w(), physicalSize.h());
+        if (physical <= 0 || logical <= physical) {
+            return 0;
+        }
+        return (int) Math.round(Math.log((double) logical / physical) / Math.log(2));
+    }
+}
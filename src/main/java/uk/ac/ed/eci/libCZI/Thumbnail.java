@@ -0,0 +1,28 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * The outcome of making a thumbnail for one file with a {@link ThumbnailService}.
+ *
+ * @param path The file.
+ * @param image The thumbnail, or {@code null} if it could not be made.
+ * @param source Where the thumbnail came from, or {@code null} if it could not be made.
+ * @param latency The time taken for this file, from opening it to closing it.
+ * @param error Why the thumbnail could not be made, or {@code null} on success.
+ * @author Paul Mitchell
+ */
+public record Thumbnail(Path path, BufferedImage image, Source source, Duration latency, Throwable error) {
+    public enum Source {
+        /** Decoded from the image embedded in the file's "Thumbnail" attachment. */
+        ATTACHMENT,
+        /** Rendered from the coarsest pyramid layer that is large enough. */
+        PYRAMID
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
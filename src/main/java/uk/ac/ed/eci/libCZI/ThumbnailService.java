@@ -0,0 +1,171 @@
+package uk.ac.ed.eci.libCZI;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+
+/**
+ * Makes thumbnails for many CZI files concurrently.
+ * <p>
+ * For each file the embedded "Thumbnail" attachment is used when there is one and it can
+ * be decoded. Otherwise channel 0 of the whole layer 0 bounding box is rendered, with the
+ * zoom snapped by a {@link ZoomPlanner} to the coarsest pyramid layer that still gives at
+ * least the requested size, so only that layer's sub-blocks are decoded. Either way the
+ * result is scaled down to fit within {@code maxSize} pixels.
+ * </p>
+ * <p>
+ * Files are handled on a fixed pool of threads, each opening one file at a time, so no
+ * more than {@code maxOpenFiles} files are open at once. A failure affects only its own
+ * file and is reported in the returned {@link Thumbnail}.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class ThumbnailService implements AutoCloseable {
+    static final String THUMBNAIL_ATTACHMENT = "Thumbnail";
+
+    private final ExecutorService executor;
+    private final int maxSize;
+
+    /**
+     * @param maxOpenFiles the number of files processed at once.
+     * @param maxSize the largest width or height of a thumbnail.
+     */
+    public ThumbnailService(int maxOpenFiles, int maxSize) {
+        if (maxOpenFiles <= 0 || maxSize <= 0) {
+            throw new IllegalArgumentException("Open file count and thumbnail size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.executor = Executors.newFixedThreadPool(maxOpenFiles);
+    }
+
+    /**
+     * Queues one file.
+     *
+     * @return a future that always completes normally, with any failure in {@link Thumbnail#error()}.
+     */
+    public CompletableFuture<Thumbnail> submit(Path path) {
+        return CompletableFuture.supplyAsync(() -> createThumbnail(path), executor);
+    }
+
+    /**
+     * Makes thumbnails for all {@code paths} and waits for them.
+     *
+     * @return one result per path, in the same order.
+     */
+    public List<Thumbnail> createThumbnails(List<Path> paths) {
+        List<CompletableFuture<Thumbnail>> pending = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            pending.add(submit(path));
+        }
+        List<Thumbnail> thumbnails = new ArrayList<>(paths.size());
+        for (CompletableFuture<Thumbnail> future : pending) {
+            thumbnails.add(future.join());
+        }
+        return thumbnails;
+    }
+
+    private Thumbnail createThumbnail(Path path) {
+        long start = System.nanoTime();
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(path.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream)) {
+            BufferedImage image = fromAttachment(reader);
+            Thumbnail.Source source = Thumbnail.Source.ATTACHMENT;
+            if (image == null) {
+                image = fromPyramid(reader);
+                source = Thumbnail.Source.PYRAMID;
+            }
+            return new Thumbnail(path, fitWithin(image), source, Duration.ofNanos(System.nanoTime() - start), null);
+        } catch (Throwable e) {
+            return new Thumbnail(path, null, null, Duration.ofNanos(System.nanoTime() - start), e);
+        }
+    }
+
+    // Returns null if there is no usable thumbnail attachment.
+    private static BufferedImage fromAttachment(CziStreamReader reader) {
+        AttachmentInfo[] attachments = reader.getAttachments();
+        for (int i = 0; i < attachments.length; i++) {
+            if (!THUMBNAIL_ATTACHMENT.equals(attachments[i].name())) {
+                continue;
+            }
+            try (AttachmentReader attachment = AttachmentReader.fromReader(reader, i);
+                    Arena arena = Arena.ofConfined()) {
+                MemorySegment data = attachment.getAttachmentRawData(arena);
+                if (data.byteSize() == 0) {
+                    return null;
+                }
+                return ImageIO.read(new ByteArrayInputStream(data.toArray(JAVA_BYTE)));
+            } catch (AttachmentReaderException | IOException e) {
+                return null;
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to read the thumbnail attachment", e);
+            }
+        }
+        return null;
+    }
+
+    private BufferedImage fromPyramid(CziStreamReader reader) throws Exception {
+        IntRect box = reader.simpleReaderStatistics().boundingBoxLayer0();
+        float zoom = Math.min(1f, (float) maxSize / Math.max(box.w(), box.h()));
+        try (SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader)) {
+            accessor.setZoomPlanner(new ZoomPlanner(reader));
+            Bitmap bitmap = accessor.getBitmapRaw(box, zoom);
+            try {
+                return bitmap.toBufferedImage();
+            } finally {
+                bitmap.release();
+            }
+        }
+    }
+
+    private BufferedImage fitWithin(BufferedImage image) {
+        int largest = Math.max(image.getWidth(), image.getHeight());
+        if (largest <= maxSize) {
+            return image;
+        }
+        double scale = (double) maxSize / largest;
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(width, height, scaledType(image));
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    // Keeps the gray and BGR types the pyramid produces. Any other type, such as an indexed
+    // or binary image from an attachment, would get a default palette rather than the
+    // source's, so it is drawn into a direct colour image instead.
+    private static int scaledType(BufferedImage image) {
+        return switch (image.getType()) {
+            case BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_USHORT_GRAY, BufferedImage.TYPE_3BYTE_BGR -> image.getType();
+            default -> image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_3BYTE_BGR;
+        };
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,215 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapLock;
+
+/**
+ * A cache of rendered tile pixels held in native memory, with a fixed byte budget and
+ * least-recently-used eviction.
+ * <p>
+ * Keys are spread across a number of stripes, each with its own lock, its own LRU order
+ * and an equal share of the budget, so that lookups from many threads rarely contend.
+ * Pixels are stored tightly packed, without row padding, in memory obtained from
+ * libCZI's allocator, and are only ever read or freed while the owning stripe is
+ * locked. Callers never see the cached memory directly; a hit is copied into a
+ * caller-supplied destination.
+ * </p>
+ * <p>
+ * One cache can be shared by any number of files and accessors, see
+ * {@link CachedTileAccessor}.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class TileCache implements AutoCloseable {
+    private static final int DEFAULT_STRIPES = 16;
+
+    private final Stripe[] stripes;
+    private final long byteBudget;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Hit, miss and eviction counts, and the current size of the cache.
+     */
+    public record Stats(long hits, long misses, long evictions, long bytesUsed, int entries) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    public TileCache(long byteBudget) {
+        this(byteBudget, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param byteBudget the maximum number of bytes of pixel data to hold.
+     * @param stripeCount the number of independently locked stripes. Each stripe may hold
+     *                    at most {@code byteBudget / stripeCount} bytes, so tiles larger
+     *                    than that are never cached.
+     */
+    public TileCache(long byteBudget, int stripeCount) {
+        if (byteBudget <= 0 || stripeCount <= 0) {
+            throw new IllegalArgumentException("Byte budget and stripe count must be positive");
+        }
+        this.byteBudget = byteBudget;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(byteBudget / stripeCount);
+        }
+    }
+
+    public long byteBudget() {
+        return byteBudget;
+    }
+
+    /**
+     * Copies a cached tile into {@code destination}.
+     *
+     * @param destinationStride the distance in bytes between rows in the destination.
+     * @return the size and pixel type of the tile, or {@code null} if it is not cached.
+     */
+    public BitmapInfo get(TileKey key, MemorySegment destination, long destinationStride) {
+        Stripe stripe = stripeFor(key);
+        stripe.lock.lock();
+        try {
+            Entry entry = stripe.entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            entry.copyTo(destination, destinationStride);
+            return entry.info;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the pixels of {@code bitmap} into the cache under {@code key}, evicting the
+     * least recently used tiles of the same stripe as needed. Does nothing if the tile is
+     * already cached or is too large for a stripe.
+     */
+    public void put(TileKey key, Bitmap bitmap) {
+        Stripe stripe = stripeFor(key);
+        try (BitmapLock lock = bitmap.lock()) {
+            long size = lock.rowBytes() * lock.bitmapInfo().height();
+            if (size == 0 || size > stripe.byteBudget) {
+                return;
+            }
+            stripe.lock.lock();
+            try {
+                if (stripe.entries.containsKey(key)) {
+                    return;
+                }
+                stripe.evictUntilFree(size);
+                MemorySegment pixels = LibCziFFM.allocate(size);
+                lock.copyTo(pixels, lock.rowBytes());
+                stripe.entries.put(key, new Entry(lock.bitmapInfo(), pixels, lock.rowBytes()));
+                stripe.bytesUsed += size;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Removes every cached tile and frees its memory. Counters are not reset.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (Entry entry : stripe.entries.values()) {
+                    LibCziFFM.free(entry.pixels);
+                }
+                stripe.entries.clear();
+                stripe.bytesUsed = 0;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    public Stats stats() {
+        long bytesUsed = 0;
+        int entries = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                bytesUsed += stripe.bytesUsed;
+                entries += stripe.entries.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), bytesUsed, entries);
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    private Stripe stripeFor(TileKey key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    private final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<TileKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final long byteBudget;
+        private long bytesUsed;
+
+        Stripe(long byteBudget) {
+            this.byteBudget = byteBudget;
+        }
+
+        void evictUntilFree(long size) {
+            Iterator<Map.Entry<TileKey, Entry>> eldest = entries.entrySet().iterator();
+            while (bytesUsed + size > byteBudget && eldest.hasNext()) {
+                Entry entry = eldest.next().getValue();
+                eldest.remove();
+                bytesUsed -= entry.pixels.byteSize();
+                LibCziFFM.free(entry.pixels);
+                evictions.increment();
+            }
+        }
+    }
+
+    private record Entry(BitmapInfo info, MemorySegment pixels, long rowBytes) {
+        void copyTo(MemorySegment destination, long destinationStride) {
+            int height = info.height();
+            if (destinationStride < rowBytes) {
+                throw new IllegalArgumentException("Destination stride " + destinationStride + " is less than the row size " + rowBytes);
+            }
+            if (height == 0) {
+                return;
+            }
+            long required = (height - 1) * destinationStride + rowBytes;
+            if (destination.byteSize() < required) {
+                throw new IllegalArgumentException("Destination holds " + destination.byteSize() + " bytes but " + required + " are needed");
+            }
+            if (destinationStride == rowBytes) {
+                MemorySegment.copy(pixels, 0, destination, 0, rowBytes * height);
+                return;
+            }
+            for (int y = 0; y < height; y++) {
+                MemorySegment.copy(pixels, y * rowBytes, destination, y * destinationStride, rowBytes);
+            }
+        }
+    }
+}
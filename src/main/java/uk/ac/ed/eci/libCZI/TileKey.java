@@ -0,0 +1,14 @@
+package uk.ac.ed.eci.libCZI;
+
+/**
+ * Identifies a rendered tile in a {@link TileCache}.
+ *
+ * @param fileIdentity Anything that uniquely identifies the source file, such as its
+ *                     path or a content hash. Must implement {@code equals} and {@code hashCode}.
+ * @param plane The plane coordinate the tile was rendered from.
+ * @param roi The region of interest in raw sub-block coordinates.
+ * @param zoom The zoom factor.
+ * @author Paul Mitchell
+ */
+public record TileKey(Object fileIdentity, Coordinate plane, IntRect roi, float zoom) {
+}
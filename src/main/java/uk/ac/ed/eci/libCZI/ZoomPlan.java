@@ -0,0 +1,23 @@
+package uk.ac.ed.eci.libCZI;
+
+/**
+ * The pyramid layer a {@link ZoomPlanner} chose for a request.
+ *
+ * @param pyramidLayerNo The pyramid layer to read, {@code 0} being full resolution.
+ * @param minificationFactor The minification factor between neighbouring layers, or
+ *                           {@code 0} for layer {@code 0}.
+ * @param requestedZoom The zoom that was asked for.
+ * @param effectiveZoom The zoom of the chosen layer, which is never less than the
+ *                      requested zoom unless the request is above {@code 1}.
+ * @param estimatedSubBlockCount An estimate of how many sub-blocks of the chosen layer
+ *                               cover the region, assuming they are spread evenly over
+ *                               the bounding box.
+ * @author Paul Mitchell
+ */
+public record ZoomPlan(
+    int pyramidLayerNo,
+    int minificationFactor,
+    float requestedZoom,
+    float effectiveZoom,
+    int estimatedSubBlockCount) {
+}
@@ -0,0 +1,196 @@
+package uk.ac.ed.eci.libCZI;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Chooses the pyramid layer to read for a requested zoom, from the document's
+ * {@link CziStreamReader#pyramidStatistics() pyramid statistics}.
+ * <p>
+ * The chosen layer is the coarsest one that still has at least the requested resolution,
+ * so that no upscaling is needed and as few sub-blocks as possible are decoded. Layer
+ * {@code n} with minification factor {@code f} has a zoom of {@code 1 / f^n}.
+ * </p>
+ * <p>
+ * Plans can be made for one scene, or for the whole document, in which case only layers
+ * present in every scene are considered. A planner is immutable and can be shared
+ * between threads. See {@link SingleChannelTileAccessor#setZoomPlanner(ZoomPlanner)} for
+ * reading tiles at the planned zoom.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class ZoomPlanner {
+    // libCZI reports sub-blocks that do not belong to a recognised pyramid as layer 0xFF.
+    private static final int NOT_A_PYRAMID_LAYER = 0xFF;
+    // Allows for rounding when a requested zoom was itself computed as 1 / f^n.
+    private static final float ZOOM_TOLERANCE = 1e-4f;
+
+    private final Map<Integer, List<Layer>> layersByScene;
+    private final List<Layer> commonLayers;
+    private final float[] commonZooms;
+    private final IntRect boundingBox;
+
+    private record Layer(int pyramidLayerNo, int minificationFactor, float zoom, int count) {
+    }
+
+    /**
+     * Creates a planner for the document open in {@code reader}.
+     */
+    public ZoomPlanner(CziStreamReader reader) {
+        this(reader.pyramidStatistics(), reader.simpleReaderStatistics().boundingBox());
+    }
+
+    /**
+     * @param statistics the pyramid statistics of the document.
+     * @param boundingBox the bounding box of all sub-blocks, used to estimate how many
+     *                    sub-blocks a region covers.
+     */
+    public ZoomPlanner(ScenePyramidStatistics statistics, IntRect boundingBox) {
+        this.boundingBox = boundingBox;
+        this.layersByScene = new TreeMap<>();
+        Map<String, List<PyramidLayerStats>> statsByScene = statistics.getStatsByScene();
+        if (statsByScene != null) {
+            for (Map.Entry<String, List<PyramidLayerStats>> scene : statsByScene.entrySet()) {
+                layersByScene.put(parseScene(scene.getKey()), toLayers(scene.getValue()));
+            }
+        }
+        this.commonLayers = commonLayers(layersByScene.values());
+        this.commonZooms = new float[commonLayers.size()];
+        for (int i = 0; i < commonZooms.length; i++) {
+            commonZooms[i] = commonLayers.get(i).zoom();
+        }
+    }
+
+    /**
+     * @return the zoom of every layer present in all scenes, coarsest first.
+     */
+    public float[] layerZooms() {
+        return commonZooms.clone();
+    }
+
+    /**
+     * Snaps a requested zoom to the zoom of the coarsest layer, present in every scene,
+     * that is at least as fine. Requests above the finest layer are returned unchanged.
+     * This does not allocate, so it can be used on every tile read.
+     */
+    public float effectiveZoom(float zoom) {
+        for (float layerZoom : commonZooms) {
+            if (layerZoom >= zoom * (1 - ZOOM_TOLERANCE)) {
+                return layerZoom;
+            }
+        }
+        return zoom;
+    }
+
+    /**
+     * Plans a request against the layers present in every scene.
+     */
+    public ZoomPlan plan(IntRect roi, float zoom) {
+        return plan(commonLayers, roi, zoom);
+    }
+
+    /**
+     * Plans a request against the layers of one scene.
+     *
+     * @throws IllegalArgumentException if the document has no such scene.
+     */
+    public ZoomPlan plan(int sceneIndex, IntRect roi, float zoom) {
+        List<Layer> layers = layersByScene.get(sceneIndex);
+        if (layers == null) {
+            throw new IllegalArgumentException("No pyramid statistics for scene " + sceneIndex);
+        }
+        return plan(layers, roi, zoom);
+    }
+
+    private ZoomPlan plan(List<Layer> layers, IntRect roi, float zoom) {
+        if (zoom <= 0) {
+            throw new IllegalArgumentException("Zoom factor must be positive");
+        }
+        Layer chosen = null;
+        for (Layer layer : layers) {
+            chosen = layer;
+            if (layer.zoom() >= zoom * (1 - ZOOM_TOLERANCE)) {
+                break;
+            }
+        }
+        if (chosen == null) {
+            return new ZoomPlan(0, 0, zoom, zoom, 0);
+        }
+        float effectiveZoom = chosen.zoom() >= zoom * (1 - ZOOM_TOLERANCE) ? chosen.zoom() : zoom;
+        return new ZoomPlan(chosen.pyramidLayerNo(), chosen.minificationFactor(), zoom, effectiveZoom,
+                estimateSubBlocks(chosen.count(), roi));
+    }
+
+    private int estimateSubBlocks(int layerCount, IntRect roi) {
+        long boxArea = (long) boundingBox.w() * boundingBox.h();
+        if (layerCount == 0 || boxArea <= 0) {
+            return 0;
+        }
+        long overlapW = Math.min((long) roi.x() + roi.w(), (long) boundingBox.x() + boundingBox.w()) - Math.max(roi.x(), boundingBox.x());
+        long overlapH = Math.min((long) roi.y() + roi.h(), (long) boundingBox.y() + boundingBox.h()) - Math.max(roi.y(), boundingBox.y());
+        if (overlapW <= 0 || overlapH <= 0) {
+            return 0;
+        }
+        double fraction = (double) (overlapW * overlapH) / boxArea;
+        return (int) Math.max(1, Math.ceil(layerCount * fraction));
+    }
+
+    private static int parseScene(String key) {
+        try {
+            return Integer.parseInt(key.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unexpected scene key in pyramid statistics: " + key, e);
+        }
+    }
+
+    private static List<Layer> toLayers(List<PyramidLayerStats> stats) {
+        List<Layer> layers = new ArrayList<>();
+        if (stats == null) {
+            return layers;
+        }
+        for (PyramidLayerStats layerStats : stats) {
+            LayerInfo info = layerStats.getLayerInfo();
+            int layerNo = info.getPyramidLayerNo();
+            int factor = info.getMinificationFactor();
+            if (layerNo == NOT_A_PYRAMID_LAYER || (layerNo > 0 && factor <= 1)) {
+                continue;
+            }
+            float zoom = layerNo == 0 ? 1f : (float) (1 / Math.pow(factor, layerNo));
+            layers.add(new Layer(layerNo, layerNo == 0 ? 0 : factor, zoom, layerStats.getCount()));
+        }
+        layers.sort((a, b) -> Float.compare(a.zoom(), b.zoom()));
+        return Collections.unmodifiableList(layers);
+    }
+
+    // The layers, by zoom, found in every scene, with their counts summed across scenes.
+    private static List<Layer> commonLayers(Iterable<List<Layer>> scenes) {
+        List<Layer> common = null;
+        for (List<Layer> scene : scenes) {
+            if (common == null) {
+                common = new ArrayList<>(scene);
+                continue;
+            }
+            List<Layer> next = new ArrayList<>();
+            for (Layer layer : common) {
+                for (Layer other : scene) {
+                    if (other.zoom() == layer.zoom()) {
+                        next.add(new Layer(layer.pyramidLayerNo(), layer.minificationFactor(), layer.zoom(), layer.count() + other.count()));
+                        break;
+                    }
+                }
+            }
+            common = next;
+        }
+        return common == null ? List.of() : Collections.unmodifiableList(common);
+    }
+
+    @Override
+    public String toString() {
+        return "ZoomPlanner{" + "layersByScene=" + layersByScene + ", layerZooms=" + Arrays.toString(commonZooms) + '}';
+    }
+}
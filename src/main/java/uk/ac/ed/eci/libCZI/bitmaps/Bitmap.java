@@ -1,17 +1,15 @@
 package uk.ac.ed.eci.libCZI.bitmaps;
 
-import java.lang.foreign.FunctionDescriptor;
+import java.awt.image.BufferedImage;
 import java.lang.foreign.MemorySegment;
-import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
 
 import uk.ac.ed.eci.libCZI.CziBitmapException;
-import uk.ac.ed.eci.libCZI.LibCziFFM;
-
-import static java.lang.foreign.ValueLayout.*;
-
-import java.lang.foreign.Arena;
+import uk.ac.ed.eci.libCZI.LibCziFunctions;
+import uk.ac.ed.eci.libCZI.PixelType;
 
 public class Bitmap implements AutoCloseable {
+    private static final int BITMAP_INFO_INTS = (int) (BitmapInfo.layout().byteSize() / Integer.BYTES);
 
     private final MemorySegment bitmapHandle;
 
@@ -27,20 +25,19 @@ public class Bitmap implements AutoCloseable {
         if (bitmapHandle == null || bitmapHandle.address() == 0) {
             return;
         }
-        FunctionDescriptor descriptor = FunctionDescriptor.ofVoid(ADDRESS);
         try {
-            LibCziFFM.getMethodHandle("libCZI_ReleaseBitmap", descriptor).invokeExact(bitmapHandle);
+            LibCziFunctions.RELEASE_BITMAP.invokeExact(bitmapHandle);
         } catch(Throwable e) {
             throw new RuntimeException("Failed to call native function libCZI_ReleaseBitmap");
         }
     }
 
     public BitmapInfo getBitmapInfo() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        try (Arena arena = Arena.ofConfined()) {
-            MethodHandle getBitmapInfo = LibCziFFM.getMethodHandle("libCZI_BitmapGetInfo", descriptor);
-            MemorySegment pBitmapInfo = arena.allocate(BitmapInfo.layout());
-            int errorCode = (int) getBitmapInfo.invokeExact(bitmapHandle, pBitmapInfo);
+        // libCZI_BitmapGetInfo is linked as a critical function with heap access,
+        // so the output struct can live in a plain Java array.
+        try {
+            MemorySegment pBitmapInfo = MemorySegment.ofArray(new int[BITMAP_INFO_INTS]);
+            int errorCode = (int) LibCziFunctions.BITMAP_GET_INFO.invokeExact(bitmapHandle, pBitmapInfo);
             if (errorCode != 0) {
                 throw new CziBitmapException("Failed to get bitmap info. Error code: " + errorCode);
             }
@@ -50,10 +47,18 @@ public class Bitmap implements AutoCloseable {
         }
     }
 
+    /**
+     * Locks the bitmap and returns the lock, through which the pixels can be read in
+     * place with {@link BitmapLock#pixels()} or {@link BitmapLock#row(int)}. The lock
+     * must be closed before the bitmap is released.
+     */
+    public BitmapLock lock() {
+        return new BitmapLock(bitmapHandle, getBitmapInfo());
+    }
+
     public BitmapData getBitmapData() {
-        try (BitmapLock lock = new BitmapLock(bitmapHandle)){                        
-            BitmapInfo info = getBitmapInfo();
-            BitmapData data = new BitmapData(info, lock);
+        try (BitmapLock lock = lock()) {
+            BitmapData data = new BitmapData(lock.bitmapInfo(), lock);
             return data;
         }
         catch(Throwable e) {
@@ -61,6 +66,85 @@ public class Bitmap implements AutoCloseable {
         }
     }
 
+    /**
+     * Copies the pixels into a caller-supplied segment without any intermediate buffer.
+     *
+     * @param destination the segment to write to, starting at offset {@code 0}.
+     * @param destinationStride the distance in bytes between rows in the destination.
+     * @return the size and pixel type of the copied bitmap.
+     * @see BitmapLock#copyTo(MemorySegment, long)
+     */
+    public BitmapInfo copyTo(MemorySegment destination, long destinationStride) {
+        try (BitmapLock lock = lock()) {
+            lock.copyTo(destination, destinationStride);
+            return lock.bitmapInfo();
+        }
+    }
+
+    /**
+     * Copies the pixels into a byte buffer, starting at its current position. The
+     * buffer's position is not changed. Direct buffers are written without any
+     * intermediate copy.
+     *
+     * @param destinationStride the distance in bytes between rows in the destination.
+     * @return the size and pixel type of the copied bitmap.
+     */
+    public BitmapInfo copyTo(ByteBuffer destination, int destinationStride) {
+        return copyTo(MemorySegment.ofBuffer(destination), destinationStride);
+    }
+
+    /**
+     * Copies the pixels of a {@code Gray16} or {@code Bgr48} bitmap into a short array,
+     * in native byte order.
+     *
+     * @param destinationStride the distance in array elements between rows in the destination.
+     * @return the size and pixel type of the copied bitmap.
+     * @throws IllegalArgumentException if the bitmap does not have 16-bit samples.
+     */
+    public BitmapInfo copyTo(short[] destination, int destinationStride) {
+        return copyTo(MemorySegment.ofArray(destination), (long) destinationStride * Short.BYTES, PixelType.Gray16, PixelType.Bgr48);
+    }
+
+    /**
+     * Copies the pixels of a {@code Gray32Float} or {@code Bgr96Float} bitmap into a float
+     * array, in native byte order.
+     *
+     * @param destinationStride the distance in array elements between rows in the destination.
+     * @return the size and pixel type of the copied bitmap.
+     * @throws IllegalArgumentException if the bitmap does not have float samples.
+     */
+    public BitmapInfo copyTo(float[] destination, int destinationStride) {
+        return copyTo(MemorySegment.ofArray(destination), (long) destinationStride * Float.BYTES, PixelType.Gray32Float, PixelType.Bgr96Float);
+    }
+
+    /**
+     * Copies a {@code Gray8}, {@code Gray16} or {@code Bgr24} bitmap into a new
+     * {@link BufferedImage} of the same size.
+     *
+     * @throws UnsupportedOperationException for any other pixel type.
+     * @see BitmapLock#toBufferedImage(int, int)
+     */
+    public BufferedImage toBufferedImage() {
+        try (BitmapLock lock = lock()) {
+            return lock.toBufferedImage(lock.bitmapInfo().width(), lock.bitmapInfo().height());
+        }
+    }
+
+    private BitmapInfo copyTo(MemorySegment destination, long destinationStride, PixelType... allowedPixelTypes) {
+        try (BitmapLock lock = lock()) {
+            PixelType pixelType = lock.bitmapInfo().pixelType();
+            boolean allowed = false;
+            for (PixelType allowedPixelType : allowedPixelTypes) {
+                allowed |= allowedPixelType == pixelType;
+            }
+            if (!allowed) {
+                throw new IllegalArgumentException("Cannot copy " + pixelType + " pixels into this array type");
+            }
+            lock.copyTo(destination, destinationStride);
+            return lock.bitmapInfo();
+        }
+    }
+
     @Override
     public void close() throws Exception {
       //release();
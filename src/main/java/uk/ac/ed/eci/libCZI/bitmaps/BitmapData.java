@@ -1,10 +1,16 @@
 package uk.ac.ed.eci.libCZI.bitmaps;
 
-
 import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_FLOAT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_SHORT_UNALIGNED;
 
 import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
 
 import uk.ac.ed.eci.libCZI.PixelType;
 
@@ -15,45 +21,45 @@ public class BitmapData implements AutoCloseable {
     private final int stride;
     private final long size;
     private final PixelType pixelType;
+    private final int width;
+    private final int height;
 
     BitmapData(BitmapInfo bitmapInfo, BitmapLock lock) {        
+        this(bitmapInfo, lock.stride(), lock.ptrDataRoi().asSlice(0, lock.size()));
+    }
+
+    private BitmapData(BitmapInfo bitmapInfo, int stride, MemorySegment pixels) {
         this.arena = Arena.ofConfined();
-        this.stride = lock.stride();
-        this.size = lock.size();
+        this.stride = stride;
+        this.size = pixels.byteSize();
         this.pixelType = bitmapInfo.pixelType();
-        this.data = arena.allocate(this.size); 
-        MemorySegment.copy(lock.ptrDataRoi(), 0, this.data, 0, this.size);       
+        this.width = bitmapInfo.width();
+        this.height = bitmapInfo.height();
+        this.data = arena.allocate(this.size, Double.BYTES); 
+        MemorySegment.copy(pixels, 0, this.data, 0, this.size);       
     }
 
-    public int pixelSize() {
-        switch (pixelType) {
-            case Gray8:
-                return 1;
-            case Gray16:
-                return 2;
-            case Gray32Float:
-                return 4;
-            case Bgr24:
-                return 3;
-            case Bgr48:
-                return 4;
-            case Bgr96Float:
-                return 8;
-            case Bgra32:
-                return 4;
-            case Gray64ComplexFloat:
-                return 8;
-            case Bgr192ComplexFloat:
-                return 16;
-            case Gray32:
-                return 4;
-            case Gray64Float:
-                return 8;
-            default:
-                throw new UnsupportedOperationException("Unsupported pixel type: " + pixelType);                
+    /**
+     * Copies pixels that did not come from a libCZI bitmap, such as a plane decoded
+     * elsewhere, so they can be read through the same accessors.
+     *
+     * @param pixels {@code bitmapInfo.height()} rows of {@code stride} bytes; the last
+     *               row may omit its padding.
+     */
+    public static BitmapData copyOf(BitmapInfo bitmapInfo, int stride, MemorySegment pixels) {
+        long rowBytes = (long) bitmapInfo.width() * bitmapInfo.pixelType().bytesPerPixel();
+        if (stride < rowBytes || (bitmapInfo.height() > 0 && pixels.byteSize() < (long) stride * (bitmapInfo.height() - 1) + rowBytes)) {
+            throw new IllegalArgumentException("The stride or the pixel data is too small for the bitmap");
         }
+        return new BitmapData(bitmapInfo, stride, pixels);
     }
 
+    public int pixelSize() {
+        if (pixelType == PixelType.Invalid) {
+            throw new UnsupportedOperationException("Unsupported pixel type: " + pixelType);
+        }
+        return pixelType.bytesPerPixel();
+    }
 
     public int stride() {
         return stride;
@@ -63,10 +69,113 @@ public class BitmapData implements AutoCloseable {
         return size;
     }
 
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public PixelType pixelType() {
+        return pixelType;
+    }
+
     public byte[] getBytes() {
         return data.toArray(JAVA_BYTE);
     }
 
+    /**
+     * Copies the samples of a {@code Gray16} or {@code Bgr48} bitmap into a new array,
+     * rows packed one after another with the row padding removed.
+     */
+    public short[] getShorts() {
+        requirePixelType(PixelType.Gray16, PixelType.Bgr48);
+        short[] samples = new short[sampleCount(Short.BYTES)];
+        copySamples(JAVA_SHORT_UNALIGNED, samples);
+        return samples;
+    }
+
+    /**
+     * Copies the samples of a {@code Gray32Float}, {@code Bgr96Float} or
+     * {@code Gray64ComplexFloat} bitmap into a new array, rows packed one after another
+     * with the row padding removed. Complex pixels give two floats, real then imaginary.
+     */
+    public float[] getFloats() {
+        requirePixelType(PixelType.Gray32Float, PixelType.Bgr96Float, PixelType.Gray64ComplexFloat);
+        float[] samples = new float[sampleCount(Float.BYTES)];
+        copySamples(JAVA_FLOAT_UNALIGNED, samples);
+        return samples;
+    }
+
+    /**
+     * Copies the samples of a {@code Gray64Float} bitmap into a new array, rows packed
+     * one after another with the row padding removed.
+     */
+    public double[] getDoubles() {
+        requirePixelType(PixelType.Gray64Float);
+        double[] samples = new double[sampleCount(Double.BYTES)];
+        copySamples(JAVA_DOUBLE_UNALIGNED, samples);
+        return samples;
+    }
+
+    /**
+     * A read-only view of the samples of a {@code Gray16} or {@code Bgr48} bitmap in
+     * native byte order. The view includes any row padding, so row {@code y} starts at
+     * index {@code y * stride() / 2}. It is only valid until this object is closed.
+     */
+    public ShortBuffer asShortBuffer() {
+        requirePixelType(PixelType.Gray16, PixelType.Bgr48);
+        return data.asReadOnly().asByteBuffer().order(ByteOrder.nativeOrder()).asShortBuffer();
+    }
+
+    /**
+     * A read-only view of the samples of a {@code Gray32Float}, {@code Bgr96Float} or
+     * {@code Gray64ComplexFloat} bitmap in native byte order. The view includes any row
+     * padding, so row {@code y} starts at index {@code y * stride() / 4}. It is only
+     * valid until this object is closed.
+     */
+    public FloatBuffer asFloatBuffer() {
+        requirePixelType(PixelType.Gray32Float, PixelType.Bgr96Float, PixelType.Gray64ComplexFloat);
+        return data.asReadOnly().asByteBuffer().order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**
+     * The pixel data of row {@code y}, without the row padding.
+     */
+    MemorySegment row(int y) {
+        return data.asSlice((long) y * stride, rowBytes());
+    }
+
+    private int sampleCount(int sampleBytes) {
+        return Math.toIntExact(rowBytes() / sampleBytes * height);
+    }
+
+    private long rowBytes() {
+        return (long) width * pixelType.bytesPerPixel();
+    }
+
+    private void copySamples(ValueLayout sampleLayout, Object destinationArray) {
+        long rowBytes = rowBytes();
+        int samplesPerRow = (int) (rowBytes / sampleLayout.byteSize());
+        if (stride == rowBytes) {
+            MemorySegment.copy(data, sampleLayout, 0, destinationArray, 0, samplesPerRow * height);
+            return;
+        }
+        for (int y = 0; y < height; y++) {
+            MemorySegment.copy(data, sampleLayout, (long) y * stride, destinationArray, y * samplesPerRow, samplesPerRow);
+        }
+    }
+
+    private void requirePixelType(PixelType... pixelTypes) {
+        for (PixelType type : pixelTypes) {
+            if (type == pixelType) {
+                return;
+            }
+        }
+        throw new UnsupportedOperationException("Operation not supported for pixel type: " + pixelType);
+    }
+
     @Override
     public void close() throws Exception {
         arena.close();
@@ -1,21 +1,38 @@
 package uk.ac.ed.eci.libCZI.bitmaps;
 
-import static java.lang.foreign.ValueLayout.ADDRESS;
-import static java.lang.foreign.ValueLayout.JAVA_INT;
-
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferUShort;
 import java.lang.foreign.Arena;
-import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.MemorySegment;
-import java.lang.invoke.MethodHandle;
 
 import uk.ac.ed.eci.libCZI.CziBitmapException;
-import uk.ac.ed.eci.libCZI.LibCziFFM;
+import uk.ac.ed.eci.libCZI.LibCziFunctions;
 
+/**
+ * Holds a lock on a native bitmap, keeping its pixel buffer at a fixed address.
+ * <p>
+ * {@link #pixels()} and {@link #row(int)} give read-only views straight onto the
+ * locked native memory, so pixels can be consumed without copying. The views are
+ * only valid while the lock is held; once {@link #close()} has been called any access
+ * through them throws {@link IllegalStateException}.
+ * </p>
+ */
 public class BitmapLock implements AutoCloseable {
+    // The lock info struct is written into a heap array, so taking a lock needs no native allocation.
+    private static final int LOCK_INFO_LONGS = (int) ((BitmapLockInfo.layout().byteSize() + Long.BYTES - 1) / Long.BYTES);
+
     private final MemorySegment bitmapHandle;
-    private final Arena arena;
+    private final BitmapInfo bitmapInfo;
     private final IBitmapLockInfo bitmapLockInfo;
-    
+    // Created on first request for a view, so that locks which never hand out a view stay allocation-free.
+    private Arena viewArena;
+    private MemorySegment pixels;
+
+    public BitmapInfo bitmapInfo() {
+        return bitmapInfo;
+    }
+
     public int stride() {
         return bitmapLockInfo.stride();
     }
@@ -28,9 +45,124 @@ public class BitmapLock implements AutoCloseable {
         return bitmapLockInfo.ptrDataRoi();
     }
 
-    BitmapLock(MemorySegment bitmapHandle) {
+    /**
+     * A read-only view of the locked pixel buffer, {@link #size()} bytes long, with
+     * rows {@link #stride()} bytes apart. Rows may be padded, so a row holds
+     * {@link #rowBytes()} bytes of pixel data followed by {@code stride() - rowBytes()}
+     * bytes of padding.
+     *
+     * @return a view that is valid until this lock is closed.
+     */
+    public MemorySegment pixels() {
+        if (pixels == null) {
+            viewArena = Arena.ofConfined();
+            pixels = bitmapLockInfo.ptrDataRoi().reinterpret(viewArena, null).asReadOnly();
+        }
+        return pixels;
+    }
+
+    /**
+     * A read-only view of the pixel data of one row, without the row padding.
+     *
+     * @param y the row index, from {@code 0} to {@code height - 1}.
+     * @return a view that is valid until this lock is closed.
+     */
+    public MemorySegment row(int y) {
+        if (y < 0 || y >= bitmapInfo.height()) {
+            throw new IndexOutOfBoundsException("Row " + y + " is outside the bitmap height " + bitmapInfo.height());
+        }
+        return pixels().asSlice((long) y * stride(), rowBytes());
+    }
+
+    /**
+     * The number of bytes of pixel data in each row, that is the width multiplied by
+     * the size of one pixel.
+     */
+    public long rowBytes() {
+        return (long) bitmapInfo.width() * bitmapInfo.pixelType().bytesPerPixel();
+    }
+
+    /**
+     * Copies the locked pixels into {@code destination}, one row at a time, placing
+     * successive rows {@code destinationStride} bytes apart. The source row padding is
+     * not copied and any padding in the destination is left untouched. When both the
+     * source and the destination are tightly packed the copy is done in a single bulk
+     * operation.
+     *
+     * @param destination the segment to write to, starting at offset {@code 0}.
+     * @param destinationStride the distance in bytes between the starts of two rows in
+     *                          the destination; must be at least {@link #rowBytes()}.
+     * @throws IllegalArgumentException if the stride is too small or the destination
+     *                                  cannot hold the whole bitmap.
+     */
+    public void copyTo(MemorySegment destination, long destinationStride) {
+        copyTo(destination, destinationStride, bitmapInfo.width(), bitmapInfo.height());
+    }
+
+    /**
+     * Copies the top-left {@code columns} by {@code rows} pixels into {@code destination},
+     * for example to clip a tile at the edge of a larger image.
+     *
+     * @see #copyTo(MemorySegment, long)
+     */
+    public void copyTo(MemorySegment destination, long destinationStride, int columns, int rows) {
+        if (columns < 0 || rows < 0 || columns > bitmapInfo.width() || rows > bitmapInfo.height()) {
+            throw new IndexOutOfBoundsException("Cannot copy " + columns + "x" + rows + " pixels from a "
+                    + bitmapInfo.width() + "x" + bitmapInfo.height() + " bitmap");
+        }
+        long rowBytes = (long) columns * bitmapInfo.pixelType().bytesPerPixel();
+        if (destinationStride < rowBytes) {
+            throw new IllegalArgumentException("Destination stride " + destinationStride + " is less than the row size " + rowBytes);
+        }
+        if (rows == 0 || columns == 0) {
+            return;
+        }
+        long required = (rows - 1) * destinationStride + rowBytes;
+        if (destination.byteSize() < required) {
+            throw new IllegalArgumentException("Destination holds " + destination.byteSize() + " bytes but " + required + " are needed");
+        }
+        MemorySegment source = bitmapLockInfo.ptrDataRoi();
+        long sourceStride = stride();
+        if (sourceStride == rowBytes && destinationStride == rowBytes) {
+            MemorySegment.copy(source, 0, destination, 0, rowBytes * rows);
+            return;
+        }
+        for (int y = 0; y < rows; y++) {
+            MemorySegment.copy(source, y * sourceStride, destination, y * destinationStride, rowBytes);
+        }
+    }
+
+    /**
+     * Copies the locked pixels into a new {@code width} by {@code height}
+     * {@link BufferedImage}. A {@code Gray8}, {@code Gray16} or {@code Bgr24} bitmap gives
+     * an image of type {@code TYPE_BYTE_GRAY}, {@code TYPE_USHORT_GRAY} or
+     * {@code TYPE_3BYTE_BGR} respectively. A bitmap larger than the image is clipped, and
+     * any part of the image the bitmap does not reach is left white.
+     *
+     * @throws UnsupportedOperationException for any other pixel type.
+     */
+    public BufferedImage toBufferedImage(int width, int height) {
+        BufferedImage image = switch (bitmapInfo.pixelType()) {
+            case Gray8 -> new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            case Gray16 -> new BufferedImage(width, height, BufferedImage.TYPE_USHORT_GRAY);
+            case Bgr24 -> new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+            default -> throw new UnsupportedOperationException("Operation not supported for pixel type: " + bitmapInfo.pixelType());
+        };
+        MemorySegment imagePixels = image.getRaster().getDataBuffer() instanceof DataBufferUShort ushorts
+                ? MemorySegment.ofArray(ushorts.getData())
+                : MemorySegment.ofArray(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+        int columns = Math.min(bitmapInfo.width(), width);
+        int rows = Math.min(bitmapInfo.height(), height);
+        if (columns < width || rows < height) {
+            imagePixels.fill((byte) 0xFF);
+        }
+        copyTo(imagePixels, (long) width * bitmapInfo.pixelType().bytesPerPixel(), columns, rows);
+        return image;
+    }
+
+    BitmapLock(MemorySegment bitmapHandle, BitmapInfo bitmapInfo) {
         this.bitmapHandle = bitmapHandle;
-        this.arena = Arena.ofConfined();
+        this.bitmapInfo = bitmapInfo;
         this.bitmapLockInfo = lock(bitmapHandle);
         //this.bitmapLockInfo = new BitmapLockFake();
     }
@@ -39,11 +171,9 @@ public class BitmapLock implements AutoCloseable {
         if (bitmapHandle == null || bitmapHandle.address() == 0) {
             return null;
         }
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
         try {
-            MemorySegment pBitmapLockInfo = arena.allocate(BitmapLockInfo.layout());
-            MethodHandle bitmapLock = LibCziFFM.getMethodHandle("libCZI_BitmapLock", descriptor);
-            int errorCode = (int) bitmapLock.invokeExact(bitmapHandle, pBitmapLockInfo);
+            MemorySegment pBitmapLockInfo = MemorySegment.ofArray(new long[LOCK_INFO_LONGS]);
+            int errorCode = (int) LibCziFunctions.BITMAP_LOCK.invokeExact(bitmapHandle, pBitmapLockInfo);
             if (errorCode != 0) {
                 throw new CziBitmapException("Failed to lock bitmap. Error code: " + errorCode);
             }
@@ -56,17 +186,19 @@ public class BitmapLock implements AutoCloseable {
     }
 
     void unlock() {
-        FunctionDescriptor descriptor = FunctionDescriptor.ofVoid(ADDRESS);
         try {
-            LibCziFFM.getMethodHandle("libCZI_BitmapUnlock", descriptor).invokeExact(bitmapHandle);
+            LibCziFunctions.BITMAP_UNLOCK.invokeExact(bitmapHandle);
         } catch (Throwable e) {
             throw new RuntimeException("Failed to call native function libCZI_UnlockBitmap", e);
         }
     }
+
     @Override
-    public void close() throws Exception {
+    public void close() {
+        if (viewArena != null) {
+            viewArena.close();
+        }
         unlock();
-        arena.close();
     }
     
 }
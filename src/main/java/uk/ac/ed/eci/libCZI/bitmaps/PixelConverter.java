@@ -0,0 +1,192 @@
+package uk.ac.ed.eci.libCZI.bitmaps;
+
+import java.lang.foreign.MemorySegment;
+
+import uk.ac.ed.eci.libCZI.PixelType;
+
+/**
+ * Converts decoded pixels into the layouts usually needed for display: BGR to RGB
+ * swizzling, window/level of 16-bit samples down to 8 bits, and packing into ARGB ints.
+ * <p>
+ * Two implementations are available. {@link #vectorized()} uses the incubating
+ * {@code jdk.incubator.vector} API and is only available when that module has been
+ * added to the runtime, for example with {@code --add-modules jdk.incubator.vector}.
+ * {@link #scalar()} is plain Java and always available. {@link #getDefault()} returns
+ * the vectorised converter when it can be used and the scalar one otherwise.
+ * Both produce identical output.
+ * </p>
+ * <p>
+ * The segment methods work on tightly packed pixels. The {@link BitmapData} methods
+ * take care of the row stride and return packed arrays.
+ * </p>
+ */
+public abstract class PixelConverter {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final PixelConverter SCALAR = new ScalarPixelConverter();
+    private static final PixelConverter VECTOR = loadVectorConverter();
+
+    PixelConverter() {
+    }
+
+    /**
+     * @return the fastest converter available in this runtime.
+     */
+    public static PixelConverter getDefault() {
+        return VECTOR != null ? VECTOR : SCALAR;
+    }
+
+    /**
+     * @return the plain Java converter.
+     */
+    public static PixelConverter scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * @return the converter backed by the Vector API.
+     * @throws UnsupportedOperationException if {@code jdk.incubator.vector} is not available.
+     */
+    public static PixelConverter vectorized() {
+        if (VECTOR == null) {
+            throw new UnsupportedOperationException("The " + VECTOR_MODULE + " module is not available");
+        }
+        return VECTOR;
+    }
+
+    /**
+     * @return {@code true} if {@link #vectorized()} can be used.
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR != null;
+    }
+
+    private static PixelConverter loadVectorConverter() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return new VectorPixelConverter();
+        } catch (LinkageError | RuntimeException e) {
+            // Module present but unusable, e.g. no vector shape on this platform.
+            return null;
+        }
+    }
+
+    /**
+     * Swaps the blue and red bytes of {@code pixelCount} {@code Bgr24} pixels. The
+     * source and destination may be the same segment.
+     */
+    public void bgr24ToRgb24(MemorySegment source, MemorySegment destination, long pixelCount) {
+        checkSize(source, pixelCount * 3);
+        checkSize(destination, pixelCount * 3);
+        swapBgr24(source, destination, pixelCount);
+    }
+
+    /**
+     * Swaps the blue and red samples of {@code pixelCount} {@code Bgr48} pixels. The
+     * source and destination may be the same segment.
+     */
+    public void bgr48ToRgb48(MemorySegment source, MemorySegment destination, long pixelCount) {
+        checkSize(source, pixelCount * 6);
+        checkSize(destination, pixelCount * 6);
+        swapBgr48(source, destination, pixelCount);
+    }
+
+    /**
+     * Maps unsigned 16-bit samples to 8 bits. Values at or below {@code windowLow}
+     * become {@code 0}, values at or above {@code windowHigh} become {@code 255}, and
+     * values in between are scaled linearly.
+     *
+     * @param sampleCount the number of samples, which is three times the pixel count
+     *                    for {@code Bgr48}.
+     */
+    public void windowLevel16To8(MemorySegment source, MemorySegment destination, long sampleCount, int windowLow, int windowHigh) {
+        if (windowLow < 0 || windowHigh > 0xFFFF || windowLow >= windowHigh) {
+            throw new IllegalArgumentException("Invalid window [" + windowLow + ", " + windowHigh + "]");
+        }
+        checkSize(source, sampleCount * 2);
+        checkSize(destination, sampleCount);
+        windowLevel(source, destination, sampleCount, windowLow, 255f / (windowHigh - windowLow));
+    }
+
+    /**
+     * Packs {@code Bgr24} pixels into opaque ARGB ints, written in native byte order.
+     */
+    public void bgr24ToArgb(MemorySegment source, MemorySegment destination, long pixelCount) {
+        checkSize(source, pixelCount * 3);
+        checkSize(destination, pixelCount * 4);
+        packArgb(source, destination, pixelCount);
+    }
+
+    /**
+     * Converts a {@code Bgr24} bitmap to packed RGB bytes.
+     */
+    public byte[] toRgb24(BitmapData data) {
+        requirePixelType(data, PixelType.Bgr24);
+        byte[] result = new byte[Math.toIntExact((long) data.width() * data.height() * 3)];
+        MemorySegment destination = MemorySegment.ofArray(result);
+        long rowBytes = (long) data.width() * 3;
+        for (int y = 0; y < data.height(); y++) {
+            swapBgr24(data.row(y), destination.asSlice(y * rowBytes, rowBytes), data.width());
+        }
+        return result;
+    }
+
+    /**
+     * Converts a {@code Bgr24} bitmap to packed ARGB ints, as used by
+     * {@code java.awt.image.BufferedImage.TYPE_INT_ARGB}.
+     */
+    public int[] toArgb(BitmapData data) {
+        requirePixelType(data, PixelType.Bgr24);
+        int[] result = new int[Math.multiplyExact(data.width(), data.height())];
+        MemorySegment destination = MemorySegment.ofArray(result);
+        long rowBytes = (long) data.width() * Integer.BYTES;
+        // Rows are packed into a byte[] first, as the Vector API can only store to byte-backed heap segments.
+        MemorySegment row = MemorySegment.ofArray(new byte[Math.toIntExact(rowBytes)]);
+        for (int y = 0; y < data.height(); y++) {
+            packArgb(data.row(y), row, data.width());
+            MemorySegment.copy(row, 0, destination, y * rowBytes, rowBytes);
+        }
+        return result;
+    }
+
+    /**
+     * Applies a window/level to a {@code Gray16} or {@code Bgr48} bitmap, giving one
+     * byte per sample (so {@code Bgr48} becomes {@code Bgr24}).
+     *
+     * @see #windowLevel16To8(MemorySegment, MemorySegment, long, int, int)
+     */
+    public byte[] toWindowed8(BitmapData data, int windowLow, int windowHigh) {
+        requirePixelType(data, PixelType.Gray16, PixelType.Bgr48);
+        long samplesPerRow = (long) data.width() * data.pixelSize() / Short.BYTES;
+        byte[] result = new byte[Math.toIntExact(samplesPerRow * data.height())];
+        MemorySegment destination = MemorySegment.ofArray(result);
+        for (int y = 0; y < data.height(); y++) {
+            windowLevel16To8(data.row(y), destination.asSlice(y * samplesPerRow, samplesPerRow), samplesPerRow, windowLow, windowHigh);
+        }
+        return result;
+    }
+
+    abstract void swapBgr24(MemorySegment source, MemorySegment destination, long pixelCount);
+
+    abstract void swapBgr48(MemorySegment source, MemorySegment destination, long pixelCount);
+
+    abstract void windowLevel(MemorySegment source, MemorySegment destination, long sampleCount, int windowLow, float scale);
+
+    abstract void packArgb(MemorySegment source, MemorySegment destination, long pixelCount);
+
+    private static void checkSize(MemorySegment segment, long requiredBytes) {
+        if (segment.byteSize() < requiredBytes) {
+            throw new IllegalArgumentException("Segment holds " + segment.byteSize() + " bytes but " + requiredBytes + " are needed");
+        }
+    }
+
+    private static void requirePixelType(BitmapData data, PixelType... pixelTypes) {
+        for (PixelType type : pixelTypes) {
+            if (type == data.pixelType()) {
+                return;
+            }
+        }
+        throw new UnsupportedOperationException("Operation not supported for pixel type: " + data.pixelType());
+    }
+}
@@ -0,0 +1,76 @@
+package uk.ac.ed.eci.libCZI.bitmaps;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_SHORT_UNALIGNED;
+
+import java.lang.foreign.MemorySegment;
+
+/**
+ * Plain Java conversion kernels. Also used by {@link VectorPixelConverter} for the
+ * pixels left over after the last whole vector.
+ */
+final class ScalarPixelConverter extends PixelConverter {
+
+    @Override
+    void swapBgr24(MemorySegment source, MemorySegment destination, long pixelCount) {
+        swapBgr24(source, destination, 0, pixelCount);
+    }
+
+    @Override
+    void swapBgr48(MemorySegment source, MemorySegment destination, long pixelCount) {
+        swapBgr48(source, destination, 0, pixelCount);
+    }
+
+    @Override
+    void windowLevel(MemorySegment source, MemorySegment destination, long sampleCount, int windowLow, float scale) {
+        windowLevel(source, destination, 0, sampleCount, windowLow, scale);
+    }
+
+    @Override
+    void packArgb(MemorySegment source, MemorySegment destination, long pixelCount) {
+        packArgb(source, destination, 0, pixelCount);
+    }
+
+    static void swapBgr24(MemorySegment source, MemorySegment destination, long fromPixel, long pixelCount) {
+        for (long p = fromPixel; p < pixelCount; p++) {
+            long offset = p * 3;
+            byte b = source.get(JAVA_BYTE, offset);
+            byte g = source.get(JAVA_BYTE, offset + 1);
+            byte r = source.get(JAVA_BYTE, offset + 2);
+            destination.set(JAVA_BYTE, offset, r);
+            destination.set(JAVA_BYTE, offset + 1, g);
+            destination.set(JAVA_BYTE, offset + 2, b);
+        }
+    }
+
+    static void swapBgr48(MemorySegment source, MemorySegment destination, long fromPixel, long pixelCount) {
+        for (long p = fromPixel; p < pixelCount; p++) {
+            long offset = p * 6;
+            short b = source.get(JAVA_SHORT_UNALIGNED, offset);
+            short g = source.get(JAVA_SHORT_UNALIGNED, offset + 2);
+            short r = source.get(JAVA_SHORT_UNALIGNED, offset + 4);
+            destination.set(JAVA_SHORT_UNALIGNED, offset, r);
+            destination.set(JAVA_SHORT_UNALIGNED, offset + 2, g);
+            destination.set(JAVA_SHORT_UNALIGNED, offset + 4, b);
+        }
+    }
+
+    static void windowLevel(MemorySegment source, MemorySegment destination, long fromSample, long sampleCount, int windowLow, float scale) {
+        for (long i = fromSample; i < sampleCount; i++) {
+            int value = Short.toUnsignedInt(source.get(JAVA_SHORT_UNALIGNED, i * 2));
+            float scaled = Math.min(Math.max((value - windowLow) * scale, 0f), 255f);
+            destination.set(JAVA_BYTE, i, (byte) (int) scaled);
+        }
+    }
+
+    static void packArgb(MemorySegment source, MemorySegment destination, long fromPixel, long pixelCount) {
+        for (long p = fromPixel; p < pixelCount; p++) {
+            long offset = p * 3;
+            int b = source.get(JAVA_BYTE, offset) & 0xFF;
+            int g = source.get(JAVA_BYTE, offset + 1) & 0xFF;
+            int r = source.get(JAVA_BYTE, offset + 2) & 0xFF;
+            destination.set(JAVA_INT_UNALIGNED, p * 4, 0xFF000000 | (r << 16) | (g << 8) | b);
+        }
+    }
+}
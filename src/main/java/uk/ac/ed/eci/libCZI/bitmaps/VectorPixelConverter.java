@@ -0,0 +1,160 @@
+package uk.ac.ed.eci.libCZI.bitmaps;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Conversion kernels using the Vector API at the platform's preferred vector size.
+ * <p>
+ * The swizzles work on whole pixels inside one vector: a 16 lane byte vector holds five
+ * {@code Bgr24} pixels, so each step converts five pixels and advances 15 bytes. The
+ * lanes past the last whole pixel are copied unchanged and then overwritten by the
+ * next step. Whatever is left after the last full vector is done by
+ * {@link ScalarPixelConverter}, as is any call on a heap segment that is not backed by
+ * a {@code byte[]}, which the Vector API cannot load from or store to.
+ * </p>
+ */
+final class VectorPixelConverter extends PixelConverter {
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // Same lane count as SHORTS, for narrowing the windowed samples to bytes.
+    private static final VectorSpecies<Byte> NARROW_BYTES = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(SHORTS.vectorBitSize() / 2));
+
+    private static final int BGR24_PIXELS_PER_STEP = BYTES.length() / 3;
+    private static final VectorShuffle<Byte> BGR24_SWAP = VectorShuffle.fromOp(BYTES,
+            i -> i < BGR24_PIXELS_PER_STEP * 3 ? swapIndex(i) : i);
+
+    private static final int BGR48_PIXELS_PER_STEP = SHORTS.length() / 3;
+    private static final VectorShuffle<Short> BGR48_SWAP = VectorShuffle.fromOp(SHORTS,
+            i -> i < BGR48_PIXELS_PER_STEP * 3 ? swapIndex(i) : i);
+
+    private static final int ARGB_PIXELS_PER_STEP = BYTES.length() / 4;
+    private static final VectorShuffle<Byte> ARGB_SPREAD = VectorShuffle.fromOp(BYTES, VectorPixelConverter::argbSourceIndex);
+    private static final VectorMask<Byte> ARGB_ALPHA = VectorMask.fromLong(BYTES, alphaLanes());
+
+    private static int swapIndex(int lane) {
+        int pixelStart = lane - lane % 3;
+        return pixelStart + 2 - lane % 3;
+    }
+
+    // Byte j of the output comes from byte argbSourceIndex(j) of the Bgr24 input.
+    // Alpha lanes are filled by ARGB_ALPHA, so their source index does not matter.
+    private static int argbSourceIndex(int lane) {
+        int pixel = lane / 4;
+        int component = lane % 4;
+        if (ORDER == ByteOrder.LITTLE_ENDIAN) {
+            return component == 3 ? 0 : pixel * 3 + component;
+        }
+        return component == 0 ? 0 : pixel * 3 + 3 - component;
+    }
+
+    private static long alphaLanes() {
+        int alphaComponent = ORDER == ByteOrder.LITTLE_ENDIAN ? 3 : 0;
+        long bits = 0;
+        for (int lane = 0; lane < BYTES.length(); lane++) {
+            if (lane % 4 == alphaComponent) {
+                bits |= 1L << lane;
+            }
+        }
+        return bits;
+    }
+
+    private static boolean isVectorAccessible(MemorySegment segment) {
+        return segment.heapBase().map(base -> base instanceof byte[]).orElse(true);
+    }
+
+    @Override
+    void swapBgr24(MemorySegment source, MemorySegment destination, long pixelCount) {
+        if (!isVectorAccessible(source) || !isVectorAccessible(destination)) {
+            ScalarPixelConverter.swapBgr24(source, destination, 0, pixelCount);
+            return;
+        }
+        long byteCount = pixelCount * 3;
+        long pixel = 0;
+        for (; pixel * 3 + BYTES.length() <= byteCount; pixel += BGR24_PIXELS_PER_STEP) {
+            long offset = pixel * 3;
+            ByteVector.fromMemorySegment(BYTES, source, offset, ORDER)
+                    .rearrange(BGR24_SWAP)
+                    .intoMemorySegment(destination, offset, ORDER);
+        }
+        ScalarPixelConverter.swapBgr24(source, destination, pixel, pixelCount);
+    }
+
+    @Override
+    void swapBgr48(MemorySegment source, MemorySegment destination, long pixelCount) {
+        if (!isVectorAccessible(source) || !isVectorAccessible(destination)) {
+            ScalarPixelConverter.swapBgr48(source, destination, 0, pixelCount);
+            return;
+        }
+        long sampleCount = pixelCount * 3;
+        long pixel = 0;
+        for (; pixel * 3 + SHORTS.length() <= sampleCount; pixel += BGR48_PIXELS_PER_STEP) {
+            long offset = pixel * 6;
+            ShortVector.fromMemorySegment(SHORTS, source, offset, ORDER)
+                    .rearrange(BGR48_SWAP)
+                    .intoMemorySegment(destination, offset, ORDER);
+        }
+        ScalarPixelConverter.swapBgr48(source, destination, pixel, pixelCount);
+    }
+
+    @Override
+    void windowLevel(MemorySegment source, MemorySegment destination, long sampleCount, int windowLow, float scale) {
+        if (!isVectorAccessible(source) || !isVectorAccessible(destination)) {
+            ScalarPixelConverter.windowLevel(source, destination, 0, sampleCount, windowLow, scale);
+            return;
+        }
+        long i = 0;
+        for (; i + SHORTS.length() <= sampleCount; i += SHORTS.length()) {
+            ShortVector samples = ShortVector.fromMemorySegment(SHORTS, source, i * 2, ORDER);
+            ShortVector low = scaleHalf(samples, 0, windowLow, scale);
+            ShortVector high = scaleHalf(samples, 1, windowLow, scale);
+            ShortVector scaled = low.or(high);
+            ((ByteVector) scaled.convertShape(VectorOperators.S2B, NARROW_BYTES, 0))
+                    .intoMemorySegment(destination, i, ORDER);
+        }
+        ScalarPixelConverter.windowLevel(source, destination, i, sampleCount, windowLow, scale);
+    }
+
+    // Widens one half of the samples to int, scales and clamps them, and narrows them back into
+    // the same half of a short vector with the other half zero.
+    private static ShortVector scaleHalf(ShortVector samples, int part, int windowLow, float scale) {
+        IntVector values = (IntVector) samples.convertShape(VectorOperators.ZERO_EXTEND_S2I, INTS, part);
+        FloatVector scaled = ((FloatVector) values.sub(windowLow).convert(VectorOperators.I2F, 0))
+                .mul(scale)
+                .max(0f)
+                .min(255f);
+        return (ShortVector) scaled.convert(VectorOperators.F2I, 0)
+                .convertShape(VectorOperators.I2S, SHORTS, -part);
+    }
+
+    @Override
+    void packArgb(MemorySegment source, MemorySegment destination, long pixelCount) {
+        if (!isVectorAccessible(source) || !isVectorAccessible(destination)) {
+            ScalarPixelConverter.packArgb(source, destination, 0, pixelCount);
+            return;
+        }
+        long byteCount = pixelCount * 3;
+        long pixel = 0;
+        for (; pixel * 3 + BYTES.length() <= byteCount; pixel += ARGB_PIXELS_PER_STEP) {
+            ByteVector.fromMemorySegment(BYTES, source, pixel * 3, ORDER)
+                    .rearrange(ARGB_SPREAD)
+                    .blend((byte) 0xFF, ARGB_ALPHA)
+                    .intoMemorySegment(destination, pixel * 4, ORDER);
+        }
+        ScalarPixelConverter.packArgb(source, destination, pixel, pixelCount);
+    }
+}
@@ -0,0 +1,207 @@
+package uk.ac.ed.eci.libCZI.deepzoom;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import uk.ac.ed.eci.libCZI.CZIInputStream;
+import uk.ac.ed.eci.libCZI.IntRect;
+import uk.ac.ed.eci.libCZI.SingleChannelTileAccessor;
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapLock;
+import uk.ac.ed.eci.libCZI.internal.TileWorkerPool;
+import uk.ac.ed.eci.libCZI.internal.TileWorkerPool.Worker;
+
+/**
+ * Renders every tile of a deep-zoom pyramid (DZI or XYZ) over the layer 0 bounding box
+ * of a CZI document, and streams the encoded tiles to a {@link TileSink}.
+ * <p>
+ * Tiles are rendered on a fixed pool of workers, each with its own stream, reader and
+ * {@link SingleChannelTileAccessor}. At most twice as many tiles as there are workers
+ * are in flight at once, so a slow sink holds the renderers back rather than letting
+ * encoded tiles pile up in memory.
+ * </p>
+ * <p>
+ * Tiles of {@code Gray8}, {@code Gray16} and {@code Bgr24} channels are supported.
+ * Areas without sub-blocks are rendered white.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public class DeepZoomGenerator implements AutoCloseable {
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    private final TileWorkerPool workers;
+    private final ExecutorService executor;
+    private final TileGrid grid;
+    private final IntRect boundingBox;
+    private final TileEncoder encoder;
+    private final int channel;
+
+    /**
+     * Creates a generator for channel 0 with one worker per available processor,
+     * 256 pixel JPEG tiles and no overlap.
+     */
+    public DeepZoomGenerator(String path, GridLayout layout) {
+        this(() -> CZIInputStream.createInputStreamFromFileUTF8(path), Runtime.getRuntime().availableProcessors(),
+                layout, DEFAULT_TILE_SIZE, 0, TileEncoder.jpeg(0.9f), 0);
+    }
+
+    /**
+     * @param streams opens a new stream on the file for each worker.
+     * @param threads the number of workers and threads.
+     * @param layout the tile grid convention.
+     * @param tileSize the width and height of a tile, for example 256 or 512.
+     * @param overlap the tile overlap in pixels, for DZI only.
+     * @param encoder encodes the rendered tiles.
+     * @param channel the channel to render.
+     */
+    public DeepZoomGenerator(Supplier<CZIInputStream> streams, int threads, GridLayout layout, int tileSize, int overlap,
+            TileEncoder encoder, int channel) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.encoder = encoder;
+        this.channel = channel;
+        this.workers = new TileWorkerPool(streams, threads);
+        Worker worker = workers.borrow();
+        try {
+            this.boundingBox = worker.reader().simpleReaderStatistics().boundingBoxLayer0();
+        } finally {
+            workers.giveBack(worker);
+        }
+        this.grid = new TileGrid(layout, boundingBox.w(), boundingBox.h(), tileSize, overlap);
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    public TileGrid grid() {
+        return grid;
+    }
+
+    /**
+     * Generates every level of the pyramid.
+     *
+     * @param name the base name of the output, see {@link TileGrid#tilePath}.
+     */
+    public GenerationReport generate(TileSink sink, String name) throws IOException {
+        return generate(sink, name, 0, grid.levelCount() - 1, null);
+    }
+
+    /**
+     * Generates the levels from {@code firstLevel} to {@code lastLevel} inclusive, and
+     * the descriptor if the layout has one.
+     *
+     * @param progress called with the totals so far after each level, or {@code null}.
+     * @return the totals for the whole run.
+     * @throws IOException if the sink or encoder failed. Tiles still in flight are
+     *                     finished before this is thrown, but no new tiles are started.
+     */
+    public GenerationReport generate(TileSink sink, String name, int firstLevel, int lastLevel,
+            Consumer<GenerationReport> progress) throws IOException {
+        if (firstLevel < 0 || lastLevel >= grid.levelCount() || firstLevel > lastLevel) {
+            throw new IllegalArgumentException("Invalid level range " + firstLevel + ".." + lastLevel);
+        }
+        long start = System.nanoTime();
+        LongAdder tiles = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        String descriptor = grid.descriptor(encoder.extension());
+        if (descriptor != null) {
+            sink.write(grid.descriptorPath(name), descriptor.getBytes(StandardCharsets.UTF_8));
+        }
+        int maxInFlight = workers.size() * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int level = firstLevel; level <= lastLevel && failure.get() == null; level++) {
+            for (int row = 0; row < grid.rows(level) && failure.get() == null; row++) {
+                for (int column = 0; column < grid.columns(level) && failure.get() == null; column++) {
+                    acquire(inFlight, 1);
+                    int tileLevel = level, tileColumn = column, tileRow = row;
+                    executor.execute(() -> {
+                        try {
+                            byte[] data = encoder.encode(renderTile(tileLevel, tileColumn, tileRow));
+                            sink.write(grid.tilePath(name, tileLevel, tileColumn, tileRow, encoder.extension()), data);
+                            tiles.increment();
+                            bytes.add(data.length);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            }
+            if (progress != null) {
+                acquire(inFlight, maxInFlight);
+                inFlight.release(maxInFlight);
+                progress.accept(report(tiles, bytes, start));
+            }
+        }
+        acquire(inFlight, maxInFlight);
+        inFlight.release(maxInFlight);
+        Throwable error = failure.get();
+        if (error instanceof IOException e) {
+            throw e;
+        }
+        if (error instanceof UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (error instanceof RuntimeException e) {
+            throw e;
+        }
+        if (error != null) {
+            throw new RuntimeException("Failed to generate tile", error);
+        }
+        return report(tiles, bytes, start);
+    }
+
+    private BufferedImage renderTile(int level, int column, int row) {
+        IntRect tile = grid.tileRect(level, column, row);
+        long downsample = grid.downsample(level);
+        IntRect raw = new IntRect(
+                Math.toIntExact(boundingBox.x() + tile.x() * downsample),
+                Math.toIntExact(boundingBox.y() + tile.y() * downsample),
+                Math.toIntExact(tile.w() * downsample),
+                Math.toIntExact(tile.h() * downsample));
+        Worker worker = workers.borrow();
+        try {
+            Bitmap bitmap = worker.accessor().getBitmapRaw(raw, 1f / downsample, channel, 1, 1, 1);
+            // The tile may come back a pixel short of the grid size after rounding; the
+            // image is then left white beyond it.
+            try (BitmapLock lock = bitmap.lock()) {
+                return lock.toBufferedImage(tile.w(), tile.h());
+            } finally {
+                bitmap.release();
+            }
+        } finally {
+            workers.giveBack(worker);
+        }
+    }
+
+    private static GenerationReport report(LongAdder tiles, LongAdder bytes, long start) {
+        return new GenerationReport(tiles.sum(), bytes.sum(), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static void acquire(Semaphore semaphore, int permits) {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating tiles", e);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        executor.shutdown();
+        workers.close();
+    }
+}
@@ -0,0 +1,18 @@
+package uk.ac.ed.eci.libCZI.deepzoom;
+
+import java.time.Duration;
+
+/**
+ * Progress or outcome of a {@link DeepZoomGenerator} run.
+ *
+ * @param tiles The number of tiles written so far.
+ * @param bytes The total size of the encoded tiles written so far.
+ * @param elapsed The time since the run started.
+ * @author Paul Mitchell
+ */
+public record GenerationReport(long tiles, long bytes, Duration elapsed) {
+    public double tilesPerSecond() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds == 0 ? 0 : tiles / seconds;
+    }
+}
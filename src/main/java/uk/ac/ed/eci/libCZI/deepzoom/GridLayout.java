@@ -0,0 +1,19 @@
+package uk.ac.ed.eci.libCZI.deepzoom;
+
+/**
+ * The tile grid conventions a {@link TileGrid} can follow.
+ */
+public enum GridLayout {
+    /**
+     * Deep Zoom (DZI): level {@code 0} is a single pixel and the last level is full
+     * resolution. Edge tiles are cropped to the image, tiles may overlap their
+     * neighbours, and a {@code .dzi} descriptor is written alongside the tiles.
+     */
+    DZI,
+    /**
+     * XYZ (slippy map): level {@code 0} is the whole image in one tile and the last level
+     * is full resolution. Every tile is full size, padded with background past the
+     * right and bottom edges, and there is no overlap.
+     */
+    XYZ
+}
@@ -0,0 +1,57 @@
+package uk.ac.ed.eci.libCZI.deepzoom;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * A {@link TileEncoder} using the image writers registered with {@link ImageIO}.
+ */
+final class ImageIOTileEncoder implements TileEncoder {
+    private final String format;
+    private final String extension;
+    private final float quality;
+
+    /**
+     * @param quality the compression quality, or {@code NaN} for the writer's default.
+     */
+    ImageIOTileEncoder(String format, String extension, float quality) {
+        this.format = format;
+        this.extension = extension;
+        this.quality = quality;
+    }
+
+    @Override
+    public String extension() {
+        return extension;
+    }
+
+    @Override
+    public byte[] encode(BufferedImage tile) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for format " + format);
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (!Float.isNaN(quality)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(tile, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
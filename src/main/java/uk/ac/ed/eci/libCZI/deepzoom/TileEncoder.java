@@ -0,0 +1,35 @@
+package uk.ac.ed.eci.libCZI.deepzoom;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Encodes a rendered tile into an image file format.
+ */
+public interface TileEncoder {
+    /**
+     * @return the file extension for encoded tiles, without the dot.
+     */
+    String extension();
+
+    byte[] encode(BufferedImage tile) throws IOException;
+
+    /**
+     * @return a lossless PNG encoder, which accepts every pixel type the generator produces.
+     */
+    static TileEncoder png() {
+        return new ImageIOTileEncoder("png", "png", Float.NaN);
+    }
+
+    /**
+     * @param quality the JPEG quality, from {@code 0} to {@code 1}.
+     * @return a JPEG encoder. JPEG only supports 8-bit tiles, that is {@code Gray8} and
+     *         {@code Bgr24}.
+     */
+    static TileEncoder jpeg(float quality) {
+        if (quality < 0 || quality > 1) {
+            throw new IllegalArgumentException("JPEG quality must be between 0 and 1");
+        }
+        return new ImageIOTileEncoder("jpeg", "jpg", quality);
+    }
+}
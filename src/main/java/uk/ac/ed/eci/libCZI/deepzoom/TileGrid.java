@@ -0,0 +1,139 @@
+package uk.ac.ed.eci.libCZI.deepzoom;
+
+import uk.ac.ed.eci.libCZI.IntRect;
+
+/**
+ * The levels and tiles of a deep-zoom pyramid over an image of a given size. Each level
+ * is half the size of the next, and the last level is full resolution.
+ *
+ * @param layout The tile grid convention.
+ * @param width The width of the full resolution image in pixels.
+ * @param height The height of the full resolution image in pixels.
+ * @param tileSize The width and height of a tile, not counting overlap.
+ * @param overlap The number of pixels each tile shares with its neighbours. Always
+ *                {@code 0} for {@link GridLayout#XYZ}.
+ * @author Paul Mitchell
+ */
+public record TileGrid(GridLayout layout, int width, int height, int tileSize, int overlap) {
+    public TileGrid {
+        if (width <= 0 || height <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("Image size and tile size must be positive");
+        }
+        if (overlap < 0 || (layout == GridLayout.XYZ && overlap != 0)) {
+            throw new IllegalArgumentException("Invalid overlap " + overlap + " for layout " + layout);
+        }
+    }
+
+    /**
+     * @return the number of levels, so levels run from {@code 0} to {@code levelCount() - 1}.
+     */
+    public int levelCount() {
+        int largest = Math.max(width, height);
+        return switch (layout) {
+            case DZI -> ceilLog2(largest) + 1;
+            case XYZ -> ceilLog2((largest + tileSize - 1) / tileSize) + 1;
+        };
+    }
+
+    /**
+     * @return how many full resolution pixels one pixel of {@code level} covers along
+     *         each axis, a power of two.
+     */
+    public long downsample(int level) {
+        checkLevel(level);
+        return 1L << (levelCount() - 1 - level);
+    }
+
+    public int levelWidth(int level) {
+        return (int) ceilDiv(width, downsample(level));
+    }
+
+    public int levelHeight(int level) {
+        return (int) ceilDiv(height, downsample(level));
+    }
+
+    public int columns(int level) {
+        return (int) ceilDiv(levelWidth(level), tileSize);
+    }
+
+    public int rows(int level) {
+        return (int) ceilDiv(levelHeight(level), tileSize);
+    }
+
+    /**
+     * @return the number of tiles on all levels.
+     */
+    public long tileCount() {
+        long count = 0;
+        for (int level = 0; level < levelCount(); level++) {
+            count += (long) columns(level) * rows(level);
+        }
+        return count;
+    }
+
+    /**
+     * The pixels of {@code level} that a tile covers, including any overlap.
+     */
+    public IntRect tileRect(int level, int column, int row) {
+        if (column < 0 || column >= columns(level) || row < 0 || row >= rows(level)) {
+            throw new IndexOutOfBoundsException("No tile " + column + "," + row + " on level " + level);
+        }
+        int x = column * tileSize;
+        int y = row * tileSize;
+        if (layout == GridLayout.XYZ) {
+            return new IntRect(x, y, tileSize, tileSize);
+        }
+        int left = Math.max(0, x - overlap);
+        int top = Math.max(0, y - overlap);
+        int right = Math.min(levelWidth(level), x + tileSize + overlap);
+        int bottom = Math.min(levelHeight(level), y + tileSize + overlap);
+        return new IntRect(left, top, right - left, bottom - top);
+    }
+
+    /**
+     * The path of a tile relative to the root of the output, {@code name_files/level/column_row.ext}
+     * for DZI and {@code name/level/column/row.ext} for XYZ.
+     */
+    public String tilePath(String name, int level, int column, int row, String extension) {
+        return switch (layout) {
+            case DZI -> name + "_files/" + level + "/" + column + "_" + row + "." + extension;
+            case XYZ -> name + "/" + level + "/" + column + "/" + row + "." + extension;
+        };
+    }
+
+    /**
+     * @return the path of the descriptor, or {@code null} if the layout has none.
+     */
+    public String descriptorPath(String name) {
+        return layout == GridLayout.DZI ? name + ".dzi" : null;
+    }
+
+    /**
+     * @return the Deep Zoom XML descriptor, or {@code null} if the layout has none.
+     */
+    public String descriptor(String extension) {
+        if (layout != GridLayout.DZI) {
+            return null;
+        }
+        return """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <Image xmlns="http://schemas.microsoft.com/deepzoom/2008" Format="%s" Overlap="%d" TileSize="%d">
+                  <Size Width="%d" Height="%d"/>
+                </Image>
+                """.formatted(extension, overlap, tileSize, width, height);
+    }
+
+    private void checkLevel(int level) {
+        if (level < 0 || level >= levelCount()) {
+            throw new IndexOutOfBoundsException("Level " + level + " is outside 0.." + (levelCount() - 1));
+        }
+    }
+
+    private static int ceilLog2(int value) {
+        return value <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(value - 1);
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
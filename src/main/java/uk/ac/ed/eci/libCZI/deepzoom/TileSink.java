@@ -0,0 +1,74 @@
+package uk.ac.ed.eci.libCZI.deepzoom;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Receives the encoded tiles and descriptor written by a {@link DeepZoomGenerator}.
+ * <p>
+ * Tiles are written from several worker threads at once, so implementations must be
+ * thread-safe. Any sink can also be given as a lambda, to pass tiles on to a callback.
+ * </p>
+ */
+@FunctionalInterface
+public interface TileSink extends AutoCloseable {
+    /**
+     * @param path the path of the file relative to the root of the output, using
+     *             {@code /} as the separator.
+     * @param data the encoded file.
+     */
+    void write(String path, byte[] data) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Writes each file under {@code root}, creating directories as needed.
+     */
+    static TileSink directory(Path root) {
+        return (path, data) -> {
+            Path file = root.resolve(path);
+            Files.createDirectories(file.getParent());
+            Files.write(file, data);
+        };
+    }
+
+    /**
+     * Writes each file as an entry of a zip archive. Tiles are stored rather than
+     * deflated, as they are already compressed. Closing the sink finishes the archive
+     * and closes {@code out}.
+     */
+    static TileSink zip(OutputStream out) {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setMethod(ZipOutputStream.STORED);
+        return new TileSink() {
+            @Override
+            public void write(String path, byte[] data) throws IOException {
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                ZipEntry entry = new ZipEntry(path);
+                entry.setSize(data.length);
+                entry.setCompressedSize(data.length);
+                entry.setCrc(crc.getValue());
+                synchronized (zip) {
+                    zip.putNextEntry(entry);
+                    zip.write(data);
+                    zip.closeEntry();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                synchronized (zip) {
+                    zip.close();
+                }
+            }
+        };
+    }
+}
@@ -1,14 +1,11 @@
 package uk.ac.ed.eci.libCZI.document;
 
 import java.lang.foreign.Arena;
-import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.MemorySegment;
-import java.lang.invoke.MethodHandle;
-import uk.ac.ed.eci.libCZI.LibCziFFM;
+import uk.ac.ed.eci.libCZI.LibCziFunctions;
 
 
 import static java.lang.foreign.ValueLayout.ADDRESS;
-import static java.lang.foreign.ValueLayout.JAVA_INT;
 
 public class DisplaySettings {
 
@@ -18,17 +15,19 @@ public class DisplaySettings {
         this.displaySettingsHandle = handle;
     }
 
+    public MemorySegment handle() {
+        return displaySettingsHandle;
+    }
+
 //    libCZI_DisplaySettingsGetChannelDisplaySettings(DisplaySettingsHandle display_settings_handle, int channel_id, ChannelDisplaySettingsHandle *channel_display_setting)
     public ChannelDisplaySettings getChannelDisplaySettings(int channelIndex) {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS);
-        MethodHandle getDisplaySettings = LibCziFFM.getMethodHandle("libCZI_DisplaySettingsGetChannelDisplaySettings", descriptor);
         try (var arena = Arena.ofConfined()){
             var channelDisplayHandle = arena.allocate(ADDRESS);
-            int errorCode = (int) getDisplaySettings.invokeExact(displaySettingsHandle, channelIndex, channelDisplayHandle);
+            int errorCode = (int) LibCziFunctions.DISPLAY_SETTINGS_GET_CHANNEL_DISPLAY_SETTINGS.invokeExact(displaySettingsHandle, channelIndex, channelDisplayHandle);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to get channel display settings. Error code: " + errorCode);
             }
-            return new ChannelDisplaySettings(channelDisplayHandle);
+            return new ChannelDisplaySettings(channelDisplayHandle.get(ADDRESS, 0).asReadOnly());
         } catch (Throwable e) {
             throw new RuntimeException("Failed to call native function libCZI_DisplaySettingsGetChannelDisplaySettings", e);
         }
@@ -5,15 +5,14 @@ import static java.lang.foreign.ValueLayout.JAVA_INT;
 import static uk.ac.ed.eci.libCZI.LibCziFFM.free;
 
 import java.lang.foreign.Arena;
-import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
-import java.lang.invoke.MethodHandle;
 import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
 
 import java.nio.charset.StandardCharsets;
 import uk.ac.ed.eci.libCZI.LibCziFFM;
+import uk.ac.ed.eci.libCZI.LibCziFunctions;
 
 public class DocumentInfo {
     private final MemorySegment cziDocumentHandle;
@@ -33,11 +32,9 @@ public class DocumentInfo {
     
     //libCZI_CziDocumentInfoGetGeneralDocumentInfo
     public GeneralDocumentInfo generalDocumentInfo() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        MethodHandle getGeneralDocumentInfo = LibCziFFM.getMethodHandle("libCZI_CziDocumentInfoGetGeneralDocumentInfo", descriptor);
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment pGeneralDocumentInfo = arena.allocate(ADDRESS);
-            int errorCode = (int) getGeneralDocumentInfo.invokeExact(cziDocumentHandle, pGeneralDocumentInfo);
+            int errorCode = (int) LibCziFunctions.CZI_DOCUMENT_INFO_GET_GENERAL_DOCUMENT_INFO.invokeExact(cziDocumentHandle, pGeneralDocumentInfo);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to get general document info. Error code: " + errorCode);
             }
@@ -53,11 +50,9 @@ public class DocumentInfo {
     
     //libCZI_CziDocumentInfoGetScalingInfo
     public ScalingInfo scalingInfo() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        MethodHandle getScalingInfo = LibCziFFM.getMethodHandle("libCZI_CziDocumentInfoGetScalingInfo", descriptor);
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment pScalingInfo = arena.allocate(ScalingInfo.LAYOUT);
-            int errorCode = (int) getScalingInfo.invokeExact(cziDocumentHandle, pScalingInfo);
+            int errorCode = (int) LibCziFunctions.CZI_DOCUMENT_INFO_GET_SCALING_INFO.invokeExact(cziDocumentHandle, pScalingInfo);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to get scaling info. Error code: " + errorCode);
             }
@@ -69,12 +64,10 @@ public class DocumentInfo {
     
     //libCZI_CziDocumentInfoGetAvailableDimension
     public AvailableDimensions availableDimensions() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS);
-        MethodHandle getAvailableDimension = LibCziFFM.getMethodHandle("libCZI_CziDocumentInfoGetAvailableDimension", descriptor);
         try (Arena arena = Arena.ofConfined()) {
             var availableDimensionsCount = LibCziFFM.K_MAX_DIMENSION_COUNT + 1;
             var array = arena.allocate(JAVA_INT, availableDimensionsCount);
-            int errorCode = (int) getAvailableDimension.invokeExact(cziDocumentHandle, availableDimensionsCount, array);
+            int errorCode = (int) LibCziFunctions.CZI_DOCUMENT_INFO_GET_AVAILABLE_DIMENSION.invokeExact(cziDocumentHandle, availableDimensionsCount, array);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to get available dimensions. Error code: " + errorCode);
             }
@@ -86,11 +79,9 @@ public class DocumentInfo {
 
     //libCZI_CziDocumentInfoGetDisplaySettings
     public DisplaySettings displaySettings() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        MethodHandle getDisplaySettings = LibCziFFM.getMethodHandle("libCZI_CziDocumentInfoGetDisplaySettings", descriptor);
         try {
             displaySettingsHandle = classArena.allocate(ADDRESS);
-            int errorCode = (int) getDisplaySettings.invokeExact(cziDocumentHandle, displaySettingsHandle);
+            int errorCode = (int) LibCziFunctions.CZI_DOCUMENT_INFO_GET_DISPLAY_SETTINGS.invokeExact(cziDocumentHandle, displaySettingsHandle);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to get display settings. Error code: " + errorCode);
             }
@@ -105,13 +96,11 @@ public class DocumentInfo {
     //libCZI_CziDocumentInfoGetDimensionInfo
     public DimensionInfo dimensionInfo(int dimensionIndex) { //todo passing arg here doesn't work even though hard-coding below does
         // EXTERNALLIBCZIAPI_API(LibCZIApiErrorCode) libCZI_CziDocumentInfoGetDimensionInfo(CziDocumentInfoHandle czi_document_info, std::uint32_t dimension_index, void** dimension_info_json);
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS);
-        MethodHandle getAvailableDimension = LibCziFFM.getMethodHandle("libCZI_CziDocumentInfoGetDimensionInfo", descriptor);
         try (Arena arena = Arena.ofConfined()) {
             MemorySegment outPtr = arena.allocate(ADDRESS);
             // todo explain why 0 segfault, 1 throws error (retval 1, invalid arg), 2 channels, 3 time/Z?, 4 segfault, 5 segfault...
             // 3: {"start_time":"2021-06-30T10:40:27Z"}
-            int errorCode = (int) getAvailableDimension.invokeExact(cziDocumentHandle, 2, outPtr);
+            int errorCode = (int) LibCziFunctions.CZI_DOCUMENT_INFO_GET_DIMENSION_INFO.invokeExact(cziDocumentHandle, 2, outPtr);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to get available dimensions. Error code: " + errorCode);
             }
@@ -133,11 +122,9 @@ public class DocumentInfo {
 
 
     private MemorySegment getCziDocumentHandle(MemorySegment handle) {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        MethodHandle getDocumentInfo = LibCziFFM.getMethodHandle("libCZI_MetadataSegmentGetCziDocumentInfo", descriptor);
         try {
             MemorySegment pDocumentInfo = classArena.allocate(ADDRESS);
-            int errorCode = (int) getDocumentInfo.invokeExact(handle, pDocumentInfo);
+            int errorCode = (int) LibCziFunctions.METADATA_SEGMENT_GET_CZI_DOCUMENT_INFO.invokeExact(handle, pDocumentInfo);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to get CZI document info. Error code: " + errorCode);
             }
@@ -149,10 +136,8 @@ public class DocumentInfo {
     }
 
     private void releaseDocumentInfo() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS);
-        MethodHandle release = LibCziFFM.getMethodHandle("libCZI_ReleaseCziDocumentInfo", descriptor);
         try {
-            int errorCode = (int) release.invokeExact(cziDocumentHandle);
+            int errorCode = (int) LibCziFunctions.RELEASE_CZI_DOCUMENT_INFO.invokeExact(cziDocumentHandle);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to release CZI document info. Error code: " + errorCode);
             }
@@ -0,0 +1,85 @@
+package uk.ac.ed.eci.libCZI.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+import uk.ac.ed.eci.libCZI.CZIInputStream;
+import uk.ac.ed.eci.libCZI.CziStreamReader;
+import uk.ac.ed.eci.libCZI.SingleChannelTileAccessor;
+
+/**
+ * A fixed set of tile workers, each with its own stream, reader and
+ * {@link SingleChannelTileAccessor}, for rendering tiles on several threads at once.
+ * <p>
+ * The workers are created up front and handed out from a queue, so no reader is ever
+ * used by two threads at once. Every worker taken with {@link #borrow()} must be handed
+ * back with {@link #giveBack(Worker)}.
+ * </p>
+ * <p>
+ * This package is not exported from the module; the pool is shared by the region
+ * renderer and the deep-zoom generator only.
+ * </p>
+ *
+ * @author Paul Mitchell
+ */
+public final class TileWorkerPool implements AutoCloseable {
+    private final List<Worker> workers;
+    private final BlockingQueue<Worker> idleWorkers;
+
+    public record Worker(CZIInputStream stream, CziStreamReader reader, SingleChannelTileAccessor accessor) {
+        void close() throws Exception {
+            accessor.close();
+            reader.close();
+            stream.close();
+        }
+    }
+
+    /**
+     * @param streams opens a new stream on the file for each worker.
+     * @param size the number of workers.
+     */
+    public TileWorkerPool(Supplier<CZIInputStream> streams, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive");
+        }
+        this.workers = new ArrayList<>(size);
+        this.idleWorkers = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            CZIInputStream stream = streams.get();
+            CziStreamReader reader = CziStreamReader.fromStream(stream);
+            Worker worker = new Worker(stream, reader, new SingleChannelTileAccessor(reader));
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+    }
+
+    public int size() {
+        return workers.size();
+    }
+
+    /**
+     * Waits for an idle worker and takes it.
+     */
+    public Worker borrow() {
+        try {
+            return idleWorkers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a tile worker", e);
+        }
+    }
+
+    public void giveBack(Worker worker) {
+        idleWorkers.add(worker);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Worker worker : workers) {
+            worker.close();
+        }
+    }
+}
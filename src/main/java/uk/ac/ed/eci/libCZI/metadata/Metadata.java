@@ -1,17 +1,24 @@
 package uk.ac.ed.eci.libCZI.metadata;
 
 import static java.lang.foreign.ValueLayout.ADDRESS;
-import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
 
 import java.lang.foreign.Arena;
-import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
-import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
 
 import uk.ac.ed.eci.libCZI.LibCziFFM;
+import uk.ac.ed.eci.libCZI.LibCziFunctions;
 import uk.ac.ed.eci.libCZI.document.DocumentInfo;
 
 public class Metadata {
+    // MetadataAsXmlInterop: the UTF-8 document, which the caller frees, and its length.
+    private static final MemoryLayout XML_LAYOUT = MemoryLayout.structLayout(
+            ADDRESS.withName("data"),
+            JAVA_LONG.withName("size"));
+
     private MemorySegment handle;
     private Arena classArena;
     private DocumentInfo documentInfo = null;
@@ -29,6 +36,28 @@ public class Metadata {
         return documentInfo;
     }
     
+    /**
+     * @return the document's XML metadata, including the display settings the compositor uses.
+     */
+    public String xml() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment pXml = arena.allocate(XML_LAYOUT);
+            int errorCode = (int) LibCziFunctions.METADATA_SEGMENT_GET_METADATA_AS_XML.invokeExact(handle, pXml);
+            if (errorCode != 0) {
+                throw new RuntimeException("Failed to get metadata as XML. Error code: " + errorCode);
+            }
+            MemorySegment data = pXml.get(ADDRESS, XML_LAYOUT.byteOffset(MemoryLayout.PathElement.groupElement("data")));
+            long size = pXml.get(JAVA_LONG, XML_LAYOUT.byteOffset(MemoryLayout.PathElement.groupElement("size")));
+            try {
+                return new String(data.reinterpret(size).toArray(JAVA_BYTE), StandardCharsets.UTF_8);
+            } finally {
+                LibCziFFM.free(data);
+            }
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to call native function libCZI_MetadataSegmentGetMetadataAsXml", e);
+        }
+    }
+
     public void close() throws Exception {
         if (documentInfo != null) {
             documentInfo.close();
@@ -38,11 +67,9 @@ public class Metadata {
     }
 
     private MemorySegment getHandleFromReader(MemorySegment reader) {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
-        MethodHandle getHandle = LibCziFFM.getMethodHandle("libCZI_ReaderGetMetadataSegment", descriptor);
         try {
             MemorySegment pHandle = classArena.allocate(ADDRESS);
-            int errorCode = (int) getHandle.invokeExact(reader, pHandle);
+            int errorCode = (int) LibCziFunctions.READER_GET_METADATA_SEGMENT.invokeExact(reader, pHandle);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to get metadata segment. Error code: " + errorCode);
             }
@@ -54,10 +81,8 @@ public class Metadata {
     }
 
     private void releaseMetadata() {
-        FunctionDescriptor descriptor = FunctionDescriptor.of(JAVA_INT, ADDRESS);
-        MethodHandle release = LibCziFFM.getMethodHandle("libCZI_ReleaseMetadataSegment", descriptor);
         try {
-            int errorCode = (int) release.invokeExact(handle);
+            int errorCode = (int) LibCziFunctions.RELEASE_METADATA_SEGMENT.invokeExact(handle);
             if (errorCode != 0) {
                 throw new RuntimeException("Failed to release metadata segment. Error code: " + errorCode);
             }
@@ -1,12 +1,18 @@
 package uk.ac.ed.eci.libCZI;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import org.junit.jupiter.api.Test;
 import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
 import uk.ac.ed.eci.libCZI.bitmaps.BitmapData;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
 
 // Let's assume you created a new test class like this.
 public class BitmapDataTest {
@@ -70,4 +76,99 @@ public class BitmapDataTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTypedAccessorsRejectBgr24() throws Exception {
+        IntRect roi = new IntRect(-123000, 30000, 1024, 1024);
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+             CziStreamReader reader = CziStreamReader.fromStream(stream);
+             SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader);
+             Bitmap bitmap = accessor.getBitmapRaw(roi, 0.25f);
+             BitmapData data = bitmap.getBitmapData()) {
+            assertEquals(PixelType.Bgr24, data.pixelType());
+            assertEquals(3, data.pixelSize());
+            assertThrows(UnsupportedOperationException.class, data::getShorts);
+            assertThrows(UnsupportedOperationException.class, data::getFloats);
+            assertThrows(UnsupportedOperationException.class, data::getDoubles);
+            assertThrows(UnsupportedOperationException.class, data::asShortBuffer);
+            assertThrows(UnsupportedOperationException.class, data::asFloatBuffer);
+        }
+    }
+
+    @Test
+    public void testTypedAccessorsSkipRowPadding() throws Exception {
+        // Rows of 5 Gray16, 3 Gray32Float and 2 Gray64Float samples, each padded to a wider stride.
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment gray16 = paddedPixels(arena, 4, 16, 10);
+            try (BitmapData data = BitmapData.copyOf(new BitmapInfo(5, 4, PixelType.Gray16), 16, gray16)) {
+                short[] expected = new short[5 * 4];
+                for (int y = 0; y < 4; y++) {
+                    MemorySegment.copy(gray16, ValueLayout.JAVA_SHORT_UNALIGNED, y * 16L, expected, y * 5, 5);
+                }
+                assertArrayEquals(expected, data.getShorts());
+                ShortBuffer buffer = data.asShortBuffer();
+                for (int y = 0; y < 4; y++) {
+                    for (int x = 0; x < 5; x++) {
+                        assertEquals(expected[y * 5 + x], buffer.get(y * data.stride() / Short.BYTES + x));
+                    }
+                }
+            }
+
+            MemorySegment gray32Float = paddedPixels(arena, 3, 20, 12);
+            try (BitmapData data = BitmapData.copyOf(new BitmapInfo(3, 3, PixelType.Gray32Float), 20, gray32Float)) {
+                float[] expected = new float[3 * 3];
+                for (int y = 0; y < 3; y++) {
+                    MemorySegment.copy(gray32Float, ValueLayout.JAVA_FLOAT_UNALIGNED, y * 20L, expected, y * 3, 3);
+                }
+                assertArrayEquals(expected, data.getFloats());
+                FloatBuffer buffer = data.asFloatBuffer();
+                for (int y = 0; y < 3; y++) {
+                    for (int x = 0; x < 3; x++) {
+                        assertEquals(expected[y * 3 + x], buffer.get(y * data.stride() / Float.BYTES + x));
+                    }
+                }
+            }
+
+            MemorySegment gray64Float = paddedPixels(arena, 2, 24, 16);
+            try (BitmapData data = BitmapData.copyOf(new BitmapInfo(2, 2, PixelType.Gray64Float), 24, gray64Float)) {
+                double[] expected = new double[2 * 2];
+                for (int y = 0; y < 2; y++) {
+                    MemorySegment.copy(gray64Float, ValueLayout.JAVA_DOUBLE_UNALIGNED, y * 24L, expected, y * 2, 2);
+                }
+                assertArrayEquals(expected, data.getDoubles());
+            }
+        }
+    }
+
+    @Test
+    public void testPixelSizeCoversEveryComponent() throws Exception {
+        // Three components for the colour types: Bgr48 is 3 x 2 bytes, Bgr96Float 3 x 4 and
+        // Bgr192ComplexFloat 3 x 8, not the sizes of their single-channel counterparts.
+        assertEquals(1, pixelSizeOf(PixelType.Gray8));
+        assertEquals(2, pixelSizeOf(PixelType.Gray16));
+        assertEquals(3, pixelSizeOf(PixelType.Bgr24));
+        assertEquals(6, pixelSizeOf(PixelType.Bgr48));
+        assertEquals(12, pixelSizeOf(PixelType.Bgr96Float));
+        assertEquals(24, pixelSizeOf(PixelType.Bgr192ComplexFloat));
+    }
+
+    private static int pixelSizeOf(PixelType pixelType) throws Exception {
+        // 24 bytes holds one pixel of any type.
+        try (Arena arena = Arena.ofConfined();
+                BitmapData data = BitmapData.copyOf(new BitmapInfo(1, 1, pixelType), 24, arena.allocate(24))) {
+            return data.pixelSize();
+        }
+    }
+
+    // Fills each row's pixels with distinct bytes and its padding with 0x7F.
+    private static MemorySegment paddedPixels(Arena arena, int rows, int stride, int rowBytes) {
+        MemorySegment pixels = arena.allocate((long) rows * stride);
+        pixels.fill((byte) 0x7F);
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < rowBytes; x++) {
+                pixels.set(ValueLayout.JAVA_BYTE, (long) y * stride + x, (byte) (y * 31 + x + 1));
+            }
+        }
+        return pixels;
+    }
+}
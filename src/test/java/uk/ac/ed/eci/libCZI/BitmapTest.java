@@ -1,7 +1,11 @@
 package uk.ac.ed.eci.libCZI;
 
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -10,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
 import uk.ac.ed.eci.libCZI.bitmaps.BitmapData;
 import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapLock;
 import uk.ac.ed.eci.libCZI.bitmaps.Roi;
 
 public class BitmapTest {
@@ -103,4 +108,75 @@ public class BitmapTest {
             }
         }
     }
+
+    @Test
+    public void testLockedPixelViewMatchesCopy() throws Exception {
+        IntRect roi = new IntRect(-123000, 30000, 1024, 1024);
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader)) {
+            Bitmap bitmap = accessor.getBitmapRaw(roi, 0.25f);
+            byte[] copied;
+            try (BitmapData data = bitmap.getBitmapData()) {
+                copied = data.getBytes();
+            }
+
+            MemorySegment pixels;
+            try (BitmapLock lock = bitmap.lock()) {
+                pixels = lock.pixels();
+                assertTrue(pixels.isReadOnly());
+                assertEquals(lock.size(), pixels.byteSize());
+                assertArrayEquals(copied, pixels.toArray(JAVA_BYTE));
+
+                MemorySegment lastRow = lock.row(lock.bitmapInfo().height() - 1);
+                assertEquals(lock.bitmapInfo().width() * 3L, lastRow.byteSize());
+                assertThrows(IndexOutOfBoundsException.class, () -> lock.row(lock.bitmapInfo().height()));
+            }
+            assertThrows(IllegalStateException.class, () -> pixels.get(JAVA_BYTE, 0));
+            bitmap.release();
+        }
+    }
+
+    @Test
+    public void testCopyToPaddedDestination() throws Exception {
+        IntRect roi = new IntRect(-123000, 30000, 1024, 1024);
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader)) {
+            Bitmap bitmap = accessor.getBitmapRaw(roi, 0.25f);
+            BitmapInfo info = bitmap.getBitmapInfo();
+            int rowBytes = info.width() * info.pixelType().bytesPerPixel();
+            int destinationStride = rowBytes + 16;
+            ByteBuffer destination = ByteBuffer.allocateDirect(destinationStride * info.height());
+
+            BitmapInfo copied = bitmap.copyTo(destination, destinationStride);
+            assertEquals(info.width(), copied.width());
+            assertEquals(info.height(), copied.height());
+
+            try (BitmapLock lock = bitmap.lock()) {
+                MemorySegment target = MemorySegment.ofBuffer(destination);
+                for (int y = 0; y < info.height(); y++) {
+                    assertEquals(-1, lock.row(y).mismatch(target.asSlice((long) y * destinationStride, rowBytes)));
+                }
+            }
+            assertThrows(IllegalArgumentException.class, () -> bitmap.copyTo(destination, rowBytes - 1));
+            assertThrows(IllegalArgumentException.class, () -> bitmap.copyTo(new short[info.width() * info.height()], info.width()));
+            bitmap.release();
+        }
+    }
+
+    @Test
+    public void testGetTileIntoSegment() throws Exception {
+        IntRect roi = new IntRect(-123000, 30000, 1024, 1024);
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment destination = arena.allocate(256 * 256 * 3);
+            BitmapInfo info = accessor.getTileInto(roi, 0.25f, destination, 256 * 3);
+            assertEquals(256, info.width());
+            assertEquals(256, info.height());
+            assertNotEquals(-1, destination.mismatch(arena.allocate(destination.byteSize())), "Tile should not be empty.");
+        }
+    }
 }
@@ -2,9 +2,12 @@ package uk.ac.ed.eci.libCZI;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.Test;
 
@@ -22,4 +25,69 @@ public class CZIInputStreamTest {
             assertFalse(true, "An exception should not have been thrown.");
         }
     }
+
+    @Test
+    public void testMappedFileMatchesFileStream() throws Exception {
+        try (CZIInputStream fileStream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader fileReader = CziStreamReader.fromStream(fileStream);
+                CZIInputStream mappedStream = CZIInputStream.createInputStreamFromMappedFile(TEST_IMAGE_PATH);
+                CziStreamReader mappedReader = CziStreamReader.fromStream(mappedStream)) {
+            assertEquals(fileReader.simpleReaderStatistics().subBlockCount(), mappedReader.simpleReaderStatistics().subBlockCount());
+            assertEquals(fileReader.simpleReaderStatistics().boundingBox(), mappedReader.simpleReaderStatistics().boundingBox());
+        }
+    }
+
+    @Test
+    public void testMappedFileMissing() {
+        assertThrows(CziStreamException.class, () -> CZIInputStream.createInputStreamFromMappedFile(Paths.get("test-images", "missing.czi")));
+    }
+
+    @Test
+    public void testFromBytesMatchesFileStream() throws Exception {
+        byte[] data = Files.readAllBytes(TEST_IMAGE_PATH);
+        try (CZIInputStream fileStream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader fileReader = CziStreamReader.fromStream(fileStream);
+                CZIInputStream memoryStream = CZIInputStream.fromBytes(data);
+                CziStreamReader memoryReader = CziStreamReader.fromStream(memoryStream)) {
+            assertEquals(fileReader.simpleReaderStatistics().subBlockCount(), memoryReader.simpleReaderStatistics().subBlockCount());
+            assertEquals(fileReader.simpleReaderStatistics().boundingBox(), memoryReader.simpleReaderStatistics().boundingBox());
+        }
+    }
+
+    @Test
+    public void testFromMemoryReadsNativeSegment() throws Exception {
+        byte[] data = Files.readAllBytes(TEST_IMAGE_PATH);
+        try (Arena arena = Arena.ofShared()) {
+            MemorySegment segment = arena.allocate(data.length);
+            MemorySegment.copy(MemorySegment.ofArray(data), 0, segment, 0, data.length);
+            try (CZIInputStream stream = CZIInputStream.fromMemory(segment);
+                    CziStreamReader reader = CziStreamReader.fromStream(stream)) {
+                assertEquals(0, reader.simpleReaderStatistics().minMIndex());
+            }
+        }
+    }
+
+    @Test
+    public void testFromMemoryRejectsSegmentOfAnotherThread() throws Exception {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(64);
+            Throwable thrown = CompletableFuture.supplyAsync(() -> {
+                try {
+                    CZIInputStream.fromMemory(segment).close();
+                    return null;
+                } catch (Throwable e) {
+                    return e;
+                }
+            }).get();
+            assertInstanceOf(IllegalArgumentException.class, thrown);
+        }
+    }
+
+    @Test
+    public void testFromMemoryRejectsOwnConfinedSegment() {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(64);
+            assertThrows(IllegalArgumentException.class, () -> CZIInputStream.fromMemory(segment));
+        }
+    }
 }
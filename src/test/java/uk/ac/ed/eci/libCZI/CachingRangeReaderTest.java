@@ -0,0 +1,89 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class CachingRangeReaderTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+    private static final int BLOCK_SIZE = 16 * 1024;
+
+    @Test
+    public void testRandomReadsMatchFile() throws Exception {
+        byte[] expected = Files.readAllBytes(TEST_IMAGE_PATH);
+        try (CachingRangeReader reader = new CachingRangeReader(RangeReader.of(FileChannel.open(TEST_IMAGE_PATH, StandardOpenOption.READ)),
+                    8L * BLOCK_SIZE, BLOCK_SIZE, 2);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment buffer = arena.allocate(3 * BLOCK_SIZE);
+            Random random = new Random(42);
+            for (int i = 0; i < 500; i++) {
+                int offset = random.nextInt(expected.length);
+                int length = random.nextInt(3 * BLOCK_SIZE);
+                long read = reader.read(offset, length, buffer);
+                assertEquals(Math.min(length, expected.length - offset), read);
+                assertArrayEquals(Arrays.copyOfRange(expected, offset, offset + (int) read),
+                        buffer.asSlice(0, read).toArray(ValueLayout.JAVA_BYTE));
+            }
+            CachingRangeReader.Stats stats = reader.stats();
+            assertTrue(stats.bytesCached() <= 8L * BLOCK_SIZE);
+            assertEquals(0, reader.read(expected.length, 10, buffer));
+        }
+    }
+
+    @Test
+    public void testSequentialReadsAreReadAhead() throws Exception {
+        try (CachingRangeReader reader = new CachingRangeReader(RangeReader.of(FileChannel.open(TEST_IMAGE_PATH, StandardOpenOption.READ)),
+                    64L * BLOCK_SIZE, BLOCK_SIZE, 4);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment buffer = arena.allocate(4096);
+            for (long offset = 0; offset < 32L * BLOCK_SIZE; offset += buffer.byteSize()) {
+                reader.read(offset, buffer.byteSize(), buffer);
+            }
+            CachingRangeReader.Stats stats = reader.stats();
+            assertTrue(stats.readAheadBlocks() > 0);
+            assertTrue(stats.hitRate() > 0.5);
+            assertEquals(32L * BLOCK_SIZE, stats.bytesServed());
+        }
+    }
+
+    @Test
+    public void testPrefetchServesReadsFromCache() throws Exception {
+        try (CachingRangeReader reader = new CachingRangeReader(RangeReader.of(FileChannel.open(TEST_IMAGE_PATH, StandardOpenOption.READ)),
+                    16L * BLOCK_SIZE, BLOCK_SIZE, 0);
+                Arena arena = Arena.ofConfined()) {
+            reader.prefetch(BLOCK_SIZE, 4L * BLOCK_SIZE).join();
+            long fetched = reader.stats().bytesFetched();
+            assertEquals(4L * BLOCK_SIZE, fetched);
+            MemorySegment buffer = arena.allocate(2 * BLOCK_SIZE);
+            reader.read(BLOCK_SIZE + 100, buffer.byteSize(), buffer);
+            assertEquals(fetched, reader.stats().bytesFetched());
+            assertEquals(0, reader.stats().misses());
+            // More blocks than the budget holds could never all be cached at once.
+            assertThrows(IllegalArgumentException.class, () -> reader.prefetch(0, 16L * BLOCK_SIZE + 1));
+        }
+    }
+
+    @Test
+    public void testCziReaderThroughCache() throws Exception {
+        CachingRangeReader cache = new CachingRangeReader(RangeReader.of(FileChannel.open(TEST_IMAGE_PATH, StandardOpenOption.READ)), 1L << 24);
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromRangeReader(cache);
+                CziStreamReader reader = CziStreamReader.fromStream(stream)) {
+            assertEquals(0, reader.simpleReaderStatistics().minMIndex());
+            assertTrue(cache.stats().bytesServed() > 0);
+        }
+    }
+}
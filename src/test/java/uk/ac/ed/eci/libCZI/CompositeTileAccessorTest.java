@@ -0,0 +1,111 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+import uk.ac.ed.eci.libCZI.document.DisplaySettings;
+
+public class CompositeTileAccessorTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+    private CZIInputStream stream;
+    private CziStreamReader reader;
+    private DisplaySettings displaySettings;
+
+    @BeforeEach
+    public void setup() {
+        stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+        reader = CziStreamReader.fromStream(stream);
+        displaySettings = reader.metadata().documentInfo().displaySettings();
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        reader.close();
+        stream.close();
+    }
+
+    @Test
+    public void testCompositeIsBgr24() throws Exception {
+        IntRect roi = new IntRect(-123000, 30000, 1024, 1024);
+        try (CompositeTileAccessor accessor = new CompositeTileAccessor(reader, displaySettings, 0)) {
+            CompositionChannelInfo info = accessor.channelInfo(0);
+            assertTrue(info.weight() > 0, "Channel weight should be positive.");
+
+            Bitmap composite = accessor.getCompositeBitmap(roi, 0.25f);
+            BitmapInfo bitmapInfo = composite.getBitmapInfo();
+            assertEquals(256, bitmapInfo.width());
+            assertEquals(256, bitmapInfo.height());
+            assertEquals(PixelType.Bgr24, bitmapInfo.pixelType());
+            composite.release();
+        }
+    }
+
+    @Test
+    public void testLayoutIsPacked() {
+        assertEquals(28, CompositionChannelInfo.layout().byteSize());
+    }
+
+    @Test
+    public void testChannelInfosMatchDisplaySettings() throws Exception {
+        String channel = displaySettingsChannel(reader.metadata().xml(), 0);
+        // The channel is given twice so that the second info is read at the struct's stride.
+        try (CompositeTileAccessor accessor = new CompositeTileAccessor(reader, displaySettings, 0, 0)) {
+            for (int i = 0; i < 2; i++) {
+                CompositionChannelInfo info = accessor.channelInfo(i);
+                String low = element(channel, "Low");
+                if (low != null) {
+                    assertEquals(Float.parseFloat(low), info.blackPoint(), 1e-6f, "Black point of info " + i);
+                }
+                String high = element(channel, "High");
+                if (high != null) {
+                    assertEquals(Float.parseFloat(high), info.whitePoint(), 1e-6f, "White point of info " + i);
+                }
+                String colorMode = element(channel, "ColorMode");
+                if (colorMode != null) {
+                    assertEquals(colorMode.equalsIgnoreCase("Color"), info.enableTinting(), "Tinting of info " + i);
+                }
+                String color = element(channel, "Color");
+                if (info.enableTinting() && color != null) {
+                    int argb = Integer.parseUnsignedInt(color.substring(color.length() - 6), 16);
+                    assertEquals((argb >> 16) & 0xFF, info.tintingColorR(), "Red of info " + i);
+                    assertEquals((argb >> 8) & 0xFF, info.tintingColorG(), "Green of info " + i);
+                    assertEquals(argb & 0xFF, info.tintingColorB(), "Blue of info " + i);
+                }
+            }
+            assertEquals(accessor.channelInfo(0), accessor.channelInfo(1));
+        }
+    }
+
+    @Test
+    public void testNoChannels() {
+        assertThrows(IllegalArgumentException.class, () -> new CompositeTileAccessor(reader, displaySettings));
+    }
+
+    // Returns the body of the index'th Channel element of the DisplaySetting element.
+    private static String displaySettingsChannel(String xml, int index) {
+        Matcher displaySetting = Pattern.compile("<DisplaySetting>(.*?)</DisplaySetting>", Pattern.DOTALL).matcher(xml);
+        assertTrue(displaySetting.find(), "The metadata should have display settings.");
+        Matcher channel = Pattern.compile("<Channel\\b[^>]*>(.*?)</Channel>", Pattern.DOTALL).matcher(displaySetting.group(1));
+        for (int i = 0; i <= index; i++) {
+            assertTrue(channel.find(), "The display settings should have channel " + index + ".");
+        }
+        return channel.group(1);
+    }
+
+    private static String element(String xml, String name) {
+        Matcher matcher = Pattern.compile("<" + name + ">\\s*([^<]*?)\\s*</" + name + ">").matcher(xml);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
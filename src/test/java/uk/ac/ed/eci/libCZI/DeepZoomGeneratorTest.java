@@ -0,0 +1,77 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.ed.eci.libCZI.deepzoom.DeepZoomGenerator;
+import uk.ac.ed.eci.libCZI.deepzoom.GenerationReport;
+import uk.ac.ed.eci.libCZI.deepzoom.GridLayout;
+import uk.ac.ed.eci.libCZI.deepzoom.TileEncoder;
+import uk.ac.ed.eci.libCZI.deepzoom.TileGrid;
+
+public class DeepZoomGeneratorTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+
+    @Test
+    public void testDziGrid() {
+        TileGrid grid = new TileGrid(GridLayout.DZI, 1000, 600, 256, 1);
+        assertEquals(11, grid.levelCount());
+        assertEquals(1, grid.downsample(10));
+        assertEquals(1024, grid.downsample(0));
+        assertEquals(4, grid.columns(10));
+        assertEquals(3, grid.rows(10));
+        assertEquals(new IntRect(255, 511, 258, 89), grid.tileRect(10, 1, 2));
+        assertEquals(new IntRect(0, 0, 1, 1), grid.tileRect(0, 0, 0));
+        assertEquals("slide_files/10/1_2.jpg", grid.tilePath("slide", 10, 1, 2, "jpg"));
+        assertEquals("slide.dzi", grid.descriptorPath("slide"));
+        assertTrue(grid.descriptor("jpg").contains("<Size Width=\"1000\" Height=\"600\"/>"));
+    }
+
+    @Test
+    public void testXyzGrid() {
+        TileGrid grid = new TileGrid(GridLayout.XYZ, 1000, 600, 256, 0);
+        assertEquals(3, grid.levelCount());
+        assertEquals(1, grid.columns(0));
+        assertEquals(2, grid.columns(1));
+        assertEquals(2, grid.rows(1));
+        assertEquals(new IntRect(768, 512, 256, 256), grid.tileRect(2, 3, 2));
+        assertEquals(1 + 4 + 12, grid.tileCount());
+        assertEquals("slide/2/3/2.png", grid.tilePath("slide", 2, 3, 2, "png"));
+    }
+
+    @Test
+    public void testGenerateLowestLevels() throws Exception {
+        Map<String, byte[]> written = new ConcurrentHashMap<>();
+        try (DeepZoomGenerator generator = new DeepZoomGenerator(
+                () -> CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString()), 4, GridLayout.XYZ, 256, 0,
+                TileEncoder.png(), 0)) {
+            TileGrid grid = generator.grid();
+            GenerationReport report = generator.generate(written::put, "slide", 0, 2, null);
+
+            long expected = 0;
+            for (int level = 0; level <= 2; level++) {
+                expected += (long) grid.columns(level) * grid.rows(level);
+            }
+            assertEquals(expected, report.tiles());
+            assertEquals(expected, written.size());
+            assertTrue(report.tilesPerSecond() > 0);
+
+            BufferedImage tile = ImageIO.read(new ByteArrayInputStream(written.get("slide/0/0/0.png")));
+            assertNotNull(tile);
+            assertEquals(256, tile.getWidth());
+            assertEquals(256, tile.getHeight());
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class HttpRangeReaderTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    private byte[] file;
+    private RangeServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        file = Files.readAllBytes(TEST_IMAGE_PATH);
+        server = new RangeServer(file, RangeServer.Mode.RANGES);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void testReadsMatchFile() throws Exception {
+        HttpRangeReader reader = new HttpRangeReader(client, server.uri(), 64 * 1024, 0, 4);
+        assertEquals(file.length, reader.size());
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment buffer = arena.allocate(300 * 1024);
+            Random random = new Random(42);
+            for (int i = 0; i < 50; i++) {
+                int offset = random.nextInt(file.length);
+                int length = random.nextInt((int) buffer.byteSize());
+                long read = reader.read(offset, length, buffer);
+                assertEquals(Math.min(length, file.length - offset), read);
+                assertArrayEquals(Arrays.copyOfRange(file, offset, offset + (int) read), buffer.asSlice(0, read).toArray(ValueLayout.JAVA_BYTE));
+            }
+        }
+        assertTrue(server.connections() <= 4, "connections should be reused, opened " + server.connections());
+    }
+
+    @Test
+    public void testLargeReadIsSplit() throws Exception {
+        HttpRangeReader reader = new HttpRangeReader(client, server.uri(), 16 * 1024, 0, 4);
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment buffer = arena.allocate(100 * 1024);
+            reader.read(1000, buffer.byteSize(), buffer);
+            assertArrayEquals(Arrays.copyOfRange(file, 1000, 1000 + (int) buffer.byteSize()), buffer.toArray(ValueLayout.JAVA_BYTE));
+        }
+        assertEquals(7, reader.requestCount());
+    }
+
+    @Test
+    public void testAdjacentRangesAreCoalesced() throws Exception {
+        HttpRangeReader reader = new HttpRangeReader(client, server.uri(), 1024 * 1024, 100, 4);
+        try (Arena arena = Arena.ofConfined()) {
+            List<RangeReader.Range> ranges = new ArrayList<>();
+            // Three nearby ranges, given out of order, and one far away.
+            for (long offset : new long[] { 2000, 0, 1050, 200_000 }) {
+                ranges.add(new RangeReader.Range(offset, 1000, arena.allocate(1000)));
+            }
+            reader.readAll(ranges);
+            for (RangeReader.Range range : ranges) {
+                int offset = (int) range.offset();
+                assertArrayEquals(Arrays.copyOfRange(file, offset, offset + 1000), range.destination().toArray(ValueLayout.JAVA_BYTE));
+            }
+            assertThrows(EOFException.class, () -> reader.readAll(List.of(new RangeReader.Range(file.length - 10, 20, arena.allocate(20)))));
+        }
+        assertEquals(2, reader.requestCount());
+        assertEquals(3000 + 1000, reader.bytesRequested());
+    }
+
+    @Test
+    public void testCziReaderOverHttp() throws Exception {
+        CachingRangeReader cache = new CachingRangeReader(new HttpRangeReader(client, server.uri(), 1024 * 1024, 0, 4), 1L << 24);
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromRangeReader(cache);
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                CZIInputStream fileStream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader fileReader = CziStreamReader.fromStream(fileStream)) {
+            assertEquals(fileReader.simpleReaderStatistics().subBlockCount(), reader.simpleReaderStatistics().subBlockCount());
+            assertEquals(fileReader.simpleReaderStatistics().boundingBox(), reader.simpleReaderStatistics().boundingBox());
+        }
+    }
+
+    @Test
+    public void testWholeFileResponseOnlyServesWholeFile() throws Exception {
+        try (RangeServer ignoring = new RangeServer(file, RangeServer.Mode.IGNORE_RANGES);
+                Arena arena = Arena.ofConfined()) {
+            HttpRangeReader reader = new HttpRangeReader(client, ignoring.uri(), file.length, 0, 4);
+            assertEquals(file.length, reader.size());
+            MemorySegment whole = arena.allocate(file.length);
+            reader.read(0, file.length, whole);
+            assertArrayEquals(file, whole.toArray(ValueLayout.JAVA_BYTE));
+            assertThrows(IOException.class, () -> reader.read(1000, 100, arena.allocate(100)));
+        }
+    }
+
+    @Test
+    public void testMismatchedContentRangeIsRejected() throws Exception {
+        try (RangeServer shifting = new RangeServer(file, RangeServer.Mode.SHIFT_RANGES);
+                Arena arena = Arena.ofConfined()) {
+            HttpRangeReader reader = new HttpRangeReader(client, shifting.uri(), 64 * 1024, 0, 4);
+            assertThrows(IOException.class, () -> reader.read(1000, 100, arena.allocate(100)));
+        }
+    }
+
+    /**
+     * A minimal HTTP/1.1 server for one file that answers single range GETs and keeps
+     * connections alive. Like an S3 URL pre-signed for GET, it refuses HEAD requests.
+     */
+    private static final class RangeServer implements AutoCloseable {
+        enum Mode {
+            RANGES,
+            // Answers every GET with the whole file, as a server without range support does.
+            IGNORE_RANGES,
+            // Answers with the bytes one past those asked for, and says so in Content-Range.
+            SHIFT_RANGES
+        }
+
+        private final byte[] content;
+        private final Mode mode;
+        private final ServerSocket socket;
+        private final AtomicInteger connections = new AtomicInteger();
+
+        RangeServer(byte[] content, Mode mode) throws IOException {
+            this.content = content;
+            this.mode = mode;
+            this.socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread.ofVirtual().start(this::accept);
+        }
+
+        URI uri() {
+            return URI.create("http://127.0.0.1:" + socket.getLocalPort() + "/test-image.czi");
+        }
+
+        int connections() {
+            return connections.get();
+        }
+
+        private void accept() {
+            while (!socket.isClosed()) {
+                try {
+                    Socket connection = socket.accept();
+                    connections.incrementAndGet();
+                    Thread.ofVirtual().start(() -> serve(connection));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket connection) {
+            try (connection;
+                    BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.ISO_8859_1));
+                    OutputStream out = connection.getOutputStream()) {
+                String requestLine;
+                while ((requestLine = in.readLine()) != null) {
+                    String range = null;
+                    for (String header = in.readLine(); header != null && !header.isEmpty(); header = in.readLine()) {
+                        if (header.regionMatches(true, 0, "Range:", 0, 6)) {
+                            range = header.substring(6).trim();
+                        }
+                    }
+                    if (requestLine.startsWith("HEAD")) {
+                        out.write("HTTP/1.1 403 Forbidden\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                    } else if (mode == Mode.IGNORE_RANGES) {
+                        out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + content.length + "\r\n\r\n")
+                                .getBytes(StandardCharsets.ISO_8859_1));
+                        out.write(content);
+                    } else {
+                        Matcher matcher = RANGE.matcher(range);
+                        matcher.matches();
+                        int start = Integer.parseInt(matcher.group(1));
+                        if (mode == Mode.SHIFT_RANGES && start + 1 < content.length) {
+                            start++;
+                        }
+                        int end = Math.min(content.length - 1, Integer.parseInt(matcher.group(2)));
+                        out.write(("HTTP/1.1 206 Partial Content\r\nContent-Length: " + (end - start + 1)
+                                + "\r\nContent-Range: bytes " + start + "-" + end + "/" + content.length + "\r\n\r\n")
+                                .getBytes(StandardCharsets.ISO_8859_1));
+                        out.write(content, start, end - start + 1);
+                    }
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Client went away.
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -3,10 +3,21 @@ package uk.ac.ed.eci.libCZI;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.Test;
 
@@ -35,5 +46,51 @@ public class InputStreamBridgeTest {
         assertEquals(0, stats.minMIndex());
         assertEquals(26, stats.maxMIndex());
     }
-        
+
+    @Test
+    public void testConcurrentPositionalReads() throws Exception {
+        byte[] expected = Files.readAllBytes(TEST_IMAGE_PATH);
+        InputStreamBridge bridge = new InputStreamBridge(channel);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (Arena arena = Arena.ofShared()) {
+            List<Future<?>> reads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long seed = t;
+                reads.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    MemorySegment buffer = arena.allocate(4096);
+                    MemorySegment bytesRead = arena.allocate(ValueLayout.JAVA_LONG);
+                    for (int i = 0; i < 500; i++) {
+                        int offset = random.nextInt(expected.length);
+                        int size = 1 + random.nextInt(4096);
+                        assertEquals(0, bridge.readFunctionImplementation(0, 0, offset, buffer, size, bytesRead, MemorySegment.NULL));
+                        long count = bytesRead.get(ValueLayout.JAVA_LONG, 0);
+                        assertEquals(Math.min(size, expected.length - offset), count);
+                        assertArrayEquals(Arrays.copyOfRange(expected, offset, offset + (int) count),
+                                buffer.asSlice(0, count).toArray(ValueLayout.JAVA_BYTE));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> read : reads) {
+                read.get();
+            }
+        } finally {
+            executor.shutdown();
+            bridge.close();
+        }
+    }
+
+    @Test
+    public void testOffsetBeyondTwoGigabytesIsNotTruncated() throws Exception {
+        InputStreamBridge bridge = new InputStreamBridge(channel);
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment buffer = arena.allocate(16);
+            MemorySegment bytesRead = arena.allocate(ValueLayout.JAVA_LONG);
+            assertEquals(0, bridge.readFunctionImplementation(0, 0, (1L << 32) + 16, buffer, 16, bytesRead, MemorySegment.NULL));
+            assertEquals(0, bytesRead.get(ValueLayout.JAVA_LONG, 0));
+        } finally {
+            bridge.close();
+        }
+    }
 }
@@ -21,6 +21,13 @@ public class LibCziFFMTest {
         LibCziFFM.SYMBOL_LOOKUP.toString(); // Access a static field to trigger static init
     }
 
+    @Test
+    public void testLinkAllFunctions() {
+        // Every entry point in the registry must resolve against the bundled library.
+        LibCziFunctions.linkAll();
+        assertNotEquals(null, LibCziFunctions.SINGLE_CHANNEL_TILE_ACCESSOR_GET);
+    }
+
     @Test
     public void testLibraryBasedMemoryManagement() {
         final long size = 4096;
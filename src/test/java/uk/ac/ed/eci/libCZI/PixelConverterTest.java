@@ -0,0 +1,84 @@
+package uk.ac.ed.eci.libCZI;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT_UNALIGNED;
+import static java.lang.foreign.ValueLayout.JAVA_SHORT_UNALIGNED;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import uk.ac.ed.eci.libCZI.bitmaps.PixelConverter;
+
+public class PixelConverterTest {
+
+    @Test
+    public void testScalarConversions() {
+        PixelConverter converter = PixelConverter.scalar();
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment bgr = arena.allocate(3);
+            bgr.set(JAVA_BYTE, 0, (byte) 0x10);
+            bgr.set(JAVA_BYTE, 1, (byte) 0x20);
+            bgr.set(JAVA_BYTE, 2, (byte) 0x30);
+
+            MemorySegment rgb = arena.allocate(3);
+            converter.bgr24ToRgb24(bgr, rgb, 1);
+            assertEquals((byte) 0x30, rgb.get(JAVA_BYTE, 0));
+            assertEquals((byte) 0x20, rgb.get(JAVA_BYTE, 1));
+            assertEquals((byte) 0x10, rgb.get(JAVA_BYTE, 2));
+
+            MemorySegment argb = arena.allocate(4);
+            converter.bgr24ToArgb(bgr, argb, 1);
+            assertEquals(0xFF302010, argb.get(JAVA_INT_UNALIGNED, 0));
+
+            MemorySegment gray16 = arena.allocate(6);
+            gray16.set(JAVA_SHORT_UNALIGNED, 0, (short) 100);
+            gray16.set(JAVA_SHORT_UNALIGNED, 2, (short) 300);
+            gray16.set(JAVA_SHORT_UNALIGNED, 4, (short) 0xFFFF);
+            MemorySegment gray8 = arena.allocate(3);
+            converter.windowLevel16To8(gray16, gray8, 3, 200, 400);
+            assertEquals((byte) 0, gray8.get(JAVA_BYTE, 0));
+            assertEquals((byte) 127, gray8.get(JAVA_BYTE, 1));
+            assertEquals((byte) 255, gray8.get(JAVA_BYTE, 2));
+
+            assertThrows(IllegalArgumentException.class, () -> converter.windowLevel16To8(gray16, gray8, 3, 400, 200));
+            assertThrows(IllegalArgumentException.class, () -> converter.bgr24ToRgb24(bgr, rgb, 2));
+        }
+    }
+
+    @ParameterizedTest(name = "pixels={0}")
+    @ValueSource(ints = { 0, 1, 5, 17, 100, 1001, 4099 })
+    public void testDefaultMatchesScalar(int pixels) {
+        PixelConverter scalar = PixelConverter.scalar();
+        PixelConverter fast = PixelConverter.getDefault();
+        byte[] random = new byte[pixels * 6];
+        new Random(pixels).nextBytes(random);
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment source = arena.allocate(random.length);
+            source.copyFrom(MemorySegment.ofArray(random));
+            MemorySegment expected = arena.allocate(pixels * 6L);
+            MemorySegment actual = arena.allocate(pixels * 6L);
+
+            scalar.bgr24ToRgb24(source, expected, pixels);
+            fast.bgr24ToRgb24(source, actual, pixels);
+            assertEquals(-1, expected.mismatch(actual), "bgr24ToRgb24");
+
+            scalar.bgr48ToRgb48(source, expected, pixels);
+            fast.bgr48ToRgb48(source, actual, pixels);
+            assertEquals(-1, expected.mismatch(actual), "bgr48ToRgb48");
+
+            scalar.windowLevel16To8(source, expected, pixels * 3L, 1000, 40000);
+            fast.windowLevel16To8(source, actual, pixels * 3L, 1000, 40000);
+            assertEquals(-1, expected.mismatch(actual), "windowLevel16To8");
+
+            scalar.bgr24ToArgb(source, expected, pixels);
+            fast.bgr24ToArgb(source, actual, pixels);
+            assertEquals(-1, expected.mismatch(actual), "bgr24ToArgb");
+        }
+    }
+}
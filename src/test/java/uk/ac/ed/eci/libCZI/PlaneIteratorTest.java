@@ -0,0 +1,67 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+public class PlaneIteratorTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+
+    @Test
+    public void testBuilderPacksDimensionsInOrder() {
+        Coordinate coordinate = Coordinate.builder().t(4).z(2).c(1).b(7).build();
+        assertEquals(Dimension.Z.bit() | Dimension.C.bit() | Dimension.T.bit() | Dimension.B.bit(), coordinate.dimensionsValid());
+        assertArrayEquals(new int[] { 2, 1, 4, 7, 0, 0, 0, 0, 0 }, coordinate.value());
+        assertEquals(4, coordinate.get(Dimension.T));
+        assertFalse(coordinate.has(Dimension.S));
+        assertThrows(IllegalArgumentException.class, () -> coordinate.get(Dimension.S));
+        assertEquals("Z2C1T4B7", coordinate.toString());
+        assertEquals(Coordinate.builder().z(3).c(1).t(4).b(7).build(), coordinate.with(Dimension.Z, 3));
+        assertEquals(Coordinate.createC0(5), Coordinate.builder().c(5).build());
+    }
+
+    @Test
+    public void testDimBoundsLookup() {
+        DimBounds bounds = new DimBounds(Dimension.C.bit() | Dimension.S.bit(), new int[] { 0, 2 }, new int[] { 3, 4 });
+        assertEquals(2, bounds.start(Dimension.S));
+        assertEquals(3, bounds.size(Dimension.C));
+        assertThrows(IllegalArgumentException.class, () -> bounds.size(Dimension.Z));
+    }
+
+    @Test
+    public void testIteratesEveryChannel() throws Exception {
+        IntRect roi = new IntRect(-123000, 30000, 200, 100);
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader);
+                Arena arena = Arena.ofConfined()) {
+            DimBounds bounds = reader.simpleReaderStatistics().dimBounds();
+            int channels = bounds.size(Dimension.C);
+            int planes = 0;
+            try (PlaneIterator iterator = new PlaneIterator(accessor, roi, 1.0f, Coordinate.builder().build(), bounds, Dimension.C)) {
+                assertEquals(channels, iterator.planeCount());
+                while (iterator.hasNext()) {
+                    Plane plane = iterator.next();
+                    int channel = plane.coordinate().get(Dimension.C);
+                    assertEquals(bounds.start(Dimension.C) + planes, channel);
+
+                    MemorySegment expected = arena.allocate(plane.stride() * plane.info().height());
+                    accessor.getTileInto(roi, 1.0f, channel, expected, plane.stride());
+                    assertEquals(-1, expected.mismatch(plane.pixels()));
+                    planes++;
+                }
+            }
+            assertEquals(channels, planes);
+            assertTrue(planes > 0);
+        }
+    }
+}
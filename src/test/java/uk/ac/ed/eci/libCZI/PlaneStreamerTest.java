@@ -0,0 +1,168 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class PlaneStreamerTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+    private static final IntRect ROI = new IntRect(-123000, 30000, 300, 200);
+
+    @Test
+    public void testIteratorMatchesDirectReads() throws Exception {
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                Arena arena = Arena.ofConfined()) {
+            // The same plane several times over, so the ring of buffers wraps around.
+            List<Coordinate> planes = List.of(Coordinate.createC0(0), Coordinate.createC0(0), Coordinate.createC0(0),
+                    Coordinate.createC0(0), Coordinate.createC0(0));
+            MemorySegment expected;
+            long stride;
+            try (SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader)) {
+                IntSize size = accessor.calcTileSize(ROI, 1.0f);
+                stride = size.w() * 3L;
+                expected = arena.allocate(stride * size.h());
+                accessor.getTileInto(ROI, 1.0f, expected, stride);
+            }
+
+            int count = 0;
+            try (PlaneStreamer streamer = new PlaneStreamer(reader, ROI, 1.0f, planes, 2)) {
+                while (streamer.hasNext()) {
+                    Plane plane = streamer.next();
+                    assertEquals(stride, plane.stride());
+                    assertEquals(-1, expected.mismatch(plane.pixels()));
+                    count++;
+                }
+            }
+            assertEquals(planes.size(), count);
+        }
+    }
+
+    @Test
+    public void testPublisherHonoursDemand() throws Exception {
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream)) {
+            List<Coordinate> planes = List.of(Coordinate.createC0(0), Coordinate.createC0(0), Coordinate.createC0(0));
+            PlaneStreamer streamer = new PlaneStreamer(reader, ROI, 1.0f, planes, 1);
+            AtomicInteger received = new AtomicInteger();
+            CompletableFuture<Throwable> done = new CompletableFuture<>();
+            streamer.subscribe(new Flow.Subscriber<Plane>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(Plane plane) {
+                    assertTrue(plane.pixels().byteSize() > 0);
+                    received.incrementAndGet();
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    done.complete(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    done.complete(null);
+                }
+            });
+            assertNull(done.get(30, TimeUnit.SECONDS));
+            assertEquals(planes.size(), received.get());
+        }
+    }
+
+    @Test
+    public void testSecondConsumerIsRejectedThroughSubscriber() throws Exception {
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                PlaneStreamer streamer = new PlaneStreamer(reader, ROI, 1.0f, List.of(Coordinate.createC0(0)), 1)) {
+            assertTrue(streamer.hasNext());
+            AtomicInteger subscribed = new AtomicInteger();
+            CompletableFuture<Throwable> error = new CompletableFuture<>();
+            streamer.subscribe(new Flow.Subscriber<Plane>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscribed.incrementAndGet();
+                }
+
+                @Override
+                public void onNext(Plane plane) {
+                    error.complete(new AssertionError("A rejected subscriber should get no planes"));
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    error.complete(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    error.complete(null);
+                }
+            });
+            assertEquals(1, subscribed.get());
+            assertInstanceOf(IllegalStateException.class, error.get(30, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testCloseFromAnotherThreadEndsIteration() throws Exception {
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream)) {
+            // Hold the decoder back until close has been called, so the consumer is left
+            // waiting for a plane that is never decoded.
+            CountDownLatch gate = new CountDownLatch(1);
+            Executor gated = task -> new Thread(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                task.run();
+            }).start();
+            PlaneStreamer streamer = new PlaneStreamer(reader, ROI, 1.0f, List.of(Coordinate.createC0(0)), 1, gated);
+
+            CompletableFuture<Boolean> hasNext = new CompletableFuture<>();
+            Thread consumer = new Thread(() -> hasNext.complete(streamer.hasNext()));
+            consumer.start();
+            awaitWaiting(consumer);
+
+            Thread closer = new Thread(streamer::close);
+            closer.start();
+            awaitWaiting(closer);
+            gate.countDown();
+
+            assertFalse(hasNext.get(30, TimeUnit.SECONDS));
+            closer.join(30_000);
+            assertFalse(closer.isAlive());
+        }
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+    }
+}
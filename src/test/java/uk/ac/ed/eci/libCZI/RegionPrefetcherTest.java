@@ -0,0 +1,48 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class RegionPrefetcherTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+    private static final IntRect ROI = new IntRect(-123000, 30000, 1024, 1024);
+
+    @Test
+    public void testDecodeAfterPrefetchReadsNothing() throws Exception {
+        CachingRangeReader cache = new CachingRangeReader(RangeReader.of(FileChannel.open(TEST_IMAGE_PATH, StandardOpenOption.READ)),
+                1L << 28, 64 * 1024, 0);
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromRangeReader(cache);
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                FileChannel file = FileChannel.open(TEST_IMAGE_PATH, StandardOpenOption.READ);
+                RegionPrefetcher prefetcher = new RegionPrefetcher(SubBlockDirectory.fromReader(reader, file), cache);
+                SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader)) {
+            long bytes = prefetcher.prefetch(List.of(ROI, new IntRect(ROI.x() + 512, ROI.y(), 1024, 1024)),
+                    Coordinate.builder().c(0).build()).join();
+            assertTrue(bytes > 0);
+            long fetched = cache.stats().bytesFetched();
+            assertTrue(fetched >= bytes);
+
+            accessor.getBitmapRaw(ROI, 1.0f, 0, 1, 1, 1).release();
+            assertEquals(fetched, cache.stats().bytesFetched());
+        }
+    }
+
+    @Test
+    public void testDirectoryWithoutPositionsIsRejected() throws Exception {
+        CachingRangeReader cache = new CachingRangeReader(RangeReader.of(FileChannel.open(TEST_IMAGE_PATH, StandardOpenOption.READ)), 1L << 20);
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromRangeReader(cache);
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                RegionPrefetcher prefetcher = new RegionPrefetcher(SubBlockDirectory.fromReader(reader), cache)) {
+            assertThrows(IllegalStateException.class, () -> prefetcher.prefetch(List.of(ROI), null));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+
+public class RegionRendererTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+
+    @Test
+    public void testTiledRenderMatchesSingleCall() throws Exception {
+        IntRect roi = new IntRect(-123000, 30000, 1000, 700);
+        int stride = roi.w() * 3;
+        try (RegionRenderer renderer = new RegionRenderer(
+                    () -> CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString()), 4, 256);
+                CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader);
+                Arena arena = Arena.ofShared()) {
+            MemorySegment tiled = arena.allocate((long) stride * roi.h());
+            BitmapInfo info = renderer.render(roi, 1.0f, tiled, stride);
+            assertEquals(roi.w(), info.width());
+            assertEquals(roi.h(), info.height());
+            assertEquals(PixelType.Bgr24, info.pixelType());
+
+            MemorySegment single = arena.allocate((long) stride * roi.h());
+            Bitmap bitmap = accessor.getBitmapRaw(roi, 1.0f);
+            bitmap.copyTo(single, stride);
+            bitmap.release();
+
+            assertEquals(-1, tiled.mismatch(single));
+        }
+    }
+
+    @Test
+    public void testTiledRenderCoversOutputWhenZoomed() throws Exception {
+        IntRect roi = new IntRect(-123000, 30000, 3000, 2000);
+        try (RegionRenderer renderer = new RegionRenderer(
+                    () -> CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString()), 4, 256);
+                CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader);
+                Arena arena = Arena.ofShared()) {
+            for (float zoom : new float[] { 0.5f, 0.7f }) {
+                IntSize output = renderer.outputSize(roi, zoom);
+                int stride = output.w() * 3;
+                long bytes = (long) stride * output.h();
+                // Rendered over two different backgrounds: any pixel left unwritten differs.
+                MemorySegment overBlack = arena.allocate(bytes);
+                MemorySegment overWhite = arena.allocate(bytes);
+                overWhite.fill((byte) 0xFF);
+                renderer.render(roi, zoom, overBlack, stride);
+                renderer.render(roi, zoom, overWhite, stride);
+                assertEquals(-1, overBlack.mismatch(overWhite), "Every output pixel should be rendered at zoom " + zoom);
+
+                MemorySegment single = arena.allocate(bytes);
+                Bitmap bitmap = accessor.getBitmapRaw(roi, zoom);
+                bitmap.copyTo(single, stride);
+                bitmap.release();
+                long difference = 0;
+                for (long i = 0; i < bytes; i++) {
+                    difference += Math.abs(Byte.toUnsignedInt(overBlack.get(ValueLayout.JAVA_BYTE, i))
+                            - Byte.toUnsignedInt(single.get(ValueLayout.JAVA_BYTE, i)));
+                }
+                double meanDifference = (double) difference / bytes;
+                assertTrue(meanDifference < 8, "Mean difference from a single call at zoom " + zoom + " is " + meanDifference);
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsConfinedDestination() throws Exception {
+        IntRect roi = new IntRect(-123000, 30000, 256, 256);
+        try (RegionRenderer renderer = new RegionRenderer(
+                    () -> CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString()), 2, 128);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment destination = arena.allocate((long) roi.w() * 3 * roi.h());
+            assertThrows(IllegalArgumentException.class, () -> renderer.render(roi, 1.0f, destination, roi.w() * 3));
+        }
+    }
+}
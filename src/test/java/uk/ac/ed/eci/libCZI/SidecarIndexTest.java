@@ -0,0 +1,64 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SidecarIndexTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path czi = Files.copy(TEST_IMAGE_PATH, tempDir.resolve("image.czi"));
+        assertNull(SidecarIndex.load(czi));
+
+        SidecarIndex created = SidecarIndex.openOrCreate(czi);
+        assertTrue(Files.isRegularFile(SidecarIndex.sidecarPath(czi)));
+        SidecarIndex loaded = SidecarIndex.load(czi);
+        assertNotNull(loaded);
+
+        SubBlockDirectory expected = created.directory();
+        SubBlockDirectory actual = loaded.directory();
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.maxPyramidLevel(), actual.maxPyramidLevel());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.logicalRect(i), actual.logicalRect(i));
+            assertEquals(expected.physicalSize(i), actual.physicalSize(i));
+            assertEquals(expected.coordinate(i), actual.coordinate(i));
+            assertEquals(expected.mIndex(i), actual.mIndex(i));
+            assertEquals(expected.pixelType(i), actual.pixelType(i));
+            assertEquals(expected.filePosition(i), actual.filePosition(i));
+        }
+        IntRect box = created.statistics().boundingBox();
+        assertArrayEquals(expected.intersecting(box, 0), actual.intersecting(box, 0));
+
+        SubBlockStatistics statistics = loaded.statistics();
+        assertEquals(created.statistics().subBlockCount(), statistics.subBlockCount());
+        assertEquals(created.statistics().boundingBoxLayer0(), statistics.boundingBoxLayer0());
+        assertEquals(created.statistics().dimBounds().dimensionsValid(), statistics.dimBounds().dimensionsValid());
+        assertArrayEquals(created.statistics().dimBounds().size(), statistics.dimBounds().size());
+    }
+
+    @Test
+    public void testStaleSidecarIsIgnored() throws Exception {
+        Path czi = Files.copy(TEST_IMAGE_PATH, tempDir.resolve("image.czi"));
+        SidecarIndex.openOrCreate(czi);
+        Files.setLastModifiedTime(czi, FileTime.fromMillis(Files.getLastModifiedTime(czi).toMillis() + 60_000));
+        assertNull(SidecarIndex.load(czi));
+        assertNotNull(SidecarIndex.openOrCreate(czi));
+        assertNotNull(SidecarIndex.load(czi));
+    }
+}
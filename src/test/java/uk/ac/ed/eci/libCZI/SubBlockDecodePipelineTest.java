@@ -0,0 +1,96 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+
+public class SubBlockDecodePipelineTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+
+    @Test
+    public void testRequestedOrder() throws Exception {
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SubBlockDecodePipeline pipeline = new SubBlockDecodePipeline(reader, 4, 2, 2)) {
+            int count = Math.min(40, reader.simpleReaderStatistics().subBlockCount());
+            int[] indices = IntStream.range(0, count).toArray();
+            List<Integer> seen = new ArrayList<>();
+            SubBlockDecodePipeline.Stats stats = pipeline.run(indices, SubBlockDecodePipeline.Order.REQUESTED, (index, info, bitmap) -> {
+                BitmapInfo bitmapInfo = bitmap.getBitmapInfo();
+                assertEquals(info.physicalSize().w(), bitmapInfo.width());
+                assertEquals(info.physicalSize().h(), bitmapInfo.height());
+                seen.add(index);
+            });
+            assertArrayEquals(indices, seen.stream().mapToInt(Integer::intValue).toArray());
+            assertEquals(count, stats.subBlocks());
+            assertTrue(stats.maxReadQueue() <= 2);
+            assertTrue(stats.decodeNanos() > 0);
+        }
+    }
+
+    @Test
+    public void testCompletionOrderAndFailure() throws Exception {
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SubBlockDecodePipeline pipeline = new SubBlockDecodePipeline(reader, 3)) {
+            int count = Math.min(20, reader.simpleReaderStatistics().subBlockCount());
+            List<Integer> seen = new ArrayList<>();
+            pipeline.run(IntStream.range(0, count).toArray(), SubBlockDecodePipeline.Order.COMPLETION,
+                    (index, info, bitmap) -> seen.add(index));
+            assertEquals(count, seen.size());
+            assertEquals(count, seen.stream().distinct().count());
+
+            int total = reader.simpleReaderStatistics().subBlockCount();
+            assertThrows(CziReaderException.class, () -> pipeline.run(new int[] { 0, total + 5, 1 },
+                    SubBlockDecodePipeline.Order.REQUESTED, (index, info, bitmap) -> { }));
+        }
+    }
+
+    @Test
+    public void testConsumerErrorDrainsPipeline() throws Exception {
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SubBlockDecodePipeline pipeline = new SubBlockDecodePipeline(reader, 2, 1, 1)) {
+            int count = Math.min(20, reader.simpleReaderStatistics().subBlockCount());
+            int[] indices = IntStream.range(0, count).toArray();
+            assertThrows(AssertionError.class, () -> pipeline.run(indices, SubBlockDecodePipeline.Order.REQUESTED,
+                    (index, info, bitmap) -> {
+                        throw new AssertionError("consumer failed");
+                    }));
+            // The read and decode threads must have finished, or this run would never start.
+            SubBlockDecodePipeline.Stats stats = pipeline.run(indices, SubBlockDecodePipeline.Order.COMPLETION,
+                    (index, info, bitmap) -> { });
+            assertEquals(count, stats.subBlocks());
+        }
+    }
+
+    @Test
+    public void testInterruptDrainsPipeline() throws Exception {
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SubBlockDecodePipeline pipeline = new SubBlockDecodePipeline(reader, 2, 1, 1)) {
+            int count = Math.min(20, reader.simpleReaderStatistics().subBlockCount());
+            int[] indices = IntStream.range(0, count).toArray();
+            assertThrows(RuntimeException.class, () -> pipeline.run(indices, SubBlockDecodePipeline.Order.REQUESTED,
+                    (index, info, bitmap) -> Thread.currentThread().interrupt()));
+            assertTrue(Thread.interrupted());
+            // As above, the next run only starts once the interrupted one has drained.
+            SubBlockDecodePipeline.Stats stats = pipeline.run(indices, SubBlockDecodePipeline.Order.COMPLETION,
+                    (index, info, bitmap) -> { });
+            assertEquals(count, stats.subBlocks());
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public class SubBlockDirectoryTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+
+    @Test
+    public void testGridMatchesBruteForce() throws Exception {
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                FileChannel file = FileChannel.open(TEST_IMAGE_PATH, StandardOpenOption.READ)) {
+            SubBlockDirectory directory = SubBlockDirectory.fromReader(reader, file);
+            SubBlockStatistics statistics = reader.simpleReaderStatistics();
+            assertEquals(statistics.subBlockCount(), directory.size());
+            assertTrue(directory.maxPyramidLevel() > 0);
+            for (int i = 0; i < directory.size(); i++) {
+                assertTrue(directory.filePosition(i) > 0);
+            }
+
+            IntRect box = statistics.boundingBox();
+            Random random = new Random(42);
+            for (int q = 0; q < 200; q++) {
+                int w = 1 + random.nextInt(box.w() / 4);
+                int h = 1 + random.nextInt(box.h() / 4);
+                IntRect roi = new IntRect(box.x() - w / 2 + random.nextInt(box.w()), box.y() - h / 2 + random.nextInt(box.h()), w, h);
+                int level = random.nextInt(directory.maxPyramidLevel() + 1);
+                assertArrayEquals(bruteForce(directory, roi, level), directory.intersecting(roi, level), "roi " + roi + " level " + level);
+            }
+        }
+    }
+
+    @Test
+    public void testPlaneFilter() {
+        SubBlockDirectory directory = new SubBlockDirectory(2,
+                new int[] { 0, 0 }, new int[] { 0, 0 }, new int[] { 10, 10 }, new int[] { 10, 10 },
+                new int[] { 10, 10 }, new int[] { 10, 10 },
+                new int[] { Dimension.C.bit(), Dimension.C.bit() },
+                new int[] { 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0 },
+                new int[] { 0, 1 }, new int[] { 0, 0 }, new int[] { 0, 0 }, new long[] { -1, -1 });
+        IntRect roi = new IntRect(5, 5, 1, 1);
+        assertArrayEquals(new int[] { 0, 1 }, directory.intersecting(roi, 0));
+        assertArrayEquals(new int[] { 1 }, directory.intersecting(roi, 0, Coordinate.builder().c(1).build()));
+        assertArrayEquals(new int[0], directory.intersecting(roi, 0, Coordinate.builder().z(0).build()));
+        assertArrayEquals(new int[0], directory.intersecting(new IntRect(10, 0, 5, 5), 0));
+        assertEquals(Coordinate.createC0(1), directory.coordinate(1));
+    }
+
+    private static int[] bruteForce(SubBlockDirectory directory, IntRect roi, int level) {
+        return IntStream.range(0, directory.size())
+                .filter(i -> directory.pyramidLevel(i) == level)
+                .filter(i -> {
+                    IntRect r = directory.logicalRect(i);
+                    return r.x() < roi.x() + roi.w() && roi.x() < r.x() + r.w()
+                            && r.y() < roi.y() + roi.h() && roi.y() < r.y() + r.h();
+                })
+                .toArray();
+    }
+}
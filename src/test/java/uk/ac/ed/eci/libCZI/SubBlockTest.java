@@ -0,0 +1,63 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+
+public class SubBlockTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+    // Segment header, then the metadata and attachment sizes, then the data size.
+    private static final int DATA_SIZE_OFFSET = 32 + 8;
+
+    @Test
+    public void testRawDataMatchesFile() throws Exception {
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                FileChannel file = FileChannel.open(TEST_IMAGE_PATH, StandardOpenOption.READ)) {
+            SubBlockDirectory directory = SubBlockDirectory.fromReader(reader, file);
+            int index = directory.size() - 1;
+            try (SubBlock subBlock = SubBlock.read(reader, index)) {
+                SubBlockInfo info = subBlock.info();
+                assertEquals(directory.logicalRect(index), info.logicalRect());
+                assertEquals(directory.physicalSize(index), info.physicalSize());
+                assertEquals(directory.compressionModeRaw(index), info.compressionModeRaw());
+                assertNotEquals(CompressionMode.Invalid, subBlock.compressionMode());
+
+                ByteBuffer header = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                file.read(header, directory.filePosition(index) + DATA_SIZE_OFFSET);
+                long storedSize = header.getLong(0);
+
+                MemorySegment data = subBlock.data();
+                assertEquals(storedSize, subBlock.dataSize());
+                assertEquals(storedSize, data.byteSize());
+                assertTrue(data.isReadOnly());
+
+                ByteArrayOutputStream copy = new ByteArrayOutputStream();
+                assertEquals(storedSize, subBlock.writeData(Channels.newChannel(copy)));
+                assertEquals(-1, MemorySegment.ofArray(copy.toByteArray()).mismatch(data));
+            }
+        }
+    }
+
+    @Test
+    public void testReadOutOfRange() throws Exception {
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream)) {
+            int count = reader.simpleReaderStatistics().subBlockCount();
+            assertThrows(CziReaderException.class, () -> SubBlock.read(reader, count + 10));
+        }
+    }
+}
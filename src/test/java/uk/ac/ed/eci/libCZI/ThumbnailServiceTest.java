@@ -0,0 +1,41 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ThumbnailServiceTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+
+    @Test
+    public void testCreateThumbnails() {
+        Path missing = Paths.get("test-images", "does-not-exist.czi");
+        try (ThumbnailService service = new ThumbnailService(2, 256)) {
+            List<Thumbnail> thumbnails = service.createThumbnails(List.of(TEST_IMAGE_PATH, missing, TEST_IMAGE_PATH));
+            assertEquals(3, thumbnails.size());
+
+            Thumbnail thumbnail = thumbnails.get(0);
+            assertTrue(thumbnail.isSuccess(), () -> String.valueOf(thumbnail.error()));
+            assertEquals(TEST_IMAGE_PATH, thumbnail.path());
+            assertNotNull(thumbnail.source());
+            int largest = Math.max(thumbnail.image().getWidth(), thumbnail.image().getHeight());
+            assertTrue(largest > 0 && largest <= 256);
+            assertTrue(thumbnail.latency().toNanos() > 0);
+
+            Thumbnail failed = thumbnails.get(1);
+            assertFalse(failed.isSuccess());
+            assertNull(failed.image());
+            assertEquals(missing, failed.path());
+
+            assertTrue(thumbnails.get(2).isSuccess());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+
+/**
+ * Uses a JFR recording to check that a steady-state tile request on the accessor's
+ * own thread allocates nothing on the Java heap apart from the returned {@link Bitmap}
+ * and the segment wrapping its handle.
+ */
+public class TileAllocationTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+    private static final int WARMUP_TILES = 3_000;
+    private static final int RECORDED_TILES = 2_000;
+
+    private static final Set<String> RESULT_CLASSES = Set.of(
+            Bitmap.class.getName(),
+            "jdk.internal.foreign.NativeMemorySegmentImpl");
+
+    @Test
+    public void testSteadyStateTileReadOnlyAllocatesResult() throws Exception {
+        Path jfrFile = Files.createTempFile("tile-allocation", ".jfr");
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader)) {
+            // Past the right edge of every sub-block, so libCZI only fills in the background
+            // and the test measures the Java side of the call rather than decoding.
+            IntRect box = reader.simpleReaderStatistics().boundingBox();
+            IntRect roi = new IntRect(box.x() + box.w() + 1024, box.y(), 16, 16);
+            readTiles(accessor, roi, WARMUP_TILES);
+
+            try (Recording recording = new Recording()) {
+                recording.enable("jdk.ObjectAllocationInNewTLAB").withStackTrace();
+                recording.enable("jdk.ObjectAllocationOutsideTLAB").withStackTrace();
+                recording.start();
+                readTiles(accessor, roi, RECORDED_TILES);
+                recording.stop();
+                recording.dump(jfrFile);
+            }
+
+            List<String> unexpected = new ArrayList<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(jfrFile)) {
+                if (!isFromTileRead(event)) {
+                    continue;
+                }
+                RecordedClass objectClass = event.getClass("objectClass");
+                if (!RESULT_CLASSES.contains(objectClass.getName())) {
+                    unexpected.add(objectClass.getName());
+                }
+            }
+            assertTrue(unexpected.isEmpty(), "Unexpected allocations in getBitmapRaw: " + unexpected);
+        } finally {
+            Files.deleteIfExists(jfrFile);
+        }
+    }
+
+    private static void readTiles(SingleChannelTileAccessor accessor, IntRect roi, int count) {
+        for (int i = 0; i < count; i++) {
+            Bitmap bitmap = accessor.getBitmapRaw(roi, 1.0f);
+            bitmap.release();
+        }
+    }
+
+    private static boolean isFromTileRead(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return false;
+        }
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (frame.getMethod().getType().getName().equals(SingleChannelTileAccessor.class.getName())
+                    && frame.getMethod().getName().equals("getBitmapRaw")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
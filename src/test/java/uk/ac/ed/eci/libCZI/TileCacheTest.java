@@ -0,0 +1,79 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+
+public class TileCacheTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+    private static final int TILE_BYTES = 256 * 256 * 3;
+    private CZIInputStream stream;
+    private CziStreamReader reader;
+
+    @BeforeEach
+    public void setup() {
+        stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+        reader = CziStreamReader.fromStream(stream);
+    }
+
+    @AfterEach
+    public void teardown() throws Exception {
+        reader.close();
+        stream.close();
+    }
+
+    @Test
+    public void testHitReturnsSamePixels() throws Exception {
+        IntRect roi = new IntRect(-123000, 30000, 256, 256);
+        try (TileCache cache = new TileCache(4L * TILE_BYTES, 1);
+                CachedTileAccessor accessor = new CachedTileAccessor(reader, cache, TEST_IMAGE_PATH);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment first = arena.allocate(TILE_BYTES);
+            MemorySegment second = arena.allocate(TILE_BYTES);
+
+            BitmapInfo info = accessor.getTileInto(roi, 1.0f, first, 256 * 3);
+            accessor.getTileInto(roi, 1.0f, second, 256 * 3);
+
+            assertEquals(256, info.width());
+            assertEquals(-1, first.mismatch(second));
+            TileCache.Stats stats = cache.stats();
+            assertEquals(1, stats.hits());
+            assertEquals(1, stats.misses());
+            assertEquals(1, stats.entries());
+            assertEquals(TILE_BYTES, stats.bytesUsed());
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        try (TileCache cache = new TileCache(2L * TILE_BYTES, 1);
+                CachedTileAccessor accessor = new CachedTileAccessor(reader, cache, TEST_IMAGE_PATH);
+                Arena arena = Arena.ofConfined()) {
+            MemorySegment destination = arena.allocate(TILE_BYTES);
+            IntRect a = new IntRect(-123000, 30000, 256, 256);
+            IntRect b = new IntRect(-123000 + 256, 30000, 256, 256);
+            IntRect c = new IntRect(-123000 + 512, 30000, 256, 256);
+
+            accessor.getTileInto(a, 1.0f, destination, 256 * 3);
+            accessor.getTileInto(b, 1.0f, destination, 256 * 3);
+            accessor.getTileInto(a, 1.0f, destination, 256 * 3);
+            accessor.getTileInto(c, 1.0f, destination, 256 * 3);
+
+            TileCache.Stats stats = cache.stats();
+            assertEquals(1, stats.evictions());
+            assertTrue(stats.bytesUsed() <= cache.byteBudget());
+            assertNull(cache.get(new TileKey(TEST_IMAGE_PATH, Coordinate.createC0(0), b, 1.0f), destination, 256 * 3));
+        }
+    }
+}
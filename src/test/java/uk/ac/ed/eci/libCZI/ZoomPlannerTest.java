@@ -0,0 +1,65 @@
+package uk.ac.ed.eci.libCZI;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+
+public class ZoomPlannerTest {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+
+    @Test
+    public void testSnapsToCoarsestAdequateLayer() {
+        ZoomPlanner planner = new ZoomPlanner(ScenePyramidStatistics.fromJson(jsonTestData()), new IntRect(0, 0, 1000, 1000));
+        assertArrayEquals(new float[] { 1 / 16f, 1 / 8f, 1 / 4f, 1 / 2f, 1f }, planner.layerZooms());
+
+        assertEquals(1 / 16f, planner.effectiveZoom(0.03f));
+        assertEquals(1 / 8f, planner.effectiveZoom(0.1f));
+        assertEquals(1 / 4f, planner.effectiveZoom(0.25f));
+        assertEquals(1f, planner.effectiveZoom(0.9f));
+
+        ZoomPlan plan = planner.plan(0, new IntRect(0, 0, 500, 1000), 0.2f);
+        assertEquals(2, plan.pyramidLayerNo());
+        assertEquals(2, plan.minificationFactor());
+        assertEquals(0.25f, plan.effectiveZoom());
+        assertEquals(5, plan.estimatedSubBlockCount());
+
+        // Both scenes together: layer 2 appears in each, so the counts add up.
+        assertEquals(9, planner.plan(new IntRect(0, 0, 500, 1000), 0.2f).estimatedSubBlockCount());
+        assertEquals(0, planner.plan(new IntRect(2000, 2000, 10, 10), 0.2f).estimatedSubBlockCount());
+        assertThrows(IllegalArgumentException.class, () -> planner.plan(7, new IntRect(0, 0, 1, 1), 0.5f));
+    }
+
+    @Test
+    public void testFastestLayerModeUsesEffectiveZoom() throws Exception {
+        IntRect roi = new IntRect(-123000, 30000, 4000, 3000);
+        try (CZIInputStream stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+                CziStreamReader reader = CziStreamReader.fromStream(stream);
+                SingleChannelTileAccessor accessor = new SingleChannelTileAccessor(reader)) {
+            ZoomPlanner planner = new ZoomPlanner(reader);
+            IntSize expected = accessor.calcTileSize(roi, planner.effectiveZoom(0.1f));
+
+            accessor.setZoomPlanner(planner);
+            assertEquals(expected, accessor.calcTileSize(roi, 0.1f));
+            Bitmap bitmap = accessor.getBitmapRaw(roi, 0.1f);
+            try {
+                assertEquals(expected.w(), bitmap.getBitmapInfo().width());
+                assertEquals(expected.h(), bitmap.getBitmapInfo().height());
+            } finally {
+                bitmap.release();
+            }
+        }
+    }
+
+    private String jsonTestData() {
+        return """
+{"scenePyramidStatistics":{"0":[{"layerInfo":{"minificationFactor":0,"pyramidLayerNo":0},"count":27},{"layerInfo":{"minificationFactor":2,"pyramidLayerNo":1},"count":34},{"layerInfo":{"minificationFactor":2,"pyramidLayerNo":2},"count":9},{"layerInfo":{"minificationFactor":2,"pyramidLayerNo":3},"count":4},{"layerInfo":{"minificationFactor":2,"pyramidLayerNo":4},"count":1}],"1":[{"layerInfo":{"minificationFactor":0,"pyramidLayerNo":0},"count":27},{"layerInfo":{"minificationFactor":2,"pyramidLayerNo":1},"count":34},{"layerInfo":{"minificationFactor":2,"pyramidLayerNo":2},"count":9},{"layerInfo":{"minificationFactor":2,"pyramidLayerNo":3},"count":4},{"layerInfo":{"minificationFactor":2,"pyramidLayerNo":4},"count":1}]}}
+                """;
+    }
+}
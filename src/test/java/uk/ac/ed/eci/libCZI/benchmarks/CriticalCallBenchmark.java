@@ -0,0 +1,107 @@
+package uk.ac.ed.eci.libCZI.benchmarks;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.ed.eci.libCZI.CZIInputStream;
+import uk.ac.ed.eci.libCZI.CziStreamReader;
+import uk.ac.ed.eci.libCZI.IntRect;
+import uk.ac.ed.eci.libCZI.LibCziFFM;
+import uk.ac.ed.eci.libCZI.LibCziFunctions;
+import uk.ac.ed.eci.libCZI.SingleChannelTileAccessor;
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapInfo;
+import uk.ac.ed.eci.libCZI.bitmaps.BitmapLockInfo;
+
+/**
+ * Measures the fixed per-tile bookkeeping around a decoded bitmap (query its info,
+ * lock it, unlock it) with the bitmap functions linked normally and with the
+ * {@code Linker.Option.critical} handles from {@link LibCziFunctions}.
+ * <p>
+ * The decode itself is done once in setup so that only call overhead is measured.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-native-access=ALL-UNNAMED")
+@State(Scope.Thread)
+public class CriticalCallBenchmark {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+
+    private static final MethodHandle STANDARD_BITMAP_GET_INFO = LibCziFFM.getMethodHandle("libCZI_BitmapGetInfo",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    private static final MethodHandle STANDARD_BITMAP_LOCK = LibCziFFM.getMethodHandle("libCZI_BitmapLock",
+            FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+    private static final MethodHandle STANDARD_BITMAP_UNLOCK = LibCziFFM.getMethodHandle("libCZI_BitmapUnlock",
+            FunctionDescriptor.ofVoid(ADDRESS));
+
+    private CZIInputStream stream;
+    private CziStreamReader reader;
+    private SingleChannelTileAccessor accessor;
+    private Bitmap bitmap;
+    private Arena arena;
+    private MemorySegment nativeBitmapInfo;
+    private MemorySegment heapBitmapInfo;
+    private MemorySegment nativeLockInfo;
+    private MemorySegment heapLockInfo;
+
+    @Setup
+    public void setup() {
+        stream = CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+        reader = CziStreamReader.fromStream(stream);
+        accessor = new SingleChannelTileAccessor(reader);
+        bitmap = accessor.getBitmapRaw(new IntRect(-123000, 30000, 256, 256), 1.0f, 0, 1, 1, 1);
+        arena = Arena.ofConfined();
+        nativeBitmapInfo = arena.allocate(BitmapInfo.layout());
+        heapBitmapInfo = MemorySegment.ofArray(new int[(int) (BitmapInfo.layout().byteSize() / Integer.BYTES)]);
+        nativeLockInfo = arena.allocate(BitmapLockInfo.layout());
+        heapLockInfo = MemorySegment.ofArray(new long[(int) ((BitmapLockInfo.layout().byteSize() + Long.BYTES - 1) / Long.BYTES)]);
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        bitmap.release();
+        arena.close();
+        accessor.close();
+        reader.close();
+        stream.close();
+    }
+
+    @Benchmark
+    public int standardLinkage() throws Throwable {
+        int errorCode = (int) STANDARD_BITMAP_GET_INFO.invokeExact(bitmap.handle(), nativeBitmapInfo);
+        errorCode |= (int) STANDARD_BITMAP_LOCK.invokeExact(bitmap.handle(), nativeLockInfo);
+        STANDARD_BITMAP_UNLOCK.invokeExact(bitmap.handle());
+        return errorCode;
+    }
+
+    @Benchmark
+    public int criticalLinkage() throws Throwable {
+        int errorCode = (int) LibCziFunctions.BITMAP_GET_INFO.invokeExact(bitmap.handle(), heapBitmapInfo);
+        errorCode |= (int) LibCziFunctions.BITMAP_LOCK.invokeExact(bitmap.handle(), heapLockInfo);
+        LibCziFunctions.BITMAP_UNLOCK.invokeExact(bitmap.handle());
+        return errorCode;
+    }
+}
@@ -0,0 +1,70 @@
+package uk.ac.ed.eci.libCZI.benchmarks;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.ed.eci.libCZI.LibCziFFM;
+import uk.ac.ed.eci.libCZI.LibCziFunctions;
+import uk.ac.ed.eci.libCZI.metadata.LibraryVersion;
+
+/**
+ * Compares calling a small libCZI function through a handle that is looked up and
+ * linked on every call against the pre-linked handles in {@link LibCziFunctions}.
+ * <p>
+ * {@code libCZI_GetLibCZIVersionInfo} is used because it needs no open file and does
+ * almost no work, so the difference between the two is the per-call linking cost.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-native-access=ALL-UNNAMED")
+@State(Scope.Thread)
+public class DowncallHandleBenchmark {
+    private static final FunctionDescriptor VERSION_INFO_DESCRIPTOR = FunctionDescriptor.of(JAVA_INT, ADDRESS);
+
+    private Arena arena;
+    private MemorySegment pVersion;
+
+    @Setup
+    public void setup() {
+        LibCziFunctions.linkAll();
+        arena = Arena.ofConfined();
+        pVersion = arena.allocate(LibraryVersion.LAYOUT);
+    }
+
+    @TearDown
+    public void teardown() {
+        arena.close();
+    }
+
+    @Benchmark
+    public int linkPerCall() throws Throwable {
+        MethodHandle getVersion = LibCziFFM.getMethodHandle("libCZI_GetLibCZIVersionInfo", VERSION_INFO_DESCRIPTOR);
+        return (int) getVersion.invokeExact(pVersion);
+    }
+
+    @Benchmark
+    public int preLinked() throws Throwable {
+        return (int) LibCziFunctions.GET_LIBCZI_VERSION_INFO.invokeExact(pVersion);
+    }
+}
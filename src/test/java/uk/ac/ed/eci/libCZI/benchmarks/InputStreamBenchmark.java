@@ -0,0 +1,84 @@
+package uk.ac.ed.eci.libCZI.benchmarks;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.ed.eci.libCZI.CZIInputStream;
+import uk.ac.ed.eci.libCZI.CziStreamReader;
+import uk.ac.ed.eci.libCZI.IntRect;
+import uk.ac.ed.eci.libCZI.SingleChannelTileAccessor;
+import uk.ac.ed.eci.libCZI.bitmaps.Bitmap;
+
+/**
+ * Measures reading and decoding one tile through each kind of input stream: libCZI's own
+ * file stream, the Java channel bridge, the memory-mapped file and a byte array.
+ * <p>
+ * The tile is at full resolution, so several sub-blocks are read from the stream on
+ * every call. The byte array stream involves no I/O at all, so it gives the cost of
+ * decoding alone.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-native-access=ALL-UNNAMED")
+@State(Scope.Thread)
+public class InputStreamBenchmark {
+    private static final Path TEST_IMAGE_PATH = Paths.get("test-images", "test-image.czi");
+    private static final IntRect ROI = new IntRect(-123000, 30000, 1024, 1024);
+
+    @Param({ "file", "channel", "mapped", "memory" })
+    public String streamType;
+
+    private CZIInputStream stream;
+    private CziStreamReader reader;
+    private SingleChannelTileAccessor accessor;
+
+    @Setup
+    public void setup() throws Exception {
+        stream = switch (streamType) {
+            case "file" -> CZIInputStream.createInputStreamFromFileUTF8(TEST_IMAGE_PATH.toString());
+            case "channel" -> CZIInputStream.createInputStreamFromJavaStream(FileChannel.open(TEST_IMAGE_PATH, StandardOpenOption.READ));
+            case "mapped" -> CZIInputStream.createInputStreamFromMappedFile(TEST_IMAGE_PATH);
+            case "memory" -> CZIInputStream.fromBytes(Files.readAllBytes(TEST_IMAGE_PATH));
+            default -> throw new IllegalArgumentException(streamType);
+        };
+        reader = CziStreamReader.fromStream(stream);
+        accessor = new SingleChannelTileAccessor(reader);
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        accessor.close();
+        reader.close();
+        stream.close();
+    }
+
+    @Benchmark
+    public long readTile() {
+        Bitmap bitmap = accessor.getBitmapRaw(ROI, 1.0f, 0, 1, 1, 1);
+        try {
+            return bitmap.getBitmapInfo().width();
+        } finally {
+            bitmap.release();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package uk.ac.ed.eci.libCZI.benchmarks;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.ed.eci.libCZI.bitmaps.PixelConverter;
+
+/**
+ * Compares the scalar and Vector API implementations of {@link PixelConverter} on a
+ * 1024x1024 tile of random pixels held in native memory, as a decoded bitmap would be.
+ * Scores are per pixel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--enable-native-access=ALL-UNNAMED", "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Thread)
+@OperationsPerInvocation(PixelConversionBenchmark.PIXELS)
+public class PixelConversionBenchmark {
+    static final int PIXELS = 1024 * 1024;
+
+    @Param({ "scalar", "vector" })
+    private String implementation;
+
+    private PixelConverter converter;
+    private Arena arena;
+    private MemorySegment bgr24;
+    private MemorySegment bgr48;
+    private MemorySegment rgb24;
+    private MemorySegment rgb48;
+    private MemorySegment gray8;
+    private MemorySegment argb;
+
+    @Setup
+    public void setup() {
+        converter = implementation.equals("vector") ? PixelConverter.vectorized() : PixelConverter.scalar();
+        arena = Arena.ofConfined();
+        byte[] random = new byte[PIXELS * 6];
+        new Random(42).nextBytes(random);
+        bgr48 = arena.allocate(PIXELS * 6L, 8);
+        bgr48.copyFrom(MemorySegment.ofArray(random));
+        bgr24 = bgr48.asSlice(0, PIXELS * 3L);
+        rgb24 = arena.allocate(PIXELS * 3L, 8);
+        rgb48 = arena.allocate(PIXELS * 6L, 8);
+        gray8 = arena.allocate(PIXELS, 8);
+        argb = arena.allocate(PIXELS * 4L, 8);
+    }
+
+    @TearDown
+    public void teardown() {
+        arena.close();
+    }
+
+    @Benchmark
+    public void bgr24ToRgb24() {
+        converter.bgr24ToRgb24(bgr24, rgb24, PIXELS);
+    }
+
+    @Benchmark
+    public void bgr48ToRgb48() {
+        converter.bgr48ToRgb48(bgr48, rgb48, PIXELS);
+    }
+
+    @Benchmark
+    public void gray16WindowLevel() {
+        converter.windowLevel16To8(bgr48, gray8, PIXELS, 1000, 40000);
+    }
+
+    @Benchmark
+    public void bgr24ToArgb() {
+        converter.bgr24ToArgb(bgr24, argb, PIXELS);
+    }
+}